@@ -0,0 +1,188 @@
+package mc.server.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.dto.ApiResponse;
+import mc.server.model.BackupRecord;
+import mc.server.model.BackupWindow;
+import mc.server.model.RetentionPolicy;
+import mc.server.service.backup.BackupCatalogService;
+import mc.server.service.backup.BackupRestoreService;
+import mc.server.service.backup.BackupScheduler;
+import mc.server.service.backup.BackupVerificationService;
+import mc.server.service.backup.SnapshotService;
+import mc.server.service.server.MinecraftServerService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/servers/{instanceId}")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class BackupController {
+    private final SnapshotService snapshotService;
+    private final BackupRestoreService backupRestoreService;
+    private final BackupCatalogService backupCatalogService;
+    private final BackupVerificationService backupVerificationService;
+    private final BackupScheduler backupScheduler;
+    private final MinecraftServerService minecraftServerService;
+
+    @GetMapping("/snapshots")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<SnapshotService.SnapshotInfo>>> listSnapshots(@PathVariable Long instanceId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(snapshotService.listSnapshots(instanceId)));
+        } catch (Exception e) {
+            log.error("Error listing snapshots for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to list snapshots"));
+        }
+    }
+
+    @PostMapping("/snapshots")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<SnapshotService.SnapshotInfo>> createSnapshot(@PathVariable Long instanceId,
+                                                                                   @RequestParam(required = false) String label) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Snapshot created", snapshotService.createSnapshot(instanceId, label)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error creating snapshot for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to create snapshot"));
+        }
+    }
+
+    @DeleteMapping("/snapshots/{snapshotId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> deleteSnapshot(@PathVariable Long instanceId, @PathVariable String snapshotId) {
+        try {
+            snapshotService.deleteSnapshot(instanceId, snapshotId);
+            return ResponseEntity.ok(ApiResponse.success("Snapshot deleted"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error deleting snapshot {} for instance {}", snapshotId, instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to delete snapshot"));
+        }
+    }
+
+    @GetMapping("/backups")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<BackupRecord>>> listBackups(@PathVariable Long instanceId,
+                                                                     @RequestParam(defaultValue = "0") int page,
+                                                                     @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(backupCatalogService.listBackups(instanceId, page, size)));
+        } catch (Exception e) {
+            log.error("Error listing backups for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to list backups"));
+        }
+    }
+
+    @GetMapping("/backups/retention")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<RetentionPolicy>> getRetentionPolicy(@PathVariable Long instanceId) {
+        try {
+            var instance = minecraftServerService.getInstance(instanceId);
+            return ResponseEntity.ok(ApiResponse.success(backupCatalogService.getRetentionPolicy(instance)));
+        } catch (Exception e) {
+            log.error("Error getting backup retention for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to get backup retention"));
+        }
+    }
+
+    @PutMapping("/backups/retention")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<RetentionPolicy>> updateRetentionPolicy(@PathVariable Long instanceId,
+                                                                            @RequestBody RetentionPolicy policy) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Backup retention updated",
+                    backupCatalogService.updateRetentionPolicy(instanceId, policy)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error updating backup retention for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to update backup retention"));
+        }
+    }
+
+    @GetMapping("/backups/schedule")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getBackupSchedule(@PathVariable Long instanceId) {
+        try {
+            var instance = minecraftServerService.getInstance(instanceId);
+            Map<String, Object> schedule = new HashMap<>();
+            schedule.put("window", backupScheduler.getBackupWindow(instance));
+            schedule.put("status", backupScheduler.getStatus(instanceId));
+            return ResponseEntity.ok(ApiResponse.success(schedule));
+        } catch (Exception e) {
+            log.error("Error getting backup schedule for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to get backup schedule"));
+        }
+    }
+
+    @PutMapping("/backups/schedule")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BackupWindow>> updateBackupSchedule(@PathVariable Long instanceId,
+                                                                        @RequestBody BackupWindow window) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Backup schedule updated",
+                    backupScheduler.updateBackupWindow(instanceId, window)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error updating backup schedule for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to update backup schedule"));
+        }
+    }
+
+    @PostMapping("/backups/{backupId}/restore")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BackupRestoreService.RestoreResult>> restoreFromBackup(@PathVariable Long instanceId,
+                                                                                          @PathVariable String backupId,
+                                                                                          @RequestParam String path,
+                                                                                          @RequestParam(defaultValue = "false") boolean dryRun,
+                                                                                          @RequestParam(defaultValue = "false") boolean inPlace) {
+        try {
+            BackupRestoreService.RestoreResult result = backupRestoreService.restore(instanceId, backupId, path, dryRun, inPlace);
+            String message = dryRun ? "Restore estimate" : "Restored " + path + " from " + backupId;
+            return ResponseEntity.ok(ApiResponse.success(message, result));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error restoring {} from backup {} for instance {}", path, backupId, instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to restore from backup"));
+        }
+    }
+
+    @PostMapping("/backups/{backupId}/verify")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BackupVerificationService.VerificationResult>> verifyBackup(@PathVariable Long instanceId,
+                                                                                              @PathVariable String backupId) {
+        try {
+            BackupVerificationService.VerificationResult result = backupVerificationService.verify(instanceId, backupId);
+            return ResponseEntity.ok(ApiResponse.success(result.passed() ? "Backup verified" : "Backup failed verification", result));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error verifying backup {} for instance {}", backupId, instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to verify backup"));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package mc.server.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.dto.ApiResponse;
+import mc.server.service.diagnostics.HangWatchdogService;
+import mc.server.service.diagnostics.JfrMetricsService;
+import mc.server.service.diagnostics.JmxMetricsService;
+import mc.server.service.diagnostics.SamplingProfilerService;
+import mc.server.service.diagnostics.ThreadDumpService;
+import mc.server.service.server.MinecraftServerService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/servers/{instanceId}/diagnostics")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class DiagnosticsController {
+    private final HangWatchdogService hangWatchdogService;
+    private final ThreadDumpService threadDumpService;
+    private final SamplingProfilerService samplingProfilerService;
+    private final JfrMetricsService jfrMetricsService;
+    private final JmxMetricsService jmxMetricsService;
+    private final MinecraftServerService minecraftServerService;
+
+    @GetMapping("/watchdog")
+    public ResponseEntity<ApiResponse<HangWatchdogService.WatchdogStatus>> getWatchdogStatus(@PathVariable Long instanceId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(hangWatchdogService.getStatus(instanceId)));
+        } catch (Exception e) {
+            log.error("Error getting watchdog status for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to get watchdog status"));
+        }
+    }
+
+    @GetMapping("/thread-dumps")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<ThreadDumpService.ThreadDumpInfo>>> listThreadDumps(@PathVariable Long instanceId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(threadDumpService.listThreadDumps(instanceId)));
+        } catch (Exception e) {
+            log.error("Error listing thread dumps for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to list thread dumps"));
+        }
+    }
+
+    @GetMapping("/thread-dumps/{name}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> getThreadDump(@PathVariable Long instanceId, @PathVariable String name) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(threadDumpService.readThreadDump(instanceId, name)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Error reading thread dump {} for instance {}", name, instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to read thread dump"));
+        }
+    }
+
+    @PostMapping("/thread-dumps")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> captureThreadDump(@PathVariable Long instanceId) {
+        try {
+            Path dumpFile = threadDumpService.captureAndStore(instanceId, "Requested by admin");
+            return ResponseEntity.ok(ApiResponse.success("Thread dump captured", dumpFile.getFileName().toString()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error capturing thread dump for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to capture thread dump: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/profiles")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<SamplingProfilerService.ProfileSummary>> startProfile(
+            @PathVariable Long instanceId,
+            @RequestParam(defaultValue = "30") int durationSeconds,
+            @RequestParam(defaultValue = "200") int intervalMs,
+            @RequestParam(defaultValue = "false") boolean includeIdle,
+            @RequestParam(defaultValue = "false") boolean perThread) {
+        try {
+            var profile = samplingProfilerService.startProfile(instanceId, durationSeconds, intervalMs, includeIdle, perThread);
+            return ResponseEntity.ok(ApiResponse.success("Profiling started", profile));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error starting profile for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to start profiling"));
+        }
+    }
+
+    @GetMapping("/profiles")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<SamplingProfilerService.ProfileSummary>>> listProfiles(@PathVariable Long instanceId) {
+        return ResponseEntity.ok(ApiResponse.success(samplingProfilerService.listProfiles(instanceId)));
+    }
+
+    @GetMapping("/profiles/{profileId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<SamplingProfilerService.ProfileSummary>> getProfile(@PathVariable Long instanceId,
+                                                                                           @PathVariable String profileId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(samplingProfilerService.getProfile(instanceId, profileId)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/profiles/{profileId}/hot-methods")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<SamplingProfilerService.HotMethod>>> getHotMethods(@PathVariable Long instanceId,
+                                                                                             @PathVariable String profileId,
+                                                                                             @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(samplingProfilerService.getHotMethods(instanceId, profileId, limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping(value = "/profiles/{profileId}/collapsed", produces = MediaType.TEXT_PLAIN_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> getCollapsedStacks(@PathVariable Long instanceId, @PathVariable String profileId) {
+        try {
+            return ResponseEntity.ok(samplingProfilerService.getCollapsedStacks(instanceId, profileId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping(value = "/profiles/{profileId}/flamegraph.svg", produces = "image/svg+xml")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> getFlameGraph(@PathVariable Long instanceId, @PathVariable String profileId) {
+        try {
+            return ResponseEntity.ok(samplingProfilerService.getFlameGraph(instanceId, profileId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/jfr")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getJfrMetrics(@PathVariable Long instanceId) {
+        try {
+            var instance = minecraftServerService.getInstance(instanceId);
+            Map<String, Object> result = Map.of(
+                    "enabled", Boolean.TRUE.equals(instance.getJfrEnabled()),
+                    "streaming", jfrMetricsService.isStreaming(instanceId),
+                    "samples", jfrMetricsService.getSamples(instanceId)
+            );
+            return ResponseEntity.ok(ApiResponse.success(result));
+        } catch (Exception e) {
+            log.error("Error getting JFR metrics for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to get JFR metrics"));
+        }
+    }
+
+    @PostMapping("/jfr")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> setJfrEnabled(@PathVariable Long instanceId, @RequestParam boolean enabled) {
+        try {
+            minecraftServerService.updateJfrEnabled(instanceId, enabled);
+            String message = enabled ?
+                    "JFR recording enabled, takes effect on next server start" :
+                    "JFR recording disabled, takes effect on next server start";
+            return ResponseEntity.ok(ApiResponse.success(message));
+        } catch (Exception e) {
+            log.error("Error updating JFR setting for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to update JFR setting"));
+        }
+    }
+
+    @GetMapping("/jmx")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getJmxMetrics(@PathVariable Long instanceId) {
+        try {
+            var instance = minecraftServerService.getInstance(instanceId);
+            Map<String, Object> result = new HashMap<>();
+            result.put("enabled", Boolean.TRUE.equals(instance.getJmxEnabled()));
+            result.put("port", instance.getJmxPort());
+            result.put("metrics", jmxMetricsService.getLatestMetrics(instanceId).orElse(null));
+            return ResponseEntity.ok(ApiResponse.success(result));
+        } catch (Exception e) {
+            log.error("Error getting JMX metrics for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to get JMX metrics"));
+        }
+    }
+
+    @PostMapping("/jmx")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> setJmxEnabled(@PathVariable Long instanceId, @RequestParam boolean enabled) {
+        try {
+            jmxMetricsService.setEnabled(instanceId, enabled);
+            String message = enabled ?
+                    "JMX metrics enabled, takes effect on next server start" :
+                    "JMX metrics disabled, takes effect on next server start";
+            return ResponseEntity.ok(ApiResponse.success(message));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error updating JMX setting for instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to update JMX setting"));
+        }
+    }
+}
@@ -13,6 +13,7 @@ import mc.server.dto.WhitelistEntry;
 import mc.server.model.ConsoleMessage;
 import mc.server.model.ServerStatus;
 import mc.server.service.*;
+import mc.server.service.backup.BackupService;
 import mc.server.service.server.MinecraftServerService;
 import mc.server.service.server.ServerPropertiesService;
 import org.springframework.context.ApplicationContext;
@@ -22,7 +23,6 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -39,6 +39,7 @@ public class ServerController {
     private final WebSocketService webSocketService;
     private final LogMonitoringService logMonitoringService;
     private final RconService rconService;
+    private final BackupService backupService;
     private final ApplicationContext applicationContext;
 
     @GetMapping("/status")
@@ -594,7 +595,7 @@ public class ServerController {
                 ConsoleMessage.info("[ADMIN] Creating world backup...")
         );
 
-        return minecraftServerService.backupWorld(instanceId)
+        return backupService.createBackup(instanceId)
                 .thenApply(success -> {
                     if (success) {
                         String message = "World backup created successfully";
@@ -632,9 +633,18 @@ public class ServerController {
     }
 
     @GetMapping("/console/history")
-    public ResponseEntity<ApiResponse<java.util.List<ConsoleMessage>>> getConsoleHistory(@PathVariable Long instanceId) {
+    public ResponseEntity<ApiResponse<java.util.List<ConsoleMessage>>> getConsoleHistory(@PathVariable Long instanceId,
+                                                                                      @RequestParam(required = false) Long since,
+                                                                                      @RequestParam(required = false) Integer limit) {
         try {
-            java.util.List<ConsoleMessage> history = new ArrayList<>(logMonitoringService.getConsoleHistory(instanceId));
+            java.util.List<ConsoleMessage> history;
+            if (since != null) {
+                history = logMonitoringService.getConsoleHistorySince(instanceId, since, limit != null ? limit : Integer.MAX_VALUE);
+            } else if (limit != null) {
+                history = logMonitoringService.getRecentConsoleHistory(instanceId, limit);
+            } else {
+                history = logMonitoringService.getConsoleHistory(instanceId);
+            }
             return ResponseEntity.ok(ApiResponse.success(history));
         } catch (Exception e) {
             log.error("Error getting console history for instance {}", instanceId, e);
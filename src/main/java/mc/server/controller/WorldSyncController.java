@@ -0,0 +1,84 @@
+package mc.server.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import jakarta.validation.Valid;
+import mc.server.dto.ApiResponse;
+import mc.server.dto.MigrationRequest;
+import mc.server.service.sync.WorldMigrationService;
+import mc.server.service.sync.WorldSyncService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/servers/{instanceId}")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class WorldSyncController {
+    private final WorldSyncService worldSyncService;
+    private final WorldMigrationService worldMigrationService;
+
+    @PostMapping("/world/copy-to/{targetInstanceId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<WorldSyncService.SyncProgress>> copyWorld(@PathVariable Long instanceId,
+                                                                              @PathVariable Long targetInstanceId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("World copy started",
+                    worldSyncService.startWorldCopy(instanceId, targetInstanceId)));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error starting world copy from instance {} to instance {}", instanceId, targetInstanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to start world copy"));
+        }
+    }
+
+    @GetMapping("/world/sync/{syncId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<WorldSyncService.SyncProgress>> getSyncProgress(@PathVariable Long instanceId,
+                                                                                    @PathVariable String syncId) {
+        try {
+            return worldSyncService.getProgress(syncId)
+                    .map(progress -> ResponseEntity.ok(ApiResponse.success(progress)))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            log.error("Error getting world sync {} for instance {}", syncId, instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to get world sync progress"));
+        }
+    }
+
+    @PostMapping("/migrate")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<WorldMigrationService.MigrationProgress>> migrate(@PathVariable Long instanceId,
+                                                                                      @Valid @RequestBody MigrationRequest request) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success("Migration started",
+                    worldMigrationService.startMigration(instanceId, request.getTargetPath())));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error starting migration of instance {}", instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to start migration"));
+        }
+    }
+
+    @GetMapping("/migrate/{migrationId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<WorldMigrationService.MigrationProgress>> getMigrationProgress(@PathVariable Long instanceId,
+                                                                                                   @PathVariable String migrationId) {
+        try {
+            return worldMigrationService.getProgress(migrationId)
+                    .map(progress -> ResponseEntity.ok(ApiResponse.success(progress)))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            log.error("Error getting migration {} for instance {}", migrationId, instanceId, e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error("Failed to get migration progress"));
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package mc.server.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class MigrationRequest {
+    @NotBlank
+    private String targetPath;
+}
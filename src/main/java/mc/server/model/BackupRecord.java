@@ -0,0 +1,41 @@
+package mc.server.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_backup_record_instance_created", columnList = "instanceId, createdAt"),
+        @Index(name = "idx_backup_record_instance_backup", columnList = "instanceId, backupId", unique = true)
+})
+public class BackupRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long instanceId;
+    private String backupId;
+    private String type;
+    private String parentBackupId;
+    private LocalDateTime createdAt;
+    private Long sizeBytes;
+    private Long sourceBytes;
+    private Integer fileCount;
+    private String checksum;
+    private Long durationMillis;
+    private LocalDateTime verifiedAt;
+    private String verificationStatus;
+    @Column(length = 2000)
+    private String verificationDetail;
+    private String offloadTarget;
+    private String offloadStatus;
+    private LocalDateTime offloadedAt;
+}
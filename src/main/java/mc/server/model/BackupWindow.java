@@ -0,0 +1,21 @@
+package mc.server.model;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalTime;
+
+// Daily time range in which the scheduler may start this instance's backup; an end before the start wraps past midnight
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Embeddable
+public class BackupWindow {
+    private Boolean scheduledBackups;
+    private LocalTime windowStart;
+    private LocalTime windowEnd;
+}
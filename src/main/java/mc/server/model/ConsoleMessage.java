@@ -16,6 +16,7 @@ public class ConsoleMessage {
     private String message;
     private LocalDateTime timestamp;
     private String source; // "server", "admin", "system"
+    private Long sequence; // position in the instance's console history, null for messages that are not kept
 
     public static ConsoleMessage info(String message) {
         return ConsoleMessage.builder()
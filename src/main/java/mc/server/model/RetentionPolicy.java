@@ -0,0 +1,20 @@
+package mc.server.model;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Grandfather-father-son: how many of the most recent hours, days, weeks and months keep their newest backup
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Embeddable
+public class RetentionPolicy {
+    private Integer keepHourly;
+    private Integer keepDaily;
+    private Integer keepWeekly;
+    private Integer keepMonthly;
+}
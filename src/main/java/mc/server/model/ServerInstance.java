@@ -35,4 +35,15 @@ public class ServerInstance {
     private String statusMessage;
     
     private String allocatedMemory;
+
+    private Boolean jfrEnabled;
+
+    private Boolean jmxEnabled;
+    private Integer jmxPort;
+
+    @Embedded
+    private RetentionPolicy retentionPolicy;
+
+    @Embedded
+    private BackupWindow backupWindow;
 }
\ No newline at end of file
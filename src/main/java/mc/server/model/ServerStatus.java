@@ -41,4 +41,10 @@ public class ServerStatus {
     private double instanceRamUsage;
     private double allocatedRam;
     private double instanceDiskUsage;
+
+    private double heapUsedMb;
+    private double heapCommittedMb;
+    private double heapMaxMb;
+    private double gcTimePercent;
+    private int threadCount;
 }
\ No newline at end of file
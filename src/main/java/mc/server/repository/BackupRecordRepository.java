@@ -0,0 +1,28 @@
+package mc.server.repository;
+
+import mc.server.model.BackupRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BackupRecordRepository extends JpaRepository<BackupRecord, Long> {
+
+    List<BackupRecord> findByInstanceIdOrderByCreatedAtDesc(Long instanceId);
+
+    List<BackupRecord> findByInstanceIdOrderByCreatedAtDesc(Long instanceId, Pageable pageable);
+
+    Optional<BackupRecord> findByInstanceIdAndBackupId(Long instanceId, String backupId);
+
+    long countByInstanceId(Long instanceId);
+
+    Optional<BackupRecord> findFirstByInstanceIdOrderByCreatedAtDesc(Long instanceId);
+
+    List<BackupRecord> findByVerifiedAtIsNullOrderByCreatedAtDesc(Pageable pageable);
+
+    List<BackupRecord> findByVerifiedAtBeforeOrderByVerifiedAtAsc(LocalDateTime cutoff, Pageable pageable);
+}
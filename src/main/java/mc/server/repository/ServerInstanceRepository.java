@@ -15,4 +15,7 @@ public interface ServerInstanceRepository extends JpaRepository<ServerInstance,
     
     @Query("SELECT s.rconPort FROM ServerInstance s WHERE s.rconPort > 0")
     List<Integer> findAllAllocatedRconPorts();
+
+    @Query("SELECT s.jmxPort FROM ServerInstance s WHERE s.jmxPort > 0")
+    List<Integer> findAllAllocatedJmxPorts();
 }
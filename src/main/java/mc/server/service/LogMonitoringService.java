@@ -3,43 +3,71 @@ package mc.server.service;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import lombok.extern.slf4j.Slf4j;
 import mc.server.model.ConsoleMessage;
 import mc.server.model.ServerInstance;
 import mc.server.repository.ServerInstanceRepository;
+import mc.server.service.log.ConsoleHistoryBuffer;
+import mc.server.service.log.GameEvent;
+import mc.server.service.log.GameEventExtractor;
+import mc.server.service.log.LogLineParser;
+import mc.server.service.log.LogTailer;
+import mc.server.service.log.LogWatchReactor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-
-import static mc.server.service.LogPatterns.*;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class LogMonitoringService {
 
+    private static final int HISTORY_LINES_ON_ATTACH = 100;
+    private static final int HISTORY_TAIL_BYTES = 256 * 1024;
+
     @Value("${minecraft.server.console.max-history:1000}")
     private int maxHistorySize;
 
+    // Text slab size per history entry, longer lines just push older ones out sooner
+    @Value("${minecraft.server.console.history-bytes-per-line:128}")
+    private int historyBytesPerLine;
+
     private final WebSocketService webSocketService;
     private final ServerInstanceRepository serverInstanceRepository;
+    private final LogWatchReactor logWatchReactor;
+    private final ApplicationEventPublisher eventPublisher;
 
-    private final Map<Long, ConcurrentLinkedQueue<ConsoleMessage>> consoleHistories = new ConcurrentHashMap<>();
-    private final Map<Long, WatchService> watchServices = new ConcurrentHashMap<>();
-    private final Map<Long, ExecutorService> executorServices = new ConcurrentHashMap<>();
+    private final Map<Long, ConsoleHistoryBuffer> consoleHistories = new ConcurrentHashMap<>();
+    private final Map<Long, InstanceTail> tails = new ConcurrentHashMap<>();
     private final Map<Long, Boolean> monitoringStates = new ConcurrentHashMap<>();
+    private final Map<Long, Instant> lastLogActivity = new ConcurrentHashMap<>();
+    private final Map<Long, LogCheckpoint> checkpoints = new ConcurrentHashMap<>();
+
+    // How far into which file tailing got, so restarting the monitor picks up where it stopped
+    private record LogCheckpoint(Object fileKey, long offset) {}
+
+    private static class InstanceTail {
+        private final LogTailer tailer;
+        private LogWatchReactor.Registration registration;
+        private boolean closed;
+
+        private InstanceTail(LogTailer tailer) {
+            this.tailer = tailer;
+        }
+    }
 
     @PreDestroy
     public void cleanup() {
@@ -47,6 +75,11 @@ public class LogMonitoringService {
     }
 
     public void startMonitoring(Long instanceId) {
+        if (monitoringStates.getOrDefault(instanceId, false)) {
+            log.debug("Log monitoring already active for instance {}", instanceId);
+            return;
+        }
+
         ServerInstance instance = getInstance(instanceId);
         Path logFile = Paths.get(instance.getInstancePath(), "logs", "latest.log");
 
@@ -56,27 +89,21 @@ public class LogMonitoringService {
         }
 
         try {
-            WatchService watchService = FileSystems.getDefault().newWatchService();
-            Path logDir = logFile.getParent();
-            logDir.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY);
-            watchServices.put(instanceId, watchService);
-
-            ExecutorService executorService = Executors.newSingleThreadExecutor(r -> {
-                Thread t = new Thread(r, "log-monitor-" + instanceId);
-                t.setDaemon(true);
-                return t;
-            });
-            executorServices.put(instanceId, executorService);
-
+            long startOffset = resumeOffset(instanceId, logFile);
             monitoringStates.put(instanceId, true);
-            consoleHistories.put(instanceId, new ConcurrentLinkedQueue<>());
-            loadRecentLogHistory(instanceId);
+            history(instanceId).clear();
+            loadRecentLogHistory(instanceId, logFile, startOffset);
 
-            executorService.submit(() -> monitorLogFile(instanceId, logFile));
+            InstanceTail tail = new InstanceTail(new LogTailer(logFile, startOffset));
+            tails.put(instanceId, tail);
+            tail.registration = logWatchReactor.register(logFile, () -> readNewLines(instanceId, tail));
+            // Catch up on anything written between measuring the offset and registering the watch
+            tail.registration.signal();
 
             log.info("Started file-based log monitoring for instance {}: {}", instanceId, logFile);
 
         } catch (Exception e) {
+            monitoringStates.put(instanceId, false);
             log.error("Error starting log monitoring for instance {}", instanceId, e);
         }
     }
@@ -84,70 +111,72 @@ public class LogMonitoringService {
     public void stopMonitoring(Long instanceId) {
         monitoringStates.put(instanceId, false);
 
-        WatchService watchService = watchServices.remove(instanceId);
-        if (watchService != null) {
-            try {
-                watchService.close();
-            } catch (Exception e) {
-                log.debug("Error closing watch service for instance {}", instanceId, e);
+        InstanceTail tail = tails.remove(instanceId);
+        if (tail != null) {
+            if (tail.registration != null) {
+                tail.registration.close();
             }
-        }
-
-        ExecutorService executorService = executorServices.remove(instanceId);
-        if (executorService != null) {
-            executorService.shutdown();
-            try {
-                if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
-                    executorService.shutdownNow();
+            synchronized (tail) {
+                tail.closed = true;
+                try {
+                    tail.tailer.close();
+                } catch (IOException e) {
+                    log.debug("Error closing log tailer for instance {}", instanceId, e);
                 }
-            } catch (InterruptedException e) {
-                executorService.shutdownNow();
-                Thread.currentThread().interrupt();
             }
         }
 
         log.info("Log monitoring service stopped for instance {}", instanceId);
     }
 
-    private void monitorLogFile(Long instanceId, Path logFile) {
-        try (RandomAccessFile file = new RandomAccessFile(logFile.toFile(), "r")) {
-            file.seek(file.length());
-            WatchService watchService = watchServices.get(instanceId);
-
-            while (monitoringStates.getOrDefault(instanceId, false)) {
-                WatchKey key = watchService.poll(1, TimeUnit.SECONDS);
-                if (key != null) {
-                    for (WatchEvent<?> event : key.pollEvents()) {
-                        if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY) {
-                            Path changed = (Path) event.context();
-                            if (changed.toString().equals(logFile.getFileName().toString())) {
-                                readNewLines(instanceId, file);
-                            }
-                        }
-                    }
-                    key.reset();
+    private void readNewLines(Long instanceId, InstanceTail tail) {
+        synchronized (tail) {
+            if (tail.closed) {
+                return;
+            }
+            try {
+                if (tail.tailer.poll(line -> processLogLine(instanceId, line, true)) > 0) {
+                    lastLogActivity.put(instanceId, Instant.now());
+                    checkpoints.put(instanceId, new LogCheckpoint(tail.tailer.getFileKey(), tail.tailer.getOffset()));
                 }
+            } catch (IOException e) {
+                log.error("Error reading log file for instance {}", instanceId, e);
             }
-        } catch (Exception e) {
-            log.error("Error monitoring log file for instance {}", instanceId, e);
         }
     }
 
-    private void readNewLines(Long instanceId, RandomAccessFile file) throws IOException {
-        String line;
-        while ((line = file.readLine()) != null) {
-            processLogLine(instanceId, line);
+    // The checkpoint only applies to the same file, a server restart starts a fresh latest.log
+    private long resumeOffset(Long instanceId, Path logFile) throws IOException {
+        long size = Files.size(logFile);
+        LogCheckpoint checkpoint = checkpoints.get(instanceId);
+        if (checkpoint != null && checkpoint.fileKey() != null && Objects.equals(checkpoint.fileKey(), LogTailer.fileIdentity(logFile))
+                && checkpoint.offset() <= size) {
+            return checkpoint.offset();
         }
+        return size;
     }
 
-    private void processLogLine(Long instanceId, String rawLine) {
+    // Only live lines become game events, replaying history on attach must not announce old joins again
+    private void processLogLine(Long instanceId, String rawLine, boolean live) {
         try {
-            ConsoleMessage message = parseLogLine(rawLine);
-            if (message != null) {
-                addToHistory(instanceId, message);
+            if (rawLine == null || rawLine.isBlank()) {
+                return;
+            }
+            LogLineParser.ParsedLine line = LogLineParser.parse(rawLine);
+            if (line.kind() == LogLineParser.Kind.IGNORED) {
+                return;
+            }
 
-                if (webSocketService.hasActiveSessions()) {
-                    webSocketService.broadcastConsoleMessage(instanceId, message);
+            ConsoleMessage message = toConsoleMessage(line);
+            addToHistory(instanceId, message);
+            if (webSocketService.hasActiveSessions()) {
+                webSocketService.broadcastConsoleMessage(instanceId, message);
+            }
+
+            if (live) {
+                GameEvent event = GameEventExtractor.extract(instanceId, line, message.getTimestamp());
+                if (event != null) {
+                    eventPublisher.publishEvent(event);
                 }
             }
         } catch (Exception e) {
@@ -155,134 +184,110 @@ public class LogMonitoringService {
         }
     }
 
-    private ConsoleMessage parseLogLine(String rawLine) {
-        if (rawLine == null || rawLine.trim().isEmpty()) {
-            return null;
-        }
+    private ConsoleMessage toConsoleMessage(LogLineParser.ParsedLine line) {
 
-        if (RCON_THREAD_PATTERN.matcher(rawLine).find() ||
-                RCON_CONNECTION_PATTERN.matcher(rawLine).find() ||
-                UUID_LOOKUP_PATTERN.matcher(rawLine).find()) {
-            return null;
-        }
-
-        LocalDateTime timestamp = extractTimestamp(rawLine);
-
-        Matcher errorMatcher = ERROR_PATTERN.matcher(rawLine);
-        if (errorMatcher.find()) {
-            return ConsoleMessage.builder()
-                    .type("error")
-                    .message(errorMatcher.group(1))
-                    .timestamp(timestamp)
-                    .source("server")
-                    .build();
-        }
-
-        Matcher warnMatcher = WARN_PATTERN.matcher(rawLine);
-        if (warnMatcher.find()) {
-            return ConsoleMessage.builder()
-                    .type("warning")
-                    .message(warnMatcher.group(1))
-                    .timestamp(timestamp)
-                    .source("server")
-                    .build();
-        }
-
-        Matcher infoMatcher = INFO_PATTERN.matcher(rawLine);
-        if (infoMatcher.find()) {
-            String message = infoMatcher.group(1);
-
-            if (PLAYER_JOIN_PATTERN.matcher(message).find()) {
-                return ConsoleMessage.builder()
-                        .type("player_join")
-                        .message("🟢 " + message)
-                        .timestamp(timestamp)
-                        .source("server")
-                        .build();
+        String type;
+        String message = line.message();
+        switch (line.kind()) {
+            case PLAYER_JOIN -> {
+                type = "player_join";
+                message = "🟢 " + message;
             }
-
-            if (PLAYER_LEAVE_PATTERN.matcher(message).find()) {
-                return ConsoleMessage.builder()
-                        .type("player_leave")
-                        .message("🔴 " + message)
-                        .timestamp(timestamp)
-                        .source("server")
-                        .build();
+            case PLAYER_LEAVE -> {
+                type = "player_leave";
+                message = "🔴 " + message;
             }
-
-            return ConsoleMessage.builder()
-                    .type("info")
-                    .message(message)
-                    .timestamp(LocalDateTime.now())
-                    .source("server")
-                    .build();
+            default -> type = switch (line.level()) {
+                case ERROR -> "error";
+                case WARN -> "warning";
+                case INFO -> "info";
+                case RAW -> "raw";
+            };
         }
 
         return ConsoleMessage.builder()
-                .type("raw")
-                .message(rawLine)
-                .timestamp(timestamp)
+                .type(type)
+                .message(message)
+                .timestamp(timestamp(line))
                 .source("server")
                 .build();
     }
 
     private void addToHistory(Long instanceId, ConsoleMessage message) {
-        ConcurrentLinkedQueue<ConsoleMessage> history = consoleHistories.get(instanceId);
-        if (history != null) {
-            history.offer(message);
-            while (history.size() > maxHistorySize) {
-                history.poll();
-            }
-        }
+        history(instanceId).append(message);
     }
 
-    private void loadRecentLogHistory(Long instanceId) {
-        ServerInstance instance = getInstance(instanceId);
-        Path logFile = Paths.get(instance.getInstancePath(), "logs", "latest.log");
-        try {
-            if (Files.exists(logFile)) {
-                List<String> lines = Files.readAllLines(logFile);
-                lines.stream()
-                        .skip(Math.max(0, lines.size() - 100))
-                        .forEach(line -> processLogLine(instanceId, line));
+    // Kept across monitoring restarts so sequence numbers handed to clients stay meaningful
+    private ConsoleHistoryBuffer history(Long instanceId) {
+        return consoleHistories.computeIfAbsent(instanceId, id -> new ConsoleHistoryBuffer(maxHistorySize, historyBytesPerLine));
+    }
+
+    // Reads only the tail up to the offset tailing starts from, so no line is lost or shown twice in between
+    private void loadRecentLogHistory(Long instanceId, Path logFile, long endOffset) {
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            long start = Math.max(0, endOffset - HISTORY_TAIL_BYTES);
+            ByteBuffer buffer = ByteBuffer.allocate((int) (endOffset - start));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    break;
+                }
             }
-            log.info("Loaded {} console messages from history for instance {}", consoleHistories.get(instanceId).size(), instanceId);
+
+            List<String> lines = Arrays.asList(new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).split("\r?\n"));
+            if (start > 0 && !lines.isEmpty()) {
+                lines = lines.subList(1, lines.size());
+            }
+            lines.stream()
+                    .skip(Math.max(0, lines.size() - HISTORY_LINES_ON_ATTACH))
+                    .forEach(line -> processLogLine(instanceId, line, false));
+            log.info("Loaded {} console messages from history for instance {}", history(instanceId).size(), instanceId);
         } catch (Exception e) {
             log.error("Error loading recent log history for instance {}", instanceId, e);
         }
     }
 
-    private LocalDateTime extractTimestamp(String logLine) {
-        try {
-            Matcher matcher = TIMESTAMP_PATTERN.matcher(logLine);
-            if (matcher.find()) {
-                int hour = Integer.parseInt(matcher.group(1));
-                int minute = Integer.parseInt(matcher.group(2));
-                int second = Integer.parseInt(matcher.group(3));
-
-                return LocalDateTime.now()
-                        .withHour(hour)
-                        .withMinute(minute)
-                        .withSecond(second)
-                        .withNano(0);
-            }
-        } catch (Exception e) {
-            log.debug("Error parsing timestamp from log line: {}", logLine);
+    // The log only has the time of day, so it is placed on today's date
+    private static LocalDateTime timestamp(LogLineParser.ParsedLine line) {
+        LocalDateTime now = LocalDateTime.now();
+        if (line.hour() < 0 || line.hour() > 23 || line.minute() > 59 || line.second() > 59) {
+            return now;
         }
-
-        return LocalDateTime.now();
+        return now.withHour(line.hour())
+                .withMinute(line.minute())
+                .withSecond(line.second())
+                .withNano(0);
     }
 
     public void clearHistory(Long instanceId) {
-        ConcurrentLinkedQueue<ConsoleMessage> history = consoleHistories.get(instanceId);
+        ConsoleHistoryBuffer history = consoleHistories.get(instanceId);
         if (history != null) {
             history.clear();
         }
         log.info("Console history cleared for instance {}", instanceId);
     }
 
-    public ConcurrentLinkedQueue<ConsoleMessage> getConsoleHistory(Long instanceId) {
-        return consoleHistories.getOrDefault(instanceId, new ConcurrentLinkedQueue<>());
+    public boolean isMonitoring(Long instanceId) {
+        return monitoringStates.getOrDefault(instanceId, false);
+    }
+
+    public Optional<Instant> getLastLogActivity(Long instanceId) {
+        return Optional.ofNullable(lastLogActivity.get(instanceId));
+    }
+
+    public List<ConsoleMessage> getConsoleHistory(Long instanceId) {
+        ConsoleHistoryBuffer history = consoleHistories.get(instanceId);
+        return history != null ? history.all() : List.of();
+    }
+
+    public List<ConsoleMessage> getRecentConsoleHistory(Long instanceId, int limit) {
+        ConsoleHistoryBuffer history = consoleHistories.get(instanceId);
+        return history != null ? history.last(limit) : List.of();
+    }
+
+    // What a reconnecting client missed, by the sequence of the last message it saw
+    public List<ConsoleMessage> getConsoleHistorySince(Long instanceId, long afterSequence, int limit) {
+        ConsoleHistoryBuffer history = consoleHistories.get(instanceId);
+        return history != null ? history.since(afterSequence, limit) : List.of();
     }
 
     private ServerInstance getInstance(Long instanceId) {
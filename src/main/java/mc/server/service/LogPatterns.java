@@ -38,7 +38,10 @@ public interface LogPatterns {
 
     Pattern LIST_PATTERN = Pattern.compile("There are (\\d+) of a max of (\\d+) players online:?\\s*(.*)");
     Pattern SEED_PATTERN = Pattern.compile("Seed: \\[(-?\\d+)\\]");
-    Pattern DEBUG_STOP_PATTERN = Pattern.compile("Stopped debug profiling after ([0-9.]+) seconds \\(([0-9.]+) ticks\\)");
+    // "after 5.00 seconds (100 ticks)" before 1.17, "after 5.00 second(s) and 100 tick(s)" since
+    Pattern DEBUG_STOP_PATTERN = Pattern.compile("Stopped (?:debug |tick )?profiling after ([0-9.]+) seconds?(?:\\(s\\))? (?:\\(|and )([0-9.]+) ticks?");
+    // Report path as named in the debug stop response, relative to the debug directory
+    Pattern DEBUG_REPORT_PATTERN = Pattern.compile("debug[/\\\\]([\\w./\\\\-]+\\.(?:txt|zip))");
 
     Pattern VERSION_PATTERN = Pattern.compile("(Paper|Spigot|CraftBukkit|Forge|Fabric|Vanilla) version ([\\d.]+)-");
     Pattern TPS_PATTERN = Pattern.compile("TPS from last 1m, 5m, 15m: \\*?(\\d+\\.\\d+),");
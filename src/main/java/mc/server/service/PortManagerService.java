@@ -22,6 +22,9 @@ public class PortManagerService {
     
     private static final int MIN_RCON_PORT = 25700;
     private static final int MAX_RCON_PORT = 25800;
+
+    private static final int MIN_JMX_PORT = 25900;
+    private static final int MAX_JMX_PORT = 26000;
     
     public int findAvailablePort() {
         return findAvailablePortInRange(MIN_PORT, MAX_PORT);
@@ -30,13 +33,18 @@ public class PortManagerService {
     public int findAvailableRconPort() {
         return findAvailablePortInRange(MIN_RCON_PORT, MAX_RCON_PORT);
     }
+
+    public int findAvailableJmxPort() {
+        return findAvailablePortInRange(MIN_JMX_PORT, MAX_JMX_PORT);
+    }
     
     private int findAvailablePortInRange(int minPort, int maxPort) {
         Set<Integer> usedPorts = new HashSet<>(serverInstanceRepository.findAllAllocatedPorts());
         Set<Integer> usedRconPorts = new HashSet<>(serverInstanceRepository.findAllAllocatedRconPorts());
+        Set<Integer> usedJmxPorts = new HashSet<>(serverInstanceRepository.findAllAllocatedJmxPorts());
         
         for (int port = minPort; port <= maxPort; port++) {
-            if (!usedPorts.contains(port) && !usedRconPorts.contains(port) && isPortAvailable(port)) {
+            if (!usedPorts.contains(port) && !usedRconPorts.contains(port) && !usedJmxPorts.contains(port) && isPortAvailable(port)) {
                 log.debug("Found available port: {}", port);
                 return port;
             }
@@ -5,8 +5,18 @@ import lombok.extern.slf4j.Slf4j;
 import mc.server.model.ServerInstance;
 import mc.server.repository.ServerInstanceRepository;
 import nl.vv32.rcon.Rcon;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
@@ -15,8 +25,17 @@ import java.util.function.Function;
 @Service
 @RequiredArgsConstructor
 public class RconService {
+    @Value("${minecraft.rcon.timeout-ms:10000}")
+    private int timeoutMillis;
+
     private final ServerInstanceRepository serverInstanceRepository;
 
+    public enum ProbeResult {
+        RESPONDED,
+        TIMED_OUT,
+        FAILED
+    }
+
     public CompletableFuture<String> executeCommand(Long instanceId, String command) {
         return CompletableFuture.supplyAsync(() -> {
             ServerInstance instance = getInstance(instanceId);
@@ -38,7 +57,7 @@ public class RconService {
     }
 
     private String executeWithRetry(ServerInstance instance, String command, int attemptsLeft) {
-        try (Rcon rcon = Rcon.open(instance.getIp(), instance.getRconPort())) {
+        try (Rcon rcon = open(instance, timeoutMillis)) {
             if (rcon.authenticate(instance.getRconPassword())) {
                 String response = rcon.sendCommand(command);
                 log.debug("RCON command '{}' executed successfully on instance {}. Response: {}", command, instance.getId(), response);
@@ -73,7 +92,7 @@ public class RconService {
             return false;
         }
 
-        try (Rcon rcon = Rcon.open(instance.getIp(), instance.getRconPort())) {
+        try (Rcon rcon = open(instance, timeoutMillis)) {
             return rcon.authenticate(instance.getRconPassword());
         } catch (Exception e) {
             log.debug("RCON connection test failed for instance {}: {}", instanceId, e.getMessage());
@@ -81,6 +100,43 @@ public class RconService {
         }
     }
 
+    // A hung server still accepts and authenticates RCON clients on its own thread, but never answers
+    // commands because they run on the main thread, so only a timed-out command counts as unresponsive
+    public ProbeResult probe(Long instanceId, String command, int probeTimeoutMillis) {
+        ServerInstance instance = getInstance(instanceId);
+        if (!isConfigured(instance)) {
+            return ProbeResult.FAILED;
+        }
+
+        try (Rcon rcon = open(instance, probeTimeoutMillis)) {
+            if (!rcon.authenticate(instance.getRconPassword())) {
+                return ProbeResult.FAILED;
+            }
+            rcon.sendCommand(command);
+            return ProbeResult.RESPONDED;
+        } catch (SocketTimeoutException e) {
+            log.debug("RCON probe '{}' timed out after {} ms on instance {}", command, probeTimeoutMillis, instanceId);
+            return ProbeResult.TIMED_OUT;
+        } catch (Exception e) {
+            log.debug("RCON probe '{}' failed on instance {}: {}", command, instanceId, e.getMessage());
+            return ProbeResult.FAILED;
+        }
+    }
+
+    private Rcon open(ServerInstance instance, int socketTimeoutMillis) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(instance.getIp(), instance.getRconPort()), socketTimeoutMillis);
+            socket.setSoTimeout(socketTimeoutMillis);
+            return Rcon.newBuilder()
+                    .withChannel(new SocketByteChannel(socket))
+                    .build();
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
     public <T> CompletableFuture<T> executeCommand(Long instanceId, String command, Function<String, T> responseParser) {
         return executeCommand(instanceId, command).thenApply(response -> {
             if (response == null) {
@@ -117,4 +173,37 @@ public class RconService {
         return serverInstanceRepository.findById(instanceId)
                 .orElseThrow(() -> new IllegalArgumentException("Invalid instanceId: " + instanceId));
     }
+
+    // Rcon.open() uses a SocketChannel, whose reads ignore SO_TIMEOUT; stream-backed channels honour it
+    private static final class SocketByteChannel implements ByteChannel {
+        private final Socket socket;
+        private final ReadableByteChannel in;
+        private final WritableByteChannel out;
+
+        private SocketByteChannel(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = Channels.newChannel(socket.getInputStream());
+            this.out = Channels.newChannel(socket.getOutputStream());
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return in.read(dst);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return out.write(src);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !socket.isClosed();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
 }
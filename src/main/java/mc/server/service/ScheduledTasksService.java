@@ -6,20 +6,15 @@ import mc.server.model.ConsoleMessage;
 import mc.server.model.ServerInstance;
 import mc.server.model.ServerStatus;
 import mc.server.repository.ServerInstanceRepository;
+import mc.server.service.backup.BackupService;
 import mc.server.service.server.MinecraftServerService;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -31,9 +26,9 @@ public class ScheduledTasksService {
     private final WebSocketService webSocketService;
     private final RconService rconService;
     private final ServerInstanceRepository serverInstanceRepository;
+    private final BackupService backupService;
 
     private final Map<Long, ServerStatus> lastServerStatuses = new ConcurrentHashMap<>();
-    private final Map<Long, AtomicBoolean> tpsMonitoringStates = new ConcurrentHashMap<>();
 
     @Scheduled(fixedRate = 15000)
     public void broadcastServerStatusUpdates() {
@@ -95,50 +90,6 @@ public class ScheduledTasksService {
         }
     }
 
-    @Scheduled(fixedRate = 30000)
-    public void monitorTPS() {
-        for (ServerInstance instance : serverInstanceRepository.findAll()) {
-            try {
-                if (minecraftServerService.isServerRunning(instance.getId()) &&
-                        rconService.isConfigured(instance.getId()) &&
-                        !tpsMonitoringStates.getOrDefault(instance.getId(), new AtomicBoolean(false)).get()) {
-
-                    tpsMonitoringStates.computeIfAbsent(instance.getId(), k -> new AtomicBoolean(false)).set(true);
-
-                    rconService.executeCommand(instance.getId(), "debug start")
-                            .thenCompose(startResponse -> {
-                                if (startResponse != null && startResponse.contains("Started debug profiling")) {
-                                    try {
-                                        Thread.sleep(3000);
-                                    } catch (InterruptedException e) {
-                                        Thread.currentThread().interrupt();
-                                    }
-                                    return rconService.executeCommand(instance.getId(), "debug stop");
-                                }
-                                return java.util.concurrent.CompletableFuture.completedFuture(null);
-                            })
-                            .thenAccept(stopResponse -> {
-                                if (stopResponse != null) {
-                                    log.debug("TPS monitoring completed for instance {} via RCON", instance.getId());
-                                }
-                            })
-                            .exceptionally(throwable -> {
-                                log.debug("TPS monitoring failed for instance {}: {}", instance.getId(), throwable.getMessage());
-                                return null;
-                            })
-                            .whenComplete((result, throwable) -> {
-                                tpsMonitoringStates.get(instance.getId()).set(false);
-                            });
-                }
-            } catch (Exception e) {
-                log.debug("Error in TPS monitoring for instance {}", instance.getId(), e);
-                if (tpsMonitoringStates.get(instance.getId()) != null) {
-                    tpsMonitoringStates.get(instance.getId()).set(false);
-                }
-            }
-        }
-    }
-
     @Scheduled(fixedRate = 30000)
     public void monitorResourceUsage() {
         try {
@@ -228,51 +179,6 @@ public class ScheduledTasksService {
         }
     }
 
-    @Scheduled(cron = "0 0 3 * * ?")
-    public void scheduledBackup() {
-        for (ServerInstance instance : serverInstanceRepository.findAll()) {
-            try {
-                if (minecraftServerService.isServerRunning(instance.getId())) {
-                    log.info("Starting scheduled world backup for instance {}...", instance.getId());
-
-                    if (rconService.isConfigured(instance.getId())) {
-                        minecraftServerService.broadcastMessage(instance.getId(), "Starting scheduled world backup...");
-
-                        minecraftServerService.saveAll(instance.getId())
-                                .thenCompose(saved -> {
-                                    if (saved) {
-                                        return minecraftServerService.backupWorld(instance.getId());
-                                    }
-                                    return java.util.concurrent.CompletableFuture.completedFuture(false);
-                                })
-                                .thenAccept(success -> {
-                                    String message = success ?
-                                            "Scheduled world backup completed successfully" :
-                                            "Scheduled world backup failed";
-
-                                    log.info(message);
-
-                                    if (webSocketService.hasActiveSessions()) {
-                                        webSocketService.broadcastConsoleMessage(instance.getId(),
-                                                ConsoleMessage.info("[SYSTEM] " + message)
-                                        );
-                                    }
-
-                                    if (rconService.isConfigured(instance.getId())) {
-                                        minecraftServerService.broadcastMessage(instance.getId(),
-                                                success ? "Backup completed!" : "Backup failed - contact admin");
-                                    }
-                                });
-                    }
-                } else {
-                    log.info("Skipping scheduled backup for instance {} - server is offline", instance.getId());
-                }
-            } catch (Exception e) {
-                log.error("Error during scheduled backup for instance {}", instance.getId(), e);
-            }
-        }
-    }
-
     private void handleServerCrash(Long instanceId) {
         log.warn("Minecraft server instance {} appears to have stopped unexpectedly!", instanceId);
 
@@ -329,56 +235,13 @@ public class ScheduledTasksService {
 
     private void cleanOldBackups(ServerInstance instance) {
         try {
-            Path backupDir = Paths.get(instance.getInstancePath(), "backups");
-            if (!Files.exists(backupDir)) {
-                return;
-            }
-
-            int retentionDays = 7;
-            LocalDateTime cutoffDate = LocalDateTime.now().minusDays(retentionDays);
-            log.info("Cleaning backup files for instance {} older than {} days (before {})", instance.getId(), retentionDays, cutoffDate);
-
-            int deletedCount = 0;
-            long totalSize = 0;
-
-            try (Stream<Path> backupFiles = Files.list(backupDir)) {
-                List<Path> filesToDelete = backupFiles
-                        .filter(Files::isRegularFile)
-                        .filter(path -> {
-                            String fileName = path.getFileName().toString();
-                            return fileName.startsWith("world_backup_") &&
-                                    (fileName.endsWith(".tar.gz") || fileName.endsWith(".zip"));
-                        })
-                        .filter(path -> {
-                            try {
-                                return Files.getLastModifiedTime(path).toInstant().isBefore(cutoffDate.atZone(java.time.ZoneId.systemDefault()).toInstant());
-                            } catch (IOException e) {
-                                log.debug("Error getting file modification time for {}: {}", path, e.getMessage());
-                                return false;
-                            }
-                        }).toList();
-
-                for (Path fileToDelete : filesToDelete) {
-                    try {
-                        long fileSize = Files.size(fileToDelete);
-                        Files.delete(fileToDelete);
-                        deletedCount++;
-                        totalSize += fileSize;
-                        log.debug("Deleted old backup file for instance {}: {} (size: {} bytes)", instance.getId(), fileToDelete.getFileName(), fileSize);
-                    } catch (IOException e) {
-                        log.warn("Failed to delete backup file {} for instance {}: {}", fileToDelete, instance.getId(), e.getMessage());
-                    }
-                }
-            }
-
-            if (deletedCount > 0) {
-                double sizeMB = totalSize / (1024.0 * 1024.0);
-                log.info("Backup cleanup for instance {} completed: deleted {} old backup files, freed {} MB",
-                        instance.getId(), deletedCount, String.format("%.2f", sizeMB));
+            BackupService.CleanupResult result = backupService.cleanOldBackups(instance);
 
+            if (result.freedBytes() > 0 || result.deletedBackups() > 0) {
+                double sizeMB = result.freedBytes() / (1024.0 * 1024.0);
                 if (webSocketService.hasActiveSessions()) {
-                    String message = String.format("[SYSTEM] Backup cleanup: deleted %d old files, freed %.2f MB",
-                            deletedCount, sizeMB);
+                    String message = String.format("[SYSTEM] Backup cleanup: deleted %d old backups, freed %.2f MB",
+                            result.deletedBackups(), sizeMB);
                     webSocketService.broadcastConsoleMessage(instance.getId(),
                             ConsoleMessage.builder()
                                     .type("info")
@@ -388,8 +251,6 @@ public class ScheduledTasksService {
                                     .build()
                     );
                 }
-            } else {
-                log.info("Backup cleanup for instance {} completed: no old backup files found to delete", instance.getId());
             }
 
         } catch (IOException e) {
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import mc.server.dto.WebSocketCommandMessage;
 import mc.server.dto.WebSocketMessage;
+import mc.server.dto.WebSocketRequestHistoryMessage;
 import mc.server.dto.WebSocketResponse;
 import mc.server.model.ConsoleMessage;
 import mc.server.service.server.MinecraftServerService;
@@ -47,7 +48,7 @@ public class WebSocketService {
         sendMessageToSession(session, welcomeMessage);
 
         if (instanceId != -1L) {
-            sendRecentConsoleHistory(instanceId, session);
+            sendConsoleHistory(instanceId, session, null);
         }
     }
 
@@ -72,7 +73,7 @@ public class WebSocketService {
                     sendServerStatus(instanceId, session);
                     break;
                 case "request_history":
-                    sendRecentConsoleHistory(instanceId, session);
+                    sendConsoleHistory(instanceId, session, ((WebSocketRequestHistoryMessage) message).getSince());
                     break;
                 default:
                     log.warn("Unknown message type for instance {}: {}", instanceId, message.getType());
@@ -90,6 +91,10 @@ public class WebSocketService {
         broadcastMessage(instanceId, "status", status);
     }
 
+    public void broadcastSyncProgress(Long instanceId, Object progress) {
+        broadcastMessage(instanceId, "sync", progress);
+    }
+
     private void broadcastMessage(Long instanceId, String type, Object data) {
         WebSocketResponse<Object> response = WebSocketResponse.create(type, data);
         String json;
@@ -143,13 +148,13 @@ public class WebSocketService {
         }
     }
 
-    private void sendRecentConsoleHistory(Long instanceId, WebSocketSession session) {
+    // A client that sends the last sequence it saw gets only what it missed, otherwise the last 50 messages
+    private void sendConsoleHistory(Long instanceId, WebSocketSession session, Long since) {
         try {
             LogMonitoringService logService = applicationContext.getBean(LogMonitoringService.class);
-            List<ConsoleMessage> history = logService.getConsoleHistory(instanceId)
-                    .stream()
-                    .skip(Math.max(0, logService.getConsoleHistory(instanceId).size() - 50))
-                    .toList();
+            List<ConsoleMessage> history = since != null
+                    ? logService.getConsoleHistorySince(instanceId, since, Integer.MAX_VALUE)
+                    : logService.getRecentConsoleHistory(instanceId, 50);
 
             WebSocketResponse<List<ConsoleMessage>> response = WebSocketResponse.create("history", history);
 
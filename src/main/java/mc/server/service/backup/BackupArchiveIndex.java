@@ -0,0 +1,10 @@
+package mc.server.service.backup;
+
+import java.util.List;
+
+// Sidecar written next to each archive so single members can be extracted by seeking to their gzip block
+public record BackupArchiveIndex(
+        int blockSize,
+        List<ParallelGzipOutputStream.Member> members,
+        List<TarWriter.Entry> entries
+) {}
@@ -0,0 +1,168 @@
+package mc.server.service.backup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.BackupRecord;
+import mc.server.model.RetentionPolicy;
+import mc.server.model.ServerInstance;
+import mc.server.repository.BackupRecordRepository;
+import mc.server.repository.ServerInstanceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.WeekFields;
+import java.util.*;
+import java.util.function.Function;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BackupCatalogService {
+
+    @Value("${minecraft.backup.retention.hourly:24}")
+    private int defaultKeepHourly;
+
+    @Value("${minecraft.backup.retention.daily:7}")
+    private int defaultKeepDaily;
+
+    @Value("${minecraft.backup.retention.weekly:4}")
+    private int defaultKeepWeekly;
+
+    @Value("${minecraft.backup.retention.monthly:6}")
+    private int defaultKeepMonthly;
+
+    private final BackupRecordRepository backupRecordRepository;
+    private final ServerInstanceRepository serverInstanceRepository;
+
+    public BackupRecord record(BackupRecord record) {
+        return backupRecordRepository.save(record);
+    }
+
+    public List<BackupRecord> listBackups(Long instanceId, int page, int size) {
+        return backupRecordRepository.findByInstanceIdOrderByCreatedAtDesc(instanceId,
+                PageRequest.of(Math.max(0, page), Math.min(Math.max(1, size), 500)));
+    }
+
+    public Optional<BackupRecord> findBackup(Long instanceId, String backupId) {
+        return backupRecordRepository.findByInstanceIdAndBackupId(instanceId, backupId);
+    }
+
+    public Optional<BackupRecord> findLatest(Long instanceId) {
+        return backupRecordRepository.findFirstByInstanceIdOrderByCreatedAtDesc(instanceId);
+    }
+
+    public boolean hasBackups(Long instanceId) {
+        return backupRecordRepository.countByInstanceId(instanceId) > 0;
+    }
+
+    public void remove(BackupRecord record) {
+        backupRecordRepository.delete(record);
+    }
+
+    // Empty when the backup was expired while it was being verified
+    public Optional<BackupRecord> recordVerification(Long instanceId, String backupId, boolean passed, String detail) {
+        return findBackup(instanceId, backupId).map(record -> {
+            record.setVerifiedAt(LocalDateTime.now());
+            record.setVerificationStatus(passed ? "passed" : "failed");
+            record.setVerificationDetail(detail != null && detail.length() > 2000 ? detail.substring(0, 1997) + "..." : detail);
+            return backupRecordRepository.save(record);
+        });
+    }
+
+    public void recordOffload(Long instanceId, String backupId, String target, String status) {
+        findBackup(instanceId, backupId).ifPresent(record -> {
+            record.setOffloadTarget(target);
+            record.setOffloadStatus(status);
+            record.setOffloadedAt("completed".equals(status) ? LocalDateTime.now() : null);
+            backupRecordRepository.save(record);
+        });
+    }
+
+    // Never-verified backups first, newest first, then whatever was verified longest ago
+    public List<BackupRecord> selectForVerification(int limit, LocalDateTime reverifyBefore) {
+        List<BackupRecord> selected = new ArrayList<>(
+                backupRecordRepository.findByVerifiedAtIsNullOrderByCreatedAtDesc(PageRequest.of(0, limit)));
+        if (selected.size() < limit) {
+            selected.addAll(backupRecordRepository.findByVerifiedAtBeforeOrderByVerifiedAtAsc(
+                    reverifyBefore, PageRequest.of(0, limit - selected.size())));
+        }
+        return selected;
+    }
+
+    public RetentionPolicy getRetentionPolicy(ServerInstance instance) {
+        RetentionPolicy configured = instance.getRetentionPolicy();
+        return RetentionPolicy.builder()
+                .keepHourly(valueOrDefault(configured == null ? null : configured.getKeepHourly(), defaultKeepHourly))
+                .keepDaily(valueOrDefault(configured == null ? null : configured.getKeepDaily(), defaultKeepDaily))
+                .keepWeekly(valueOrDefault(configured == null ? null : configured.getKeepWeekly(), defaultKeepWeekly))
+                .keepMonthly(valueOrDefault(configured == null ? null : configured.getKeepMonthly(), defaultKeepMonthly))
+                .build();
+    }
+
+    public RetentionPolicy updateRetentionPolicy(Long instanceId, RetentionPolicy policy) {
+        ServerInstance instance = serverInstanceRepository.findById(instanceId)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid instanceId: " + instanceId));
+        for (Integer value : Arrays.asList(policy.getKeepHourly(), policy.getKeepDaily(), policy.getKeepWeekly(), policy.getKeepMonthly())) {
+            if (value != null && value < 0) {
+                throw new IllegalArgumentException("Retention counts cannot be negative");
+            }
+        }
+        instance.setRetentionPolicy(policy);
+        serverInstanceRepository.save(instance);
+        return getRetentionPolicy(instance);
+    }
+
+    // Decided purely from the catalog: each bucket keeps its newest backup, plus everything a kept delta depends on
+    public List<BackupRecord> selectExpired(ServerInstance instance) {
+        List<BackupRecord> records = backupRecordRepository.findByInstanceIdOrderByCreatedAtDesc(instance.getId());
+        if (records.isEmpty()) {
+            return List.of();
+        }
+
+        RetentionPolicy policy = getRetentionPolicy(instance);
+        Set<Long> keep = new HashSet<>();
+        keep.add(records.get(0).getId());
+        keepNewestPerBucket(records, policy.getKeepHourly(), createdAt -> createdAt.truncatedTo(ChronoUnit.HOURS), keep);
+        keepNewestPerBucket(records, policy.getKeepDaily(), LocalDateTime::toLocalDate, keep);
+        keepNewestPerBucket(records, policy.getKeepWeekly(),
+                createdAt -> createdAt.toLocalDate().with(WeekFields.ISO.dayOfWeek(), 1), keep);
+        keepNewestPerBucket(records, policy.getKeepMonthly(), YearMonth::from, keep);
+
+        Map<String, BackupRecord> byBackupId = new HashMap<>();
+        records.forEach(record -> byBackupId.put(record.getBackupId(), record));
+        for (BackupRecord record : records) {
+            if (!keep.contains(record.getId()) || !"region-delta".equals(record.getType())) {
+                continue;
+            }
+            BackupRecord parent = byBackupId.get(record.getParentBackupId());
+            while (parent != null && keep.add(parent.getId())) {
+                parent = byBackupId.get(parent.getParentBackupId());
+            }
+        }
+
+        return records.stream()
+                .filter(record -> !keep.contains(record.getId()))
+                .toList();
+    }
+
+    private static void keepNewestPerBucket(List<BackupRecord> newestFirst, int buckets,
+                                            Function<LocalDateTime, Object> bucketOf, Set<Long> keep) {
+        Set<Object> seen = new HashSet<>();
+        for (BackupRecord record : newestFirst) {
+            if (seen.size() >= buckets) {
+                return;
+            }
+            if (seen.add(bucketOf.apply(record.getCreatedAt()))) {
+                keep.add(record.getId());
+            }
+        }
+    }
+
+    private static int valueOrDefault(Integer value, int defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+}
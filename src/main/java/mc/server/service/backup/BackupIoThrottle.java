@@ -0,0 +1,117 @@
+package mc.server.service.backup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.service.server.MinecraftServerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Paces backup I/O per instance and backs off while that instance's TPS is degraded
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BackupIoThrottle {
+
+    @Value("${minecraft.backup.io.max-bytes-per-second:104857600}")
+    private long maxBytesPerSecond;
+
+    @Value("${minecraft.backup.io.min-bytes-per-second:8388608}")
+    private long minBytesPerSecond;
+
+    @Value("${minecraft.backup.io.tps-healthy:19.5}")
+    private double healthyTps;
+
+    @Value("${minecraft.backup.io.tps-critical:15.0}")
+    private double criticalTps;
+
+    @Value("${minecraft.backup.io.ionice:true}")
+    private boolean ioniceEnabled;
+
+    private final MinecraftServerService minecraftServerService;
+
+    private final Map<Long, List<IoRateLimiter>> activeLimiters = new ConcurrentHashMap<>();
+    private volatile Boolean ioniceAvailable;
+
+    public IoRateLimiter open(Long instanceId) {
+        IoRateLimiter limiter = new IoRateLimiter(budgetFor(instanceId));
+        activeLimiters.computeIfAbsent(instanceId, id -> new CopyOnWriteArrayList<>()).add(limiter);
+        return limiter;
+    }
+
+    public void close(Long instanceId, IoRateLimiter limiter) {
+        activeLimiters.computeIfPresent(instanceId, (id, limiters) -> {
+            limiters.remove(limiter);
+            return limiters.isEmpty() ? null : limiters;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${minecraft.backup.io.adjust-interval-ms:5000}")
+    public void adjustBudgets() {
+        activeLimiters.forEach((instanceId, limiters) -> {
+            // The cached TPS is only refreshed while someone watches the dashboard, so poll it during backups
+            minecraftServerService.refreshTps(instanceId);
+            long budget = budgetFor(instanceId);
+            for (IoRateLimiter limiter : limiters) {
+                if (limiter.getRate() != budget) {
+                    log.debug("Backup I/O budget for instance {} is now {} MB/s", instanceId, budget / (1024 * 1024));
+                    limiter.setRate(budget);
+                }
+            }
+        });
+    }
+
+    long budgetFor(Long instanceId) {
+        if (maxBytesPerSecond <= 0) {
+            return 0;
+        }
+        if (!minecraftServerService.isServerRunning(instanceId)) {
+            return maxBytesPerSecond;
+        }
+        double tps = minecraftServerService.getLastKnownTps(instanceId).orElse(20.0);
+        if (tps >= healthyTps) {
+            return maxBytesPerSecond;
+        }
+        if (tps <= criticalTps) {
+            return minBytesPerSecond;
+        }
+        double fraction = (tps - criticalTps) / (healthyTps - criticalTps);
+        return minBytesPerSecond + (long) ((maxBytesPerSecond - minBytesPerSecond) * fraction);
+    }
+
+    // Best-effort class at the lowest level so external copies yield to the server's own disk I/O
+    public List<String> withIoPriority(List<String> command) {
+        if (!ioniceEnabled || !isIoniceAvailable()) {
+            return command;
+        }
+        List<String> prefixed = new ArrayList<>(List.of("ionice", "-c2", "-n7"));
+        prefixed.addAll(command);
+        return prefixed;
+    }
+
+    private boolean isIoniceAvailable() {
+        if (ioniceAvailable == null) {
+            String path = System.getenv().getOrDefault("PATH", "");
+            boolean found = false;
+            for (String dir : path.split(File.pathSeparator)) {
+                Path candidate = Paths.get(dir, "ionice");
+                if (!dir.isEmpty() && Files.isExecutable(candidate)) {
+                    found = true;
+                    break;
+                }
+            }
+            ioniceAvailable = found;
+        }
+        return ioniceAvailable;
+    }
+}
@@ -0,0 +1,16 @@
+package mc.server.service.backup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record BackupManifest(
+        String id,
+        Long instanceId,
+        LocalDateTime createdAt,
+        List<String> worldDirs,
+        long totalBytes,
+        List<FileEntry> files
+) {
+    // sha256 is null for files backed up before per-file checksums were recorded
+    public record FileEntry(String path, long size, long lastModified, List<String> chunks, String sha256) {}
+}
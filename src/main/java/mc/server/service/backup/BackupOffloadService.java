@@ -0,0 +1,304 @@
+package mc.server.service.backup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.BackupRecord;
+import mc.server.model.ServerInstance;
+import mc.server.repository.ServerInstanceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Last stage of the backup pipeline: copies each finished backup to the configured off-disk target.
+// Jobs run one at a time in the background so the next backup does not wait for the upload
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BackupOffloadService {
+    private static final String JOB_DIR = "offload";
+    // Content-addressed chunk files are shared by incremental backups: uploaded once per target, never deleted with a backup
+    static final String SHARED_PREFIX = "store/chunks/";
+    private static final long CHECKPOINT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    @Value("${minecraft.backup.offload.target:none}")
+    private String targetName;
+
+    @Value("${minecraft.backup.offload.prefix:}")
+    private String keyPrefix;
+
+    @Value("${minecraft.backup.offload.bytes-per-second:0}")
+    private long bytesPerSecond;
+
+    @Value("${minecraft.backup.offload.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${minecraft.backup.offload.delete-expired:true}")
+    private boolean deleteExpired;
+
+    private final List<BackupTarget> targets;
+    private final BackupCatalogService backupCatalogService;
+    private final ServerInstanceRepository serverInstanceRepository;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, Set<String>> uploadedShared = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "backup-offload");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public boolean isEnabled() {
+        return activeTarget().isPresent();
+    }
+
+    // files are relative to the instance's backups directory
+    public void submit(ServerInstance instance, BackupRecord record, List<String> files) {
+        Optional<BackupTarget> target = activeTarget();
+        if (target.isEmpty() || files.isEmpty()) {
+            return;
+        }
+        try {
+            Path backupsDir = backupsDir(instance);
+            Set<String> alreadyUploaded = uploadedShared(instance, target.get().getName());
+            OffloadJob job = new OffloadJob();
+            job.setInstanceId(instance.getId());
+            job.setBackupId(record.getBackupId());
+            job.setTarget(target.get().getName());
+            job.setStatus("pending");
+            for (String file : files) {
+                if (isShared(file) && alreadyUploaded.contains(file)) {
+                    continue;
+                }
+                OffloadJob.FileState state = new OffloadJob.FileState();
+                state.setPath(file);
+                state.setKey(keyPrefix + instance.getId() + "/" + file);
+                state.setSize(Files.size(backupsDir.resolve(file)));
+                job.getFiles().add(state);
+            }
+            writeJob(instance, job);
+            backupCatalogService.recordOffload(instance.getId(), record.getBackupId(), job.getTarget(), job.getStatus());
+            executor.execute(() -> run(instance, job));
+        } catch (IOException e) {
+            log.error("Could not queue offload of backup {} of instance {}", record.getBackupId(), instance.getId(), e);
+        }
+    }
+
+    private void run(ServerInstance instance, OffloadJob job) {
+        Optional<BackupTarget> target = targets.stream().filter(candidate -> candidate.getName().equals(job.getTarget())).findFirst();
+        if (target.isEmpty() || !target.get().isConfigured()) {
+            log.warn("Offload target {} of backup {} is no longer configured, leaving it queued", job.getTarget(), job.getBackupId());
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        IoRateLimiter limiter = new IoRateLimiter(bytesPerSecond);
+        Path backupsDir = backupsDir(instance);
+        try {
+            job.setStatus("uploading");
+            job.setAttempts(job.getAttempts() + 1);
+            checkpoint(instance, job);
+            Set<String> alreadyUploaded = uploadedShared(instance, job.getTarget());
+            long lastCheckpointNanos = System.nanoTime();
+            for (OffloadJob.FileState state : job.getFiles()) {
+                if (state.isUploaded()) {
+                    continue;
+                }
+                if (isShared(state.getPath()) && alreadyUploaded.contains(state.getPath())) {
+                    // An earlier backup's job got there first
+                    state.setUploaded(true);
+                    continue;
+                }
+                Path file = backupsDir.resolve(state.getPath());
+                if (!Files.isRegularFile(file)) {
+                    throw new IOException("Backup file " + state.getPath() + " disappeared before it was offloaded");
+                }
+                target.get().upload(file, state, limiter, () -> checkpoint(instance, job));
+                state.setUploaded(true);
+                state.setUploadId(null);
+                state.getParts().clear();
+                if (isShared(state.getPath())) {
+                    markUploaded(instance, job.getTarget(), state.getPath());
+                }
+                // A first incremental backup has one file per chunk, rewriting the job after each of them would be quadratic.
+                // Anything uploaded since the last checkpoint is simply uploaded again after a crash
+                if (System.nanoTime() - lastCheckpointNanos >= CHECKPOINT_INTERVAL_NANOS) {
+                    checkpoint(instance, job);
+                    lastCheckpointNanos = System.nanoTime();
+                }
+            }
+
+            job.setStatus("completed");
+            checkpoint(instance, job);
+            backupCatalogService.recordOffload(instance.getId(), job.getBackupId(), job.getTarget(), job.getStatus());
+            double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1_000_000_000.0;
+            log.info("Offloaded backup {} of instance {} to {}: {} MB in {} s ({} MB/s)",
+                    job.getBackupId(), instance.getId(), job.getTarget(),
+                    String.format("%.2f", limiter.getTotalBytes() / (1024.0 * 1024.0)),
+                    String.format("%.1f", seconds),
+                    String.format("%.1f", limiter.getTotalBytes() / (1024.0 * 1024.0) / seconds));
+        } catch (Exception e) {
+            boolean retry = job.getAttempts() < maxAttempts && !Thread.currentThread().isInterrupted();
+            job.setStatus(retry ? "pending" : "failed");
+            checkpoint(instance, job);
+            backupCatalogService.recordOffload(instance.getId(), job.getBackupId(), job.getTarget(), job.getStatus());
+            if (retry) {
+                long delayMinutes = 1L << Math.min(job.getAttempts(), 6);
+                log.warn("Offload of backup {} of instance {} failed (attempt {}), retrying in {} min: {}",
+                        job.getBackupId(), instance.getId(), job.getAttempts(), delayMinutes, e.getMessage());
+                executor.schedule(() -> run(instance, job), delayMinutes, TimeUnit.MINUTES);
+            } else {
+                log.error("Offload of backup {} of instance {} failed after {} attempts",
+                        job.getBackupId(), instance.getId(), job.getAttempts(), e);
+            }
+        }
+    }
+
+    // Called when retention expires a backup, so the remote copy does not outlive the local one
+    public void deleteRemote(ServerInstance instance, BackupRecord record) {
+        Path jobPath = jobPath(instance, record.getBackupId());
+        if (!Files.exists(jobPath)) {
+            return;
+        }
+        try {
+            OffloadJob job = objectMapper.readValue(jobPath.toFile(), OffloadJob.class);
+            Optional<BackupTarget> target = targets.stream().filter(candidate -> candidate.getName().equals(job.getTarget())).findFirst();
+            if (deleteExpired && target.isPresent() && target.get().isConfigured()) {
+                for (OffloadJob.FileState state : job.getFiles()) {
+                    if (!isShared(state.getPath())) {
+                        target.get().delete(state);
+                    }
+                }
+                log.debug("Deleted offloaded copy of backup {} of instance {} from {}", record.getBackupId(), instance.getId(), job.getTarget());
+            }
+            Files.deleteIfExists(jobPath);
+        } catch (IOException e) {
+            log.warn("Could not delete offloaded copy of backup {} of instance {}: {}", record.getBackupId(), instance.getId(), e.getMessage());
+        }
+    }
+
+    // Uploads interrupted by a panel restart pick up from their last checkpointed part
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingJobs() {
+        for (ServerInstance instance : serverInstanceRepository.findAll()) {
+            if (instance.getInstancePath() == null) {
+                continue;
+            }
+            Path jobDir = backupsDir(instance).resolve(JOB_DIR);
+            if (!Files.isDirectory(jobDir)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.list(jobDir)) {
+                for (Path jobPath : files.filter(path -> path.getFileName().toString().endsWith(".json")).toList()) {
+                    OffloadJob job = objectMapper.readValue(jobPath.toFile(), OffloadJob.class);
+                    if ("pending".equals(job.getStatus()) || "uploading".equals(job.getStatus())) {
+                        log.info("Resuming offload of backup {} of instance {} to {}", job.getBackupId(), instance.getId(), job.getTarget());
+                        executor.execute(() -> run(instance, job));
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Error resuming backup offloads of instance {}", instance.getId(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Optional<BackupTarget> activeTarget() {
+        if (targetName == null || targetName.isBlank() || "none".equalsIgnoreCase(targetName)) {
+            return Optional.empty();
+        }
+        Optional<BackupTarget> target = targets.stream().filter(candidate -> candidate.getName().equalsIgnoreCase(targetName)).findFirst();
+        if (target.isEmpty() || !target.get().isConfigured()) {
+            log.warn("Backup offload target {} is not available or not configured", targetName);
+            return Optional.empty();
+        }
+        return target;
+    }
+
+    static boolean isShared(String file) {
+        return file.replace('\\', '/').startsWith(SHARED_PREFIX);
+    }
+
+    // Ledger of shared files already on the target, one path per line, so later backups only send the chunks they added
+    private Set<String> uploadedShared(ServerInstance instance, String target) throws IOException {
+        Set<String> uploaded = uploadedShared.get(ledgerKey(instance, target));
+        if (uploaded != null) {
+            return uploaded;
+        }
+        Path ledger = ledgerPath(instance, target);
+        Set<String> loaded = ConcurrentHashMap.newKeySet();
+        if (Files.exists(ledger)) {
+            loaded.addAll(Files.readAllLines(ledger));
+        }
+        Set<String> existing = uploadedShared.putIfAbsent(ledgerKey(instance, target), loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private void markUploaded(ServerInstance instance, String target, String file) throws IOException {
+        Set<String> uploaded = uploadedShared(instance, target);
+        synchronized (uploaded) {
+            if (uploaded.add(file)) {
+                Path ledger = ledgerPath(instance, target);
+                Files.createDirectories(ledger.getParent());
+                Files.writeString(ledger, file + "\n", StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        }
+    }
+
+    private static String ledgerKey(ServerInstance instance, String target) {
+        return instance.getId() + ":" + target;
+    }
+
+    private Path ledgerPath(ServerInstance instance, String target) {
+        return backupsDir(instance).resolve(JOB_DIR).resolve("shared-" + target + ".txt");
+    }
+
+    private void checkpoint(ServerInstance instance, OffloadJob job) {
+        try {
+            synchronized (job) {
+                writeJob(instance, job);
+            }
+        } catch (IOException e) {
+            log.warn("Could not save offload progress of backup {}: {}", job.getBackupId(), e.getMessage());
+        }
+    }
+
+    private void writeJob(ServerInstance instance, OffloadJob job) throws IOException {
+        Path jobPath = jobPath(instance, job.getBackupId());
+        Files.createDirectories(jobPath.getParent());
+        Path tempPath = jobPath.resolveSibling(jobPath.getFileName() + ".tmp");
+        objectMapper.writeValue(tempPath.toFile(), job);
+        Files.move(tempPath, jobPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path jobPath(ServerInstance instance, String backupId) {
+        return backupsDir(instance).resolve(JOB_DIR).resolve(backupId + ".json");
+    }
+
+    private Path backupsDir(ServerInstance instance) {
+        return Paths.get(instance.getInstancePath(), "backups");
+    }
+}
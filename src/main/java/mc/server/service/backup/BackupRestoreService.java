@@ -0,0 +1,159 @@
+package mc.server.service.backup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.ServerInstance;
+import mc.server.service.server.MinecraftServerService;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BackupRestoreService {
+    private final MinecraftServerService minecraftServerService;
+    private final BackupService backupService;
+    private final RegionDeltaBackupEngine regionDeltaBackupEngine;
+    private final BackupIoThrottle backupIoThrottle;
+
+    public record RestoreResult(
+            String backupId,
+            String backupType,
+            String selector,
+            int files,
+            long bytes,
+            long bytesToRead,
+            String target,
+            boolean dryRun,
+            long durationMillis
+    ) {}
+
+    // selector is a path inside the backup: a dimension ("world_nether"), a region file or a single playerdata file
+    public RestoreResult restore(Long instanceId, String backupId, String selector, boolean dryRun, boolean inPlace) throws IOException {
+        long startNanos = System.nanoTime();
+        ServerInstance instance = minecraftServerService.getInstance(instanceId);
+        Predicate<String> matcher = selectorMatcher(selector);
+        Path instanceRoot = Paths.get(instance.getInstancePath());
+        Path targetRoot = inPlace ? instanceRoot : instanceRoot.resolve("restores").resolve(backupId);
+
+        if (!dryRun && inPlace && minecraftServerService.isServerRunning(instanceId)) {
+            // A running server keeps region files and player data cached and writes them back over the restored
+            // files, pausing saves does not change that. Restore next to the world instead, or stop the server first
+            throw new IllegalStateException("Stop the server before restoring in place, or restore into restores/" + backupId);
+        }
+
+        RestoreResult result;
+        // Restores into restores/ run next to a live server, so they share its disk budget like backups do
+        IoRateLimiter ioLimiter = backupIoThrottle.open(instanceId);
+        try {
+            if (backupId.startsWith("world_backup_")) {
+                result = restoreFromArchive(instance, backupId, selector, matcher, targetRoot, dryRun, ioLimiter);
+            } else if (backupId.startsWith("backup_")) {
+                result = restoreFromManifest(instance, backupId, selector, matcher, targetRoot, dryRun, ioLimiter);
+            } else if (backupId.startsWith("region_")) {
+                RegionDeltaBackupEngine.RestoreEstimate estimate = regionDeltaBackupEngine.estimate(instance, backupId, matcher);
+                if (!dryRun && estimate.files() > 0) {
+                    regionDeltaBackupEngine.restore(instance, backupId, matcher, targetRoot, ioLimiter);
+                }
+                result = new RestoreResult(backupId, "region-delta", selector, estimate.files(), estimate.bytes(),
+                        estimate.bytes(), targetRoot.toString(), dryRun, 0);
+            } else {
+                throw new IllegalArgumentException("Backup not found: " + backupId);
+            }
+        } finally {
+            backupIoThrottle.close(instanceId, ioLimiter);
+        }
+
+        if (result.files() == 0) {
+            throw new IllegalArgumentException("Nothing in backup " + backupId + " matches " + selector);
+        }
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (!dryRun) {
+            log.info("Restored {} ({} files, {} MB) from backup {} of instance {} into {} in {} ms",
+                    selector, result.files(), String.format("%.2f", result.bytes() / (1024.0 * 1024.0)),
+                    backupId, instanceId, targetRoot, durationMillis);
+        }
+        return new RestoreResult(result.backupId(), result.backupType(), result.selector(), result.files(), result.bytes(),
+                result.bytesToRead(), result.target(), dryRun, durationMillis);
+    }
+
+    private RestoreResult restoreFromArchive(ServerInstance instance, String backupId, String selector, Predicate<String> matcher,
+                                             Path targetRoot, boolean dryRun, IoRateLimiter ioLimiter) throws IOException {
+        Path archive = backupService.getArchivePath(instance, backupId);
+        Optional<BackupArchiveIndex> index = backupService.getArchiveIndex(archive);
+
+        if (index.isPresent()) {
+            List<TarWriter.Entry> entries = index.get().entries().stream()
+                    .filter(entry -> matcher.test(entry.name()))
+                    .toList();
+            long bytes = entries.stream().mapToLong(TarWriter.Entry::size).sum();
+            long bytesToRead = entries.stream().mapToLong(entry -> TarArchiveReader.compressedBytesSpanned(index.get(), entry)).sum();
+            if (!dryRun) {
+                // One pass through the archive in offset order instead of seeking and inflating again per entry
+                List<TarWriter.Entry> sorted = entries.stream()
+                        .sorted(Comparator.comparingLong(TarWriter.Entry::dataOffset))
+                        .toList();
+                TarArchiveReader.read(archive, index.get(), sorted, ioLimiter,
+                        (entry, content) -> TarArchiveReader.writeEntry(entry, content, resolveInside(targetRoot, entry.name())));
+            }
+            return new RestoreResult(backupId, "archive", selector, entries.size(), bytes, bytesToRead,
+                    targetRoot.toString(), dryRun, 0);
+        }
+
+        // Archives written before indexing existed have to be inflated from the start
+        List<TarWriter.Entry> matched = new ArrayList<>();
+        TarArchiveReader.scan(archive, ioLimiter, matcher, (entry, content) -> {
+            matched.add(entry);
+            if (!dryRun) {
+                TarArchiveReader.writeEntry(entry, content, resolveInside(targetRoot, entry.name()));
+            }
+        });
+        long bytes = matched.stream().mapToLong(TarWriter.Entry::size).sum();
+        return new RestoreResult(backupId, "archive", selector, matched.size(), bytes, Files.size(archive),
+                targetRoot.toString(), dryRun, 0);
+    }
+
+    private RestoreResult restoreFromManifest(ServerInstance instance, String backupId, String selector, Predicate<String> matcher,
+                                              Path targetRoot, boolean dryRun, IoRateLimiter ioLimiter) throws IOException {
+        BackupManifest manifest = backupService.getManifest(instance, backupId);
+        List<BackupManifest.FileEntry> entries = manifest.files().stream()
+                .filter(entry -> matcher.test(entry.path()))
+                .toList();
+        long bytes = entries.stream().mapToLong(BackupManifest.FileEntry::size).sum();
+        if (!dryRun && !entries.isEmpty()) {
+            backupService.restoreIncremental(instance, backupId, matcher, targetRoot, ioLimiter);
+        }
+        return new RestoreResult(backupId, "incremental", selector, entries.size(), bytes, bytes,
+                targetRoot.toString(), dryRun, 0);
+    }
+
+    private static Predicate<String> selectorMatcher(String selector) {
+        if (selector == null || selector.isBlank()) {
+            throw new IllegalArgumentException("A path to restore is required");
+        }
+        String normalized = selector.replace('\\', '/').replaceAll("^/+|/+$", "");
+        if (normalized.isEmpty() || normalized.contains("..")) {
+            throw new IllegalArgumentException("Invalid restore path: " + selector);
+        }
+        return path -> path.equals(normalized) || path.startsWith(normalized + "/");
+    }
+
+    private static Path resolveInside(Path root, String relativePath) throws IOException {
+        Path normalizedRoot = root.normalize();
+        Path resolved = normalizedRoot.resolve(relativePath).normalize();
+        if (!resolved.startsWith(normalizedRoot)) {
+            throw new IOException("Backup entry escapes restore target: " + relativePath);
+        }
+        return resolved;
+    }
+}
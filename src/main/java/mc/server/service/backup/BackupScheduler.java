@@ -0,0 +1,275 @@
+package mc.server.service.backup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.BackupRecord;
+import mc.server.model.BackupWindow;
+import mc.server.model.ConsoleMessage;
+import mc.server.model.ServerInstance;
+import mc.server.repository.ServerInstanceRepository;
+import mc.server.service.RconService;
+import mc.server.service.WebSocketService;
+import mc.server.service.server.MinecraftServerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+// Spreads scheduled backups over each instance's window: a host-wide slot limit, longest backups first,
+// and instances with players online or a struggling tick loop wait until their window runs out
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BackupScheduler {
+
+    @Value("${minecraft.backup.schedule.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${minecraft.backup.schedule.max-starts-per-tick:1}")
+    private int maxStartsPerTick;
+
+    @Value("${minecraft.backup.schedule.window-start:03:00}")
+    private String defaultWindowStart;
+
+    @Value("${minecraft.backup.schedule.window-end:06:00}")
+    private String defaultWindowEnd;
+
+    @Value("${minecraft.backup.schedule.defer-when-players-online:true}")
+    private boolean deferWhenPlayersOnline;
+
+    @Value("${minecraft.backup.schedule.defer-below-tps:18.0}")
+    private double deferBelowTps;
+
+    @Value("${minecraft.backup.schedule.estimate-bytes-per-second:52428800}")
+    private long estimateBytesPerSecond;
+
+    private final MinecraftServerService minecraftServerService;
+    private final ServerInstanceRepository serverInstanceRepository;
+    private final BackupService backupService;
+    private final BackupCatalogService backupCatalogService;
+    private final RconService rconService;
+    private final WebSocketService webSocketService;
+
+    private final Map<Long, ScheduleStatus> statuses = new ConcurrentHashMap<>();
+    // Window a scheduled attempt was made in, so a failed backup is not retried every tick
+    private final Map<Long, LocalDateTime> attemptedWindows = new ConcurrentHashMap<>();
+    private final Map<Long, Long> worldSizeEstimates = new ConcurrentHashMap<>();
+    private volatile Semaphore slots;
+
+    public record ScheduleStatus(String state, String detail, LocalDateTime windowOpenedAt, LocalDateTime updatedAt) {}
+
+    private record Candidate(ServerInstance instance, LocalDateTime windowOpenedAt, LocalDateTime windowClosesAt,
+                             long estimatedMillis) {}
+
+    @Scheduled(fixedDelayString = "${minecraft.backup.schedule.tick-ms:30000}")
+    public void dispatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Candidate> due = new ArrayList<>();
+        for (ServerInstance instance : serverInstanceRepository.findAll()) {
+            try {
+                candidateFor(instance, now).ifPresent(due::add);
+            } catch (Exception e) {
+                log.error("Error checking backup schedule of instance {}", instance.getId(), e);
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        // Longest first, so the long tail of the window is filled with short backups instead of one big straggler
+        due.sort(Comparator.comparingLong(Candidate::estimatedMillis).reversed());
+        int started = 0;
+        for (Candidate candidate : due) {
+            Long instanceId = candidate.instance().getId();
+            Optional<String> deferral = deferralReason(candidate, now);
+            if (deferral.isPresent()) {
+                setStatus(instanceId, "deferred", deferral.get(), candidate.windowOpenedAt());
+                continue;
+            }
+            if (started >= maxStartsPerTick || !slots().tryAcquire()) {
+                setStatus(instanceId, "waiting", "Waiting for a free backup slot", candidate.windowOpenedAt());
+                continue;
+            }
+            start(candidate);
+            started++;
+        }
+    }
+
+    private Optional<Candidate> candidateFor(ServerInstance instance, LocalDateTime now) {
+        BackupWindow window = getBackupWindow(instance);
+        if (Boolean.FALSE.equals(window.getScheduledBackups())) {
+            return Optional.empty();
+        }
+
+        LocalDateTime openedAt = windowOpenedAt(now, window.getWindowStart(), window.getWindowEnd());
+        if (openedAt == null || openedAt.equals(attemptedWindows.get(instance.getId()))) {
+            return Optional.empty();
+        }
+
+        Optional<BackupRecord> latest = backupCatalogService.findLatest(instance.getId());
+        if (latest.isPresent() && !latest.get().getCreatedAt().isBefore(openedAt)) {
+            // Someone already took a backup in this window, manually or before a panel restart
+            attemptedWindows.put(instance.getId(), openedAt);
+            return Optional.empty();
+        }
+
+        if (!minecraftServerService.isServerRunning(instance.getId())) {
+            // Nothing has been written since the server stopped, so there is nothing new to back up
+            attemptedWindows.put(instance.getId(), openedAt);
+            setStatus(instance.getId(), "skipped", "Server is offline", openedAt);
+            log.info("Skipping scheduled backup for instance {} - server is offline", instance.getId());
+            return Optional.empty();
+        }
+
+        return Optional.of(new Candidate(instance, openedAt, closesAt(openedAt, window.getWindowStart(), window.getWindowEnd()),
+                estimateMillis(instance, latest)));
+    }
+
+    private Optional<String> deferralReason(Candidate candidate, LocalDateTime now) {
+        // Past the last start that still fits the window, waiting longer would mean skipping the backup
+        LocalDateTime latestStart = candidate.windowClosesAt().minus(Duration.ofMillis(candidate.estimatedMillis()));
+        if (!now.isBefore(latestStart)) {
+            return Optional.empty();
+        }
+
+        Long instanceId = candidate.instance().getId();
+        if (deferWhenPlayersOnline) {
+            int players = minecraftServerService.getOnlinePlayersSet(instanceId).size();
+            if (players > 0) {
+                return Optional.of(players + " players online");
+            }
+        }
+        Optional<Double> tps = minecraftServerService.getLastKnownTps(instanceId);
+        if (tps.isPresent() && tps.get() < deferBelowTps) {
+            return Optional.of(String.format("TPS is %.1f", tps.get()));
+        }
+        return Optional.empty();
+    }
+
+    private void start(Candidate candidate) {
+        Long instanceId = candidate.instance().getId();
+        attemptedWindows.put(instanceId, candidate.windowOpenedAt());
+        setStatus(instanceId, "running", null, candidate.windowOpenedAt());
+        log.info("Starting scheduled world backup for instance {} (estimated {} s, {} slots free)...",
+                instanceId, candidate.estimatedMillis() / 1000, slots().availablePermits());
+
+        try {
+            if (rconService.isConfigured(instanceId)) {
+                minecraftServerService.broadcastMessage(instanceId, "Starting scheduled world backup...");
+            }
+
+            // The backup service flushes and pauses autosave itself around its snapshot
+            backupService.createBackup(instanceId).whenComplete((success, throwable) -> {
+                slots().release();
+                boolean succeeded = throwable == null && Boolean.TRUE.equals(success);
+                String message = succeeded ?
+                        "Scheduled world backup completed successfully" :
+                        "Scheduled world backup failed";
+                log.info("{} for instance {}", message, instanceId);
+                setStatus(instanceId, succeeded ? "completed" : "failed", null, candidate.windowOpenedAt());
+
+                if (webSocketService.hasActiveSessions()) {
+                    webSocketService.broadcastConsoleMessage(instanceId, ConsoleMessage.info("[SYSTEM] " + message));
+                }
+                if (rconService.isConfigured(instanceId)) {
+                    minecraftServerService.broadcastMessage(instanceId,
+                            succeeded ? "Backup completed!" : "Backup failed - contact admin");
+                }
+            });
+        } catch (Exception e) {
+            slots().release();
+            setStatus(instanceId, "failed", e.getMessage(), candidate.windowOpenedAt());
+            log.error("Error during scheduled backup for instance {}", instanceId, e);
+        }
+    }
+
+    private long estimateMillis(ServerInstance instance, Optional<BackupRecord> latest) {
+        if (latest.isPresent() && latest.get().getDurationMillis() != null) {
+            return latest.get().getDurationMillis();
+        }
+        long bytes;
+        if (latest.isPresent() && latest.get().getSourceBytes() != null) {
+            bytes = latest.get().getSourceBytes();
+        } else {
+            bytes = worldSizeEstimates.computeIfAbsent(instance.getId(), id -> worldSize(instance));
+        }
+        return estimateBytesPerSecond > 0 ? bytes * 1000 / estimateBytesPerSecond : 0;
+    }
+
+    private long worldSize(ServerInstance instance) {
+        long size = 0;
+        for (String worldDir : backupService.existingWorldDirs(instance)) {
+            Path path = Paths.get(instance.getInstancePath(), worldDir);
+            try {
+                size += BackupFiles.directorySize(path);
+            } catch (Exception e) {
+                log.debug("Could not measure {}: {}", path, e.getMessage());
+            }
+        }
+        return size;
+    }
+
+    public ScheduleStatus getStatus(Long instanceId) {
+        return statuses.getOrDefault(instanceId, new ScheduleStatus("idle", null, null, null));
+    }
+
+    public BackupWindow getBackupWindow(ServerInstance instance) {
+        BackupWindow configured = instance.getBackupWindow();
+        return BackupWindow.builder()
+                .scheduledBackups(configured == null || configured.getScheduledBackups() == null || configured.getScheduledBackups())
+                .windowStart(configured != null && configured.getWindowStart() != null
+                        ? configured.getWindowStart() : LocalTime.parse(defaultWindowStart))
+                .windowEnd(configured != null && configured.getWindowEnd() != null
+                        ? configured.getWindowEnd() : LocalTime.parse(defaultWindowEnd))
+                .build();
+    }
+
+    public BackupWindow updateBackupWindow(Long instanceId, BackupWindow window) {
+        ServerInstance instance = serverInstanceRepository.findById(instanceId)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid instanceId: " + instanceId));
+        instance.setBackupWindow(window);
+        serverInstanceRepository.save(instance);
+        attemptedWindows.remove(instanceId);
+        return getBackupWindow(instance);
+    }
+
+    // Start of the window containing now, or null when now is outside the window
+    static LocalDateTime windowOpenedAt(LocalDateTime now, LocalTime start, LocalTime end) {
+        LocalDateTime todayStart = now.toLocalDate().atTime(start);
+        LocalDateTime openedAt = now.isBefore(todayStart) ? todayStart.minusDays(1) : todayStart;
+        return now.isBefore(closesAt(openedAt, start, end)) ? openedAt : null;
+    }
+
+    private static LocalDateTime closesAt(LocalDateTime openedAt, LocalTime start, LocalTime end) {
+        return end.isAfter(start)
+                ? openedAt.toLocalDate().atTime(end)
+                : openedAt.toLocalDate().plusDays(1).atTime(end);
+    }
+
+    private void setStatus(Long instanceId, String state, String detail, LocalDateTime windowOpenedAt) {
+        ScheduleStatus previous = statuses.get(instanceId);
+        if (previous == null || !state.equals(previous.state()) || !Objects.equals(detail, previous.detail())) {
+            log.debug("Scheduled backup of instance {} is {}{}", instanceId, state, detail != null ? " (" + detail + ")" : "");
+        }
+        statuses.put(instanceId, new ScheduleStatus(state, detail, windowOpenedAt, LocalDateTime.now()));
+    }
+
+    private Semaphore slots() {
+        if (slots == null) {
+            synchronized (this) {
+                if (slots == null) {
+                    slots = new Semaphore(Math.max(1, maxConcurrent));
+                }
+            }
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,636 @@
+package mc.server.service.backup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.BackupRecord;
+import mc.server.model.ServerInstance;
+import mc.server.repository.ServerInstanceRepository;
+import mc.server.service.server.MinecraftServerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BackupService {
+    private static final List<String> WORLD_DIRS = List.of("world", "world_nether", "world_the_end");
+    private static final String ARCHIVE_INDEX_SUFFIX = ".index.json";
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+    @Value("${minecraft.backup.mode:incremental}")
+    private String backupMode;
+
+    @Value("${minecraft.backup.compression.threads:0}")
+    private int configuredCompressionThreads;
+
+    @Value("${minecraft.backup.compression.block-bytes:1048576}")
+    private int compressionBlockBytes;
+
+    @Value("${minecraft.backup.compression.level:6}")
+    private int compressionLevel;
+
+    @Value("${minecraft.backup.chunk.min-bytes:16384}")
+    private int minChunkBytes;
+
+    @Value("${minecraft.backup.chunk.avg-bytes:65536}")
+    private int avgChunkBytes;
+
+    @Value("${minecraft.backup.chunk.max-bytes:262144}")
+    private int maxChunkBytes;
+
+    private final MinecraftServerService minecraftServerService;
+    private final ServerInstanceRepository serverInstanceRepository;
+    private final BackupCatalogService backupCatalogService;
+    private final SnapshotService snapshotService;
+    private final BackupIoThrottle backupIoThrottle;
+    private final BackupOffloadService backupOffloadService;
+    private final RegionDeltaBackupEngine regionDeltaBackupEngine;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Long, ReentrantLock> instanceLocks = new ConcurrentHashMap<>();
+    private volatile ExecutorService compressionExecutor;
+
+    public record CleanupResult(int deletedBackups, int deletedChunks, long freedBytes) {}
+
+    public CompletableFuture<Boolean> createBackup(Long instanceId) {
+        ServerInstance instance = minecraftServerService.getInstance(instanceId);
+        log.info("Starting world backup for instance {} ({} mode)...", instanceId, backupMode);
+        return CompletableFuture.supplyAsync(() -> {
+            ReentrantLock lock = lockFor(instanceId);
+            lock.lock();
+            long startNanos = System.nanoTime();
+            Path stagingRoot = null;
+            IoRateLimiter ioLimiter = null;
+            try {
+                List<String> worldDirs = existingWorldDirs(instance);
+                if (worldDirs.isEmpty()) {
+                    log.warn("No world directories found to back up for instance {}", instanceId);
+                    return false;
+                }
+
+                Path sourceRoot = Paths.get(instance.getInstancePath());
+                ioLimiter = backupIoThrottle.open(instanceId);
+                IoRateLimiter limiter = ioLimiter;
+                BackupRecord record;
+                if (!snapshotService.canPauseSaving(instanceId)) {
+                    record = runBackup(instance, sourceRoot, worldDirs, limiter);
+                } else if (snapshotService.isSnapshotCheap(instance)) {
+                    // Compression then reads the frozen copy while the world keeps running
+                    stagingRoot = backupDir(instance).resolve("staging").resolve(LocalDateTime.now().format(TIMESTAMP_FORMAT));
+                    snapshotService.captureConsistent(instance, worldDirs, stagingRoot, limiter);
+                    record = runBackup(instance, stagingRoot, worldDirs, limiter);
+                } else {
+                    // Without copy-on-write a standing copy is kept up to date instead, it costs the disk space of the
+                    // worlds once but saving is only paused for what changed since the last pass
+                    Path mirrorRoot = backupDir(instance).resolve("mirror");
+                    snapshotService.captureChanged(instance, worldDirs, mirrorRoot, limiter);
+                    record = runBackup(instance, mirrorRoot, worldDirs, limiter);
+                }
+                record.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                backupCatalogService.record(record);
+                if (backupOffloadService.isEnabled()) {
+                    backupOffloadService.submit(instance, record, offloadFiles(instance, record));
+                }
+                return true;
+            } catch (Exception e) {
+                log.error("Error creating world backup for instance {}", instanceId, e);
+                return false;
+            } finally {
+                if (ioLimiter != null) {
+                    backupIoThrottle.close(instanceId, ioLimiter);
+                }
+                if (stagingRoot != null) {
+                    try {
+                        BackupFiles.deleteRecursively(stagingRoot);
+                    } catch (IOException e) {
+                        log.warn("Could not remove backup staging snapshot {}: {}", stagingRoot, e.getMessage());
+                    }
+                }
+                lock.unlock();
+            }
+        });
+    }
+
+    private BackupRecord runBackup(ServerInstance instance, Path sourceRoot, List<String> worldDirs,
+                                   IoRateLimiter ioLimiter) throws IOException {
+        if ("archive".equalsIgnoreCase(backupMode)) {
+            return createArchiveBackup(instance, sourceRoot, worldDirs, ioLimiter);
+        }
+        if ("region-delta".equalsIgnoreCase(backupMode)) {
+            return createRegionDeltaBackup(instance, sourceRoot, worldDirs, ioLimiter);
+        }
+        return createIncrementalBackup(instance, sourceRoot, worldDirs, ioLimiter);
+    }
+
+    private BackupRecord createIncrementalBackup(ServerInstance instance, Path sourceRoot, List<String> worldDirs,
+                                                 IoRateLimiter ioLimiter) throws IOException {
+        long startNanos = System.nanoTime();
+        ChunkStore store = chunkStore(instance);
+        ContentDefinedChunker chunker = new ContentDefinedChunker(minChunkBytes, avgChunkBytes, maxChunkBytes);
+
+        Map<String, BackupManifest.FileEntry> previousFiles = new HashMap<>();
+        Optional<BackupManifest> previousManifest = latestManifest(instance);
+        previousManifest.ifPresent(previous ->
+                previous.files().forEach(entry -> previousFiles.put(entry.path(), entry)));
+
+        List<BackupManifest.FileEntry> entries = new ArrayList<>();
+        long totalBytes = 0;
+        long newBytes = 0;
+        int reusedFiles = 0;
+        int newChunks = 0;
+
+        for (Path file : listFiles(sourceRoot, worldDirs)) {
+            String relativePath = sourceRoot.relativize(file).toString().replace('\\', '/');
+            long size = Files.size(file);
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            totalBytes += size;
+
+            // Unchanged size and mtime means the file was not rewritten, so the old chunk list still describes it
+            BackupManifest.FileEntry previous = previousFiles.get(relativePath);
+            if (previous != null && previous.size() == size && previous.lastModified() == lastModified &&
+                    previous.chunks().stream().allMatch(store::contains)) {
+                entries.add(previous);
+                reusedFiles++;
+                continue;
+            }
+
+            List<String> chunks = new ArrayList<>();
+            long[] stored = new long[2];
+            MessageDigest fileDigest = ChunkStore.sha256();
+            try (InputStream in = new DigestInputStream(ioLimiter.wrap(Files.newInputStream(file)), fileDigest)) {
+                chunker.split(in, (buffer, offset, length) -> {
+                    ChunkStore.PutResult result = store.put(buffer, offset, length);
+                    chunks.add(result.hash());
+                    if (result.stored()) {
+                        stored[0]++;
+                        stored[1] += length;
+                    }
+                });
+            }
+            newChunks += (int) stored[0];
+            newBytes += stored[1];
+            entries.add(new BackupManifest.FileEntry(relativePath, size, lastModified, chunks,
+                    HexFormat.of().formatHex(fileDigest.digest())));
+        }
+
+        LocalDateTime createdAt = LocalDateTime.now();
+        BackupManifest manifest = new BackupManifest(
+                "backup_" + createdAt.format(TIMESTAMP_FORMAT),
+                instance.getId(),
+                createdAt,
+                worldDirs,
+                totalBytes,
+                entries
+        );
+        Path manifestPath = writeManifest(instance, manifest);
+
+        log.info("Incremental backup {} for instance {} finished in {} ms: {} files ({} unchanged), {} MB scanned, {} new chunks, {} MB stored",
+                manifest.id(), instance.getId(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                entries.size(), reusedFiles, String.format("%.2f", totalBytes / (1024.0 * 1024.0)),
+                newChunks, String.format("%.2f", newBytes / (1024.0 * 1024.0)));
+        return BackupRecord.builder()
+                .instanceId(instance.getId())
+                .backupId(manifest.id())
+                .type("incremental")
+                .parentBackupId(previousManifest.map(BackupManifest::id).orElse(null))
+                .createdAt(createdAt)
+                .sizeBytes(newBytes + Files.size(manifestPath))
+                .sourceBytes(totalBytes)
+                .fileCount(entries.size())
+                .checksum(BackupFiles.sha256(manifestPath))
+                .build();
+    }
+
+    private BackupRecord createRegionDeltaBackup(ServerInstance instance, Path sourceRoot, List<String> worldDirs,
+                                                 IoRateLimiter ioLimiter) throws IOException {
+        RegionDeltaIndex index = regionDeltaBackupEngine.createBackup(instance, sourceRoot, worldDirs, ioLimiter);
+        Path backupPath = regionDeltaBackupEngine.backupPath(instance, index.id());
+        long sourceBytes = index.files().stream().mapToLong(RegionDeltaIndex.FileEntry::size).sum() +
+                index.regions().stream().mapToLong(region -> Arrays.stream(region.lengths()).asLongStream().sum()).sum();
+        return BackupRecord.builder()
+                .instanceId(instance.getId())
+                .backupId(index.id())
+                .type("region-delta")
+                .parentBackupId(index.parentId())
+                .createdAt(index.createdAt())
+                .sizeBytes(BackupFiles.directorySize(backupPath))
+                .sourceBytes(sourceBytes)
+                .fileCount(index.files().size() + index.regions().size())
+                .checksum(BackupFiles.sha256(regionDeltaBackupEngine.indexPath(instance, index.id())))
+                .build();
+    }
+
+    private BackupRecord createArchiveBackup(ServerInstance instance, Path sourceRoot, List<String> worldDirs,
+                                             IoRateLimiter ioLimiter) throws IOException {
+        long startNanos = System.nanoTime();
+        LocalDateTime createdAt = LocalDateTime.now();
+        String timestamp = createdAt.format(TIMESTAMP_FORMAT);
+        Path backupDir = backupDir(instance);
+        Files.createDirectories(backupDir);
+        Path backupPath = backupDir.resolve("world_backup_" + timestamp + ".tar.gz");
+        Path tempPath = backupDir.resolve("world_backup_" + timestamp + ".tar.gz.tmp");
+
+        MessageDigest digest = ChunkStore.sha256();
+        ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(
+                new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath), 1024 * 1024), digest),
+                compressionExecutor(), compressionBlockBytes, compressionLevel, compressionThreads() * 2);
+        TarWriter tar = new TarWriter(gzip, ioLimiter);
+        try (tar) {
+            for (String worldDir : worldDirs) {
+                try (Stream<Path> walk = Files.walk(sourceRoot.resolve(worldDir))) {
+                    for (Path path : walk.sorted().toList()) {
+                        String name = sourceRoot.relativize(path).toString().replace('\\', '/');
+                        if (Files.isDirectory(path)) {
+                            tar.putDirectory(name);
+                        } else if (Files.isRegularFile(path) && !path.getFileName().toString().equals("session.lock")) {
+                            tar.putFile(name, path);
+                        }
+                    }
+                }
+            }
+            tar.finish();
+        } catch (IOException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+        Files.move(tempPath, backupPath, StandardCopyOption.ATOMIC_MOVE);
+        writeArchiveIndex(backupPath, new BackupArchiveIndex(compressionBlockBytes, gzip.getMembers(), tar.getEntries()));
+
+        double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1_000_000_000.0;
+        double inputMb = gzip.getUncompressedBytes() / (1024.0 * 1024.0);
+        log.info("World backup for instance {} created successfully: {} ({} MB -> {} MB in {} s, {} MB/s on {} threads)",
+                instance.getId(), backupPath,
+                String.format("%.2f", inputMb),
+                String.format("%.2f", gzip.getCompressedBytes() / (1024.0 * 1024.0)),
+                String.format("%.2f", seconds),
+                String.format("%.1f", inputMb / seconds),
+                compressionThreads());
+        return BackupRecord.builder()
+                .instanceId(instance.getId())
+                .backupId("world_backup_" + timestamp)
+                .type("archive")
+                .createdAt(createdAt)
+                .sizeBytes(gzip.getCompressedBytes())
+                .sourceBytes(tar.getEntries().stream().mapToLong(TarWriter.Entry::size).sum())
+                .fileCount(tar.getEntries().size())
+                .checksum(HexFormat.of().formatHex(digest.digest()))
+                .build();
+    }
+
+    public int restoreIncremental(ServerInstance instance, String backupId, Predicate<String> selector, Path targetRoot,
+                                  IoRateLimiter ioLimiter) throws IOException {
+        BackupManifest manifest = getManifest(instance, backupId);
+        ChunkStore store = chunkStore(instance);
+        Path normalizedRoot = targetRoot.normalize();
+
+        int restored = 0;
+        for (BackupManifest.FileEntry entry : manifest.files()) {
+            if (!selector.test(entry.path())) {
+                continue;
+            }
+            Path target = normalizedRoot.resolve(entry.path()).normalize();
+            if (!target.startsWith(normalizedRoot)) {
+                throw new IOException("Manifest entry escapes restore target: " + entry.path());
+            }
+            Files.createDirectories(target.getParent());
+            Path tempTarget = target.resolveSibling(target.getFileName() + ".restore-tmp");
+            try (OutputStream out = Files.newOutputStream(tempTarget)) {
+                for (String hash : entry.chunks()) {
+                    byte[] chunk = store.read(hash);
+                    ioLimiter.acquire(chunk.length);
+                    out.write(chunk);
+                }
+            }
+            Files.move(tempTarget, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.setLastModifiedTime(target, FileTime.fromMillis(entry.lastModified()));
+            restored++;
+        }
+        log.info("Restored {} files of backup {} of instance {} into {}", restored, backupId, instance.getId(), targetRoot);
+        return restored;
+    }
+
+    public Optional<BackupArchiveIndex> getArchiveIndex(Path archive) throws IOException {
+        Path indexPath = archive.resolveSibling(archive.getFileName() + ARCHIVE_INDEX_SUFFIX);
+        if (!Files.exists(indexPath)) {
+            return Optional.empty();
+        }
+        return Optional.of(objectMapper.readValue(indexPath.toFile(), BackupArchiveIndex.class));
+    }
+
+    public Path getArchivePath(ServerInstance instance, String backupId) {
+        Path backupDir = backupDir(instance);
+        Path archive = backupDir.resolve(backupId + ".tar.gz").normalize();
+        if (!archive.startsWith(backupDir) || !Files.isRegularFile(archive)) {
+            throw new IllegalArgumentException("Backup not found: " + backupId);
+        }
+        return archive;
+    }
+
+    private void writeArchiveIndex(Path archive, BackupArchiveIndex index) throws IOException {
+        Path indexPath = archive.resolveSibling(archive.getFileName() + ARCHIVE_INDEX_SUFFIX);
+        Path tempPath = archive.resolveSibling(archive.getFileName() + ARCHIVE_INDEX_SUFFIX + ".tmp");
+        objectMapper.writeValue(tempPath.toFile(), index);
+        Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public List<BackupManifest> listManifests(ServerInstance instance) throws IOException {
+        Path manifestsDir = manifestsDir(instance);
+        if (!Files.isDirectory(manifestsDir)) {
+            return List.of();
+        }
+        List<BackupManifest> manifests = new ArrayList<>();
+        try (Stream<Path> files = Files.list(manifestsDir)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(".json")).toList()) {
+                try {
+                    manifests.add(objectMapper.readValue(file.toFile(), BackupManifest.class));
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable backup manifest {}: {}", file, e.getMessage());
+                }
+            }
+        }
+        manifests.sort(Comparator.comparing(BackupManifest::createdAt));
+        return manifests;
+    }
+
+    // Retention is decided from the catalog; the filesystem is only touched to delete what it selected
+    public CleanupResult cleanOldBackups(ServerInstance instance) throws IOException {
+        ReentrantLock lock = lockFor(instance.getId());
+        lock.lock();
+        try {
+            Path backupDir = backupDir(instance);
+            if (!Files.exists(backupDir)) {
+                return new CleanupResult(0, 0, 0);
+            }
+
+            // Staging snapshots only live for the duration of a backup, which cannot be running while we hold the lock
+            BackupFiles.deleteRecursively(backupDir.resolve("staging"));
+
+            List<BackupRecord> expired = backupCatalogService.selectExpired(instance);
+            log.info("Cleaning backups for instance {} with retention {}: {} backups expired",
+                    instance.getId(), backupCatalogService.getRetentionPolicy(instance), expired.size());
+
+            int deletedBackups = 0;
+            long freedBytes = 0;
+            boolean incrementalDeleted = false;
+            for (BackupRecord record : expired) {
+                try {
+                    deleteBackupFiles(instance, record);
+                    backupCatalogService.remove(record);
+                    deletedBackups++;
+                    freedBytes += record.getSizeBytes() != null && !"incremental".equals(record.getType()) ? record.getSizeBytes() : 0;
+                    incrementalDeleted |= "incremental".equals(record.getType());
+                    log.debug("Deleted expired backup {} of instance {}", record.getBackupId(), instance.getId());
+                } catch (IOException e) {
+                    log.warn("Failed to delete backup {} for instance {}: {}", record.getBackupId(), instance.getId(), e.getMessage());
+                }
+            }
+
+            int deletedChunks = 0;
+            if (incrementalDeleted) {
+                Set<String> liveChunks = new HashSet<>();
+                for (BackupManifest manifest : listManifests(instance)) {
+                    manifest.files().forEach(entry -> liveChunks.addAll(entry.chunks()));
+                }
+
+                ChunkStore store = chunkStore(instance);
+                for (String hash : store.listChunks()) {
+                    if (!liveChunks.contains(hash)) {
+                        freedBytes += store.delete(hash);
+                        deletedChunks++;
+                    }
+                }
+            }
+
+            log.info("Backup cleanup for instance {} completed: deleted {} backups and {} unreferenced chunks, freed {} MB",
+                    instance.getId(), deletedBackups, deletedChunks, String.format("%.2f", freedBytes / (1024.0 * 1024.0)));
+            return new CleanupResult(deletedBackups, deletedChunks, freedBytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deleteBackupFiles(ServerInstance instance, BackupRecord record) throws IOException {
+        backupOffloadService.deleteRemote(instance, record);
+        switch (record.getType()) {
+            case "archive" -> {
+                Path archive = backupDir(instance).resolve(record.getBackupId() + ".tar.gz");
+                Files.deleteIfExists(archive);
+                Files.deleteIfExists(archive.resolveSibling(archive.getFileName() + ARCHIVE_INDEX_SUFFIX));
+            }
+            case "incremental" -> Files.deleteIfExists(manifestsDir(instance).resolve(record.getBackupId() + ".json"));
+            case "region-delta" -> BackupFiles.deleteRecursively(regionDeltaBackupEngine.backupPath(instance, record.getBackupId()));
+            default -> log.warn("Unknown backup type {} for backup {}", record.getType(), record.getBackupId());
+        }
+    }
+
+    private List<String> offloadFiles(ServerInstance instance, BackupRecord record) throws IOException {
+        Path backupDir = backupDir(instance);
+        List<String> files = new ArrayList<>();
+        switch (record.getType()) {
+            case "archive" -> {
+                Path archive = getArchivePath(instance, record.getBackupId());
+                files.add(backupDir.relativize(archive).toString());
+                Path index = archive.resolveSibling(archive.getFileName() + ARCHIVE_INDEX_SUFFIX);
+                if (Files.exists(index)) {
+                    files.add(backupDir.relativize(index).toString());
+                }
+            }
+            case "region-delta" -> {
+                try (Stream<Path> walk = Files.walk(regionDeltaBackupEngine.backupPath(instance, record.getBackupId()))) {
+                    walk.filter(Files::isRegularFile)
+                            .sorted()
+                            .forEach(path -> files.add(backupDir.relativize(path).toString().replace('\\', '/')));
+                }
+            }
+            case "incremental" -> {
+                // Every chunk the manifest uses, ahead of the manifest so a remote manifest never points at missing chunks.
+                // The offload service skips the ones an earlier backup already uploaded
+                ChunkStore store = chunkStore(instance);
+                getManifest(instance, record.getBackupId()).files().stream()
+                        .flatMap(entry -> entry.chunks().stream())
+                        .distinct()
+                        .sorted()
+                        .forEach(hash -> files.add(backupDir.relativize(store.pathOf(hash)).toString().replace('\\', '/')));
+                files.add(backupDir.relativize(manifestsDir(instance).resolve(record.getBackupId() + ".json")).toString().replace('\\', '/'));
+            }
+            default -> log.warn("Backup {} of type {} cannot be offloaded, it only exists on the local disk",
+                    record.getBackupId(), record.getType());
+        }
+        return files;
+    }
+
+    // Backups written before the catalog existed are imported once so retention can see them
+    @EventListener(ApplicationReadyEvent.class)
+    public void importUncataloguedBackups() {
+        for (ServerInstance instance : serverInstanceRepository.findAll()) {
+            if (instance.getInstancePath() == null || backupCatalogService.hasBackups(instance.getId()) ||
+                    !Files.isDirectory(backupDir(instance))) {
+                continue;
+            }
+            try {
+                int imported = 0;
+                try (Stream<Path> files = Files.list(backupDir(instance))) {
+                    for (Path archive : files.filter(path -> path.getFileName().toString().matches("world_backup_.*\\.tar\\.gz")).toList()) {
+                        String name = archive.getFileName().toString();
+                        backupCatalogService.record(BackupRecord.builder()
+                                .instanceId(instance.getId())
+                                .backupId(name.substring(0, name.length() - ".tar.gz".length()))
+                                .type("archive")
+                                .createdAt(LocalDateTime.ofInstant(Files.getLastModifiedTime(archive).toInstant(), ZoneId.systemDefault()))
+                                .sizeBytes(Files.size(archive))
+                                .build());
+                        imported++;
+                    }
+                }
+                for (BackupManifest manifest : listManifests(instance)) {
+                    backupCatalogService.record(BackupRecord.builder()
+                            .instanceId(instance.getId())
+                            .backupId(manifest.id())
+                            .type("incremental")
+                            .createdAt(manifest.createdAt())
+                            .sourceBytes(manifest.totalBytes())
+                            .fileCount(manifest.files().size())
+                            .build());
+                    imported++;
+                }
+                for (RegionDeltaIndex index : regionDeltaBackupEngine.listBackups(instance)) {
+                    backupCatalogService.record(BackupRecord.builder()
+                            .instanceId(instance.getId())
+                            .backupId(index.id())
+                            .type("region-delta")
+                            .parentBackupId(index.parentId())
+                            .createdAt(index.createdAt())
+                            .sizeBytes(BackupFiles.directorySize(regionDeltaBackupEngine.backupPath(instance, index.id())))
+                            .fileCount(index.files().size() + index.regions().size())
+                            .build());
+                    imported++;
+                }
+                if (imported > 0) {
+                    log.info("Imported {} existing backups of instance {} into the backup catalog", imported, instance.getId());
+                }
+            } catch (Exception e) {
+                log.error("Error importing existing backups of instance {} into the catalog", instance.getId(), e);
+            }
+        }
+    }
+
+    private Optional<BackupManifest> latestManifest(ServerInstance instance) throws IOException {
+        List<BackupManifest> manifests = listManifests(instance);
+        return manifests.isEmpty() ? Optional.empty() : Optional.of(manifests.get(manifests.size() - 1));
+    }
+
+    public BackupManifest getManifest(ServerInstance instance, String backupId) throws IOException {
+        Path manifestsDir = manifestsDir(instance);
+        Path manifestPath = manifestsDir.resolve(backupId + ".json").normalize();
+        if (!manifestPath.startsWith(manifestsDir) || !Files.exists(manifestPath)) {
+            throw new IllegalArgumentException("Backup not found: " + backupId);
+        }
+        return objectMapper.readValue(manifestPath.toFile(), BackupManifest.class);
+    }
+
+    private Path writeManifest(ServerInstance instance, BackupManifest manifest) throws IOException {
+        Path manifestsDir = manifestsDir(instance);
+        Files.createDirectories(manifestsDir);
+        Path manifestPath = manifestsDir.resolve(manifest.id() + ".json");
+        Path tempPath = manifestsDir.resolve(manifest.id() + ".json.tmp");
+        objectMapper.writeValue(tempPath.toFile(), manifest);
+        Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return manifestPath;
+    }
+
+    private List<Path> listFiles(Path sourceRoot, List<String> worldDirs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String worldDir : worldDirs) {
+            try (Stream<Path> walk = Files.walk(sourceRoot.resolve(worldDir))) {
+                walk.filter(Files::isRegularFile)
+                        .filter(path -> !path.getFileName().toString().equals("session.lock"))
+                        .forEach(files::add);
+            }
+        }
+        files.sort(Comparator.naturalOrder());
+        return files;
+    }
+
+    public List<String> existingWorldDirs(ServerInstance instance) {
+        return WORLD_DIRS.stream()
+                .filter(dir -> Files.exists(Paths.get(instance.getInstancePath(), dir)))
+                .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (compressionExecutor != null) {
+            compressionExecutor.shutdownNow();
+        }
+    }
+
+    private int compressionThreads() {
+        return configuredCompressionThreads > 0 ? configuredCompressionThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    private ExecutorService compressionExecutor() {
+        if (compressionExecutor == null) {
+            synchronized (this) {
+                if (compressionExecutor == null) {
+                    AtomicInteger threadIndex = new AtomicInteger();
+                    compressionExecutor = Executors.newFixedThreadPool(compressionThreads(), r -> {
+                        Thread t = new Thread(r, "backup-compress-" + threadIndex.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+        return compressionExecutor;
+    }
+
+    private ReentrantLock lockFor(Long instanceId) {
+        return instanceLocks.computeIfAbsent(instanceId, id -> new ReentrantLock());
+    }
+
+    ChunkStore chunkStore(ServerInstance instance) {
+        return new ChunkStore(backupDir(instance).resolve("store").resolve("chunks"));
+    }
+
+    Path manifestPath(ServerInstance instance, String backupId) {
+        return manifestsDir(instance).resolve(backupId + ".json");
+    }
+
+    private Path manifestsDir(ServerInstance instance) {
+        return backupDir(instance).resolve("store").resolve("manifests");
+    }
+
+    private Path backupDir(ServerInstance instance) {
+        return Paths.get(instance.getInstancePath(), "backups");
+    }
+}
@@ -0,0 +1,17 @@
+package mc.server.service.backup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Somewhere off the world disk that finished backups are copied to
+public interface BackupTarget {
+
+    String getName();
+
+    boolean isConfigured();
+
+    // Resumes from the multipart state left in the file state by an earlier attempt; checkpoint persists it
+    void upload(Path file, OffloadJob.FileState state, IoRateLimiter limiter, Runnable checkpoint) throws IOException;
+
+    void delete(OffloadJob.FileState state) throws IOException;
+}
@@ -0,0 +1,414 @@
+package mc.server.service.backup;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.BackupRecord;
+import mc.server.model.ServerInstance;
+import mc.server.service.server.MinecraftServerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+
+// Re-reads finished backups and checks them against the checksums recorded while they were written
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BackupVerificationService {
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int MAX_REPORTED_PROBLEMS = 50;
+
+    @Value("${minecraft.backup.verify.threads:0}")
+    private int configuredThreads;
+
+    @Value("${minecraft.backup.verify.bytes-per-second:33554432}")
+    private long scheduledBytesPerSecond;
+
+    @Value("${minecraft.backup.verify.max-per-run:4}")
+    private int maxPerRun;
+
+    @Value("${minecraft.backup.verify.reverify-days:30}")
+    private int reverifyDays;
+
+    @Value("${minecraft.backup.verify.archive-group-bytes:33554432}")
+    private long archiveGroupBytes;
+
+    private final MinecraftServerService minecraftServerService;
+    private final BackupService backupService;
+    private final BackupCatalogService backupCatalogService;
+    private final RegionDeltaBackupEngine regionDeltaBackupEngine;
+
+    private final AtomicBoolean scheduledRunActive = new AtomicBoolean(false);
+    private volatile ExecutorService workers;
+
+    public record VerificationResult(String backupId, boolean passed, int filesChecked, long bytesRead,
+                                     List<String> problems, long durationMillis) {}
+
+    @FunctionalInterface
+    private interface CheckBody {
+        void run(List<String> problems) throws IOException;
+    }
+
+    // One unit of work for the pool; failures are reported against the subject instead of aborting the run
+    private record Check(String subject, int files, CheckBody body) {}
+
+    public VerificationResult verify(Long instanceId, String backupId) throws IOException {
+        ServerInstance instance = minecraftServerService.getInstance(instanceId);
+        BackupRecord record = backupCatalogService.findBackup(instanceId, backupId)
+                .orElseThrow(() -> new IllegalArgumentException("Backup not found: " + backupId));
+        return verify(instance, record, new IoRateLimiter(0));
+    }
+
+    @Scheduled(cron = "${minecraft.backup.verify.cron:0 30 4 * * *}")
+    public void verifyScheduled() {
+        if (maxPerRun <= 0 || !scheduledRunActive.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // One budget for the whole run, shared by every worker
+            IoRateLimiter limiter = new IoRateLimiter(scheduledBytesPerSecond);
+            List<BackupRecord> selected = backupCatalogService.selectForVerification(maxPerRun,
+                    LocalDateTime.now().minusDays(reverifyDays));
+            for (BackupRecord record : selected) {
+                try {
+                    verify(minecraftServerService.getInstance(record.getInstanceId()), record, limiter);
+                } catch (Exception e) {
+                    log.error("Error verifying backup {} of instance {}", record.getBackupId(), record.getInstanceId(), e);
+                }
+            }
+        } finally {
+            scheduledRunActive.set(false);
+        }
+    }
+
+    private VerificationResult verify(ServerInstance instance, BackupRecord record, IoRateLimiter limiter) throws IOException {
+        long startNanos = System.nanoTime();
+        long startBytes = limiter.getTotalBytes();
+        List<String> problems = Collections.synchronizedList(new ArrayList<>());
+
+        List<Check> checks = new ArrayList<>();
+        try {
+            switch (record.getType()) {
+                case "archive" -> addArchiveChecks(instance, record, limiter, checks);
+                case "incremental" -> addIncrementalChecks(instance, record, limiter, checks);
+                case "region-delta" -> addRegionDeltaChecks(instance, record, limiter, checks);
+                default -> problems.add("Unknown backup type " + record.getType());
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            problems.add("Backup cannot be opened: " + e.getMessage());
+        }
+
+        int filesChecked = run(checks, problems);
+        List<String> reported = new ArrayList<>(problems.subList(0, Math.min(problems.size(), MAX_REPORTED_PROBLEMS)));
+        if (problems.size() > reported.size()) {
+            reported.add((problems.size() - reported.size()) + " more problems");
+        }
+
+        VerificationResult result = new VerificationResult(record.getBackupId(), problems.isEmpty(), filesChecked,
+                limiter.getTotalBytes() - startBytes, reported, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        if (backupCatalogService.recordVerification(instance.getId(), record.getBackupId(), result.passed(),
+                result.passed() ? null : String.join("; ", reported)).isEmpty()) {
+            log.info("Backup {} of instance {} was removed while it was being verified", record.getBackupId(), instance.getId());
+        } else if (result.passed()) {
+            log.info("Verified backup {} of instance {}: {} files, {} MB read in {} ms on {} workers",
+                    record.getBackupId(), instance.getId(), filesChecked,
+                    String.format("%.2f", result.bytesRead() / (1024.0 * 1024.0)), result.durationMillis(), workerThreads());
+        } else {
+            log.warn("Backup {} of instance {} failed verification with {} problems, first: {}",
+                    record.getBackupId(), instance.getId(), problems.size(), reported.get(0));
+        }
+        return result;
+    }
+
+    private int run(List<Check> checks, List<String> problems) {
+        List<Future<?>> futures = new ArrayList<>();
+        for (Check check : checks) {
+            futures.add(workers().submit(() -> {
+                try {
+                    check.body().run(problems);
+                } catch (Exception e) {
+                    problems.add(check.subject() + ": " + e.getClass().getSimpleName() + " " + e.getMessage());
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                problems.add("Verification was interrupted");
+                break;
+            } catch (ExecutionException e) {
+                problems.add("Verification worker failed: " + e.getCause().getMessage());
+            }
+        }
+        return checks.stream().mapToInt(Check::files).sum();
+    }
+
+    private void addArchiveChecks(ServerInstance instance, BackupRecord record, IoRateLimiter limiter, List<Check> checks) throws IOException {
+        Path archive = backupService.getArchivePath(instance, record.getBackupId());
+        addArtifactCheck(archive, record, limiter, checks);
+
+        Optional<BackupArchiveIndex> index = backupService.getArchiveIndex(archive);
+        if (index.isEmpty()) {
+            // Without member offsets the gzip stream can only be inflated front to back
+            checks.add(new Check(archive.getFileName().toString(), 0, problems ->
+                    TarArchiveReader.scan(archive, limiter, name -> true, (entry, content) ->
+                            verifyStream(entry.name(), entry.size(), null, content, problems))));
+            return;
+        }
+
+        // Contiguous runs of entries let each worker inflate its part of the archive in one pass
+        List<TarWriter.Entry> entries = new ArrayList<>(index.get().entries());
+        entries.sort(Comparator.comparingLong(TarWriter.Entry::dataOffset));
+        List<TarWriter.Entry> group = new ArrayList<>();
+        long groupBytes = 0;
+        for (TarWriter.Entry entry : entries) {
+            group.add(entry);
+            groupBytes += entry.size();
+            if (groupBytes >= archiveGroupBytes) {
+                addArchiveGroup(archive, index.get(), group, limiter, checks);
+                group = new ArrayList<>();
+                groupBytes = 0;
+            }
+        }
+        addArchiveGroup(archive, index.get(), group, limiter, checks);
+    }
+
+    private void addArchiveGroup(Path archive, BackupArchiveIndex index, List<TarWriter.Entry> group,
+                                 IoRateLimiter limiter, List<Check> checks) {
+        if (group.isEmpty()) {
+            return;
+        }
+        checks.add(new Check(group.get(0).name(), group.size(), problems ->
+                TarArchiveReader.read(archive, index, group, limiter, (entry, content) ->
+                        verifyStream(entry.name(), entry.size(), entry.sha256(), content, problems))));
+    }
+
+    private void addIncrementalChecks(ServerInstance instance, BackupRecord record, IoRateLimiter limiter, List<Check> checks) throws IOException {
+        BackupManifest manifest = backupService.getManifest(instance, record.getBackupId());
+        addArtifactCheck(backupService.manifestPath(instance, record.getBackupId()), record, limiter, checks);
+        ChunkStore store = backupService.chunkStore(instance);
+
+        for (BackupManifest.FileEntry file : manifest.files()) {
+            checks.add(new Check(file.path(), 1, problems -> {
+                MessageDigest fileDigest = ChunkStore.sha256();
+                RegionHeaderCheck regionCheck = RegionHeaderCheck.applies(file.path(), file.size())
+                        ? new RegionHeaderCheck(file.path(), file.size()) : null;
+                long size = 0;
+
+                for (String hash : file.chunks()) {
+                    byte[] data = store.read(hash);
+                    limiter.acquire(data.length);
+                    if (!HEX.formatHex(ChunkStore.sha256().digest(data)).equals(hash)) {
+                        problems.add(file.path() + ": chunk " + hash + " does not match its hash");
+                    }
+                    fileDigest.update(data);
+                    if (regionCheck != null) {
+                        regionCheck.update(data, 0, data.length);
+                    }
+                    size += data.length;
+                }
+                checkFile(file.path(), file.size(), size, file.sha256(), fileDigest, regionCheck, problems);
+            }));
+        }
+    }
+
+    private void addRegionDeltaChecks(ServerInstance instance, BackupRecord record, IoRateLimiter limiter, List<Check> checks) throws IOException {
+        List<RegionDeltaIndex> chain = regionDeltaBackupEngine.loadChain(instance, record.getBackupId());
+        RegionDeltaIndex target = chain.get(0);
+        addArtifactCheck(regionDeltaBackupEngine.indexPath(instance, target.id()), record, limiter, checks);
+
+        for (RegionDeltaIndex.FileEntry file : target.files()) {
+            Path stored = regionDeltaBackupEngine.storedFilePath(instance, file);
+            checks.add(new Check(file.path(), 1, problems -> {
+                try (InputStream in = limiter.wrap(Files.newInputStream(stored))) {
+                    verifyStream(file.path(), file.size(), file.sha256(), in, problems);
+                }
+            }));
+        }
+
+        // A delta is only restorable if every chunk its regions list resolves somewhere along the chain
+        List<Map<String, RegionDeltaIndex.RegionEntry>> chainRegions = new ArrayList<>();
+        for (RegionDeltaIndex backup : chain) {
+            Map<String, RegionDeltaIndex.RegionEntry> regions = new HashMap<>();
+            backup.regions().forEach(region -> regions.put(region.path(), region));
+            chainRegions.add(regions);
+        }
+        for (RegionDeltaIndex.RegionEntry region : target.regions()) {
+            checks.add(new Check(region.path(), 1, problems ->
+                    verifyRegion(instance, chain, chainRegions, region, limiter, problems)));
+        }
+    }
+
+    private void verifyRegion(ServerInstance instance, List<RegionDeltaIndex> chain,
+                              List<Map<String, RegionDeltaIndex.RegionEntry>> chainRegions, RegionDeltaIndex.RegionEntry region,
+                              IoRateLimiter limiter, List<String> problems) throws IOException {
+        RegionDeltaIndex.ChunkRef[] refs = new RegionDeltaIndex.ChunkRef[RegionDeltaBackupEngine.CHUNKS_PER_REGION];
+        int[] sources = new int[refs.length];
+        for (int c = 0; c < chain.size(); c++) {
+            RegionDeltaIndex.RegionEntry entry = chainRegions.get(c).get(region.path());
+            if (entry == null) {
+                continue;
+            }
+            for (RegionDeltaIndex.ChunkRef ref : entry.chunks()) {
+                if (refs[ref.index()] == null) {
+                    refs[ref.index()] = ref;
+                    sources[ref.index()] = c;
+                }
+            }
+        }
+
+        Map<Integer, FileChannel> chunkFiles = new HashMap<>();
+        try {
+            for (int i = 0; i < refs.length; i++) {
+                int length = region.lengths()[i];
+                if (length == 0) {
+                    continue;
+                }
+                RegionDeltaIndex.ChunkRef ref = refs[i];
+                if (ref == null) {
+                    problems.add(region.path() + ": chunk " + i + " is missing from the backup chain");
+                    continue;
+                }
+                if (ref.length() != length) {
+                    problems.add(region.path() + ": chunk " + i + " is stored with " + ref.length() + " bytes, index expects " + length);
+                    continue;
+                }
+
+                int source = sources[i];
+                FileChannel channel = chunkFiles.get(source);
+                if (channel == null) {
+                    channel = FileChannel.open(regionDeltaBackupEngine.chunkDataPath(instance, chain.get(source).id()), StandardOpenOption.READ);
+                    chunkFiles.put(source, channel);
+                }
+
+                limiter.acquire(length);
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                long position = ref.offset();
+                while (payload.hasRemaining()) {
+                    if (channel.read(payload, position + payload.position()) < 0) {
+                        throw new IOException("Chunk data of " + chain.get(source).id() + " is truncated");
+                    }
+                }
+                payload.flip();
+
+                if (ref.crc32c() != null) {
+                    CRC32C crc = new CRC32C();
+                    crc.update(payload.duplicate());
+                    if ((int) crc.getValue() != ref.crc32c()) {
+                        problems.add(region.path() + ": chunk " + i + " does not match its checksum");
+                        continue;
+                    }
+                }
+                int allocated = (length + RegionDeltaBackupEngine.SECTOR_BYTES - 1) / RegionDeltaBackupEngine.SECTOR_BYTES *
+                        RegionDeltaBackupEngine.SECTOR_BYTES;
+                String problem = RegionHeaderCheck.checkChunkPrefix(i, payload.getInt(0), payload.get(4) & 0xff, allocated);
+                if (problem != null) {
+                    problems.add(region.path() + ": " + problem);
+                }
+            }
+        } finally {
+            for (FileChannel channel : chunkFiles.values()) {
+                channel.close();
+            }
+        }
+    }
+
+    // The catalog checksum covers the archive, manifest or index file itself
+    private void addArtifactCheck(Path artifact, BackupRecord record, IoRateLimiter limiter, List<Check> checks) {
+        if (record.getChecksum() == null) {
+            return;
+        }
+        checks.add(new Check(artifact.getFileName().toString(), 0, problems -> {
+            MessageDigest digest = ChunkStore.sha256();
+            try (InputStream in = limiter.wrap(Files.newInputStream(artifact))) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            if (!HEX.formatHex(digest.digest()).equals(record.getChecksum())) {
+                problems.add(artifact.getFileName() + ": checksum does not match the catalog");
+            }
+        }));
+    }
+
+    private static void verifyStream(String path, long expectedSize, String expectedSha256, InputStream in,
+                                     List<String> problems) throws IOException {
+        MessageDigest digest = ChunkStore.sha256();
+        RegionHeaderCheck regionCheck = RegionHeaderCheck.applies(path, expectedSize) ? new RegionHeaderCheck(path, expectedSize) : null;
+        byte[] buffer = new byte[64 * 1024];
+        long size = 0;
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            digest.update(buffer, 0, read);
+            if (regionCheck != null) {
+                regionCheck.update(buffer, 0, read);
+            }
+            size += read;
+        }
+        checkFile(path, expectedSize, size, expectedSha256, digest, regionCheck, problems);
+    }
+
+    private static void checkFile(String path, long expectedSize, long size, String expectedSha256, MessageDigest digest,
+                                  RegionHeaderCheck regionCheck, List<String> problems) {
+        if (size != expectedSize) {
+            problems.add(path + ": expected " + expectedSize + " bytes, read " + size);
+        } else if (expectedSha256 != null && !HEX.formatHex(digest.digest()).equals(expectedSha256)) {
+            problems.add(path + ": content does not match its checksum");
+        }
+        if (regionCheck != null) {
+            problems.addAll(regionCheck.finish());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    private int workerThreads() {
+        return configuredThreads > 0 ? configuredThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    private ExecutorService workers() {
+        if (workers == null) {
+            synchronized (this) {
+                if (workers == null) {
+                    AtomicInteger threadIndex = new AtomicInteger();
+                    workers = Executors.newFixedThreadPool(workerThreads(), r -> {
+                        Thread t = new Thread(r, "backup-verify-" + threadIndex.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+        return workers;
+    }
+}
@@ -0,0 +1,90 @@
+package mc.server.service.backup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Content-addressed store: every chunk lives once under chunks/<first two hex chars>/<sha-256>
+public class ChunkStore {
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path chunksDir;
+
+    public ChunkStore(Path chunksDir) {
+        this.chunksDir = chunksDir;
+    }
+
+    public record PutResult(String hash, boolean stored) {}
+
+    public PutResult put(byte[] buffer, int offset, int length) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(buffer, offset, length);
+        String hash = HEX.formatHex(digest.digest());
+
+        Path chunkPath = pathOf(hash);
+        if (Files.exists(chunkPath)) {
+            return new PutResult(hash, false);
+        }
+
+        Files.createDirectories(chunkPath.getParent());
+        Path tempPath = chunkPath.resolveSibling(hash + ".tmp-" + Thread.currentThread().getId());
+        try (OutputStream out = Files.newOutputStream(tempPath)) {
+            out.write(buffer, offset, length);
+        }
+        Files.move(tempPath, chunkPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new PutResult(hash, true);
+    }
+
+    public boolean contains(String hash) {
+        return Files.exists(pathOf(hash));
+    }
+
+    public byte[] read(String hash) throws IOException {
+        return Files.readAllBytes(pathOf(hash));
+    }
+
+    public long size(String hash) throws IOException {
+        return Files.size(pathOf(hash));
+    }
+
+    public Set<String> listChunks() throws IOException {
+        Set<String> hashes = new HashSet<>();
+        if (!Files.isDirectory(chunksDir)) {
+            return hashes;
+        }
+        try (Stream<Path> files = Files.walk(chunksDir, 2)) {
+            files.filter(Files::isRegularFile)
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.length() == 64)
+                    .forEach(hashes::add);
+        }
+        return hashes;
+    }
+
+    public long delete(String hash) throws IOException {
+        Path chunkPath = pathOf(hash);
+        long size = Files.exists(chunkPath) ? Files.size(chunkPath) : 0;
+        Files.deleteIfExists(chunkPath);
+        return size;
+    }
+
+    Path pathOf(String hash) {
+        return chunksDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package mc.server.service.backup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+
+// Gear-hash content-defined chunking: boundaries follow the content, so an edit in the middle of a
+// file only changes the chunks around it instead of shifting every chunk after it
+public class ContentDefinedChunker {
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x6d63_7061_6e65_6cL);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    @FunctionalInterface
+    public interface ChunkHandler {
+        void accept(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    private final int minSize;
+    private final int maxSize;
+    private final long mask;
+
+    public ContentDefinedChunker(int minSize, int averageSize, int maxSize) {
+        if (minSize <= 0 || averageSize < minSize || maxSize < averageSize) {
+            throw new IllegalArgumentException("Chunk sizes must satisfy 0 < min <= average <= max");
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        int bits = 63 - Long.numberOfLeadingZeros(averageSize);
+        // Test the high bits, they depend on the last 64 bytes rather than only the last few
+        this.mask = ((1L << bits) - 1) << (64 - bits);
+    }
+
+    // The handler must consume the bytes before returning, the buffer is reused for the next chunk
+    public void split(InputStream in, ChunkHandler handler) throws IOException {
+        byte[] buffer = new byte[maxSize];
+        int filled = 0;
+        boolean eof = false;
+
+        while (true) {
+            while (!eof && filled < maxSize) {
+                int read = in.read(buffer, filled, maxSize - filled);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    filled += read;
+                }
+            }
+            if (filled == 0) {
+                return;
+            }
+
+            int cut = findBoundary(buffer, filled);
+            handler.accept(buffer, 0, cut);
+            System.arraycopy(buffer, cut, buffer, 0, filled - cut);
+            filled -= cut;
+        }
+    }
+
+    private int findBoundary(byte[] buffer, int length) {
+        if (length <= minSize) {
+            return length;
+        }
+        long hash = 0;
+        for (int i = minSize; i < length; i++) {
+            hash = (hash << 1) + GEAR[buffer[i] & 0xff];
+            if ((hash & mask) == 0) {
+                return i + 1;
+            }
+        }
+        return length;
+    }
+}
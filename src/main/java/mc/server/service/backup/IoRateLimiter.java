@@ -0,0 +1,105 @@
+package mc.server.service.backup;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+// Token bucket in bytes per second. Callers take their bytes up front and sleep off any debt,
+// so large reads are paced correctly without having to be split into bucket-sized pieces
+public class IoRateLimiter {
+    private static final long MIN_BURST_BYTES = 256 * 1024;
+
+    private long bytesPerSecond;
+    private double available;
+    private long lastRefillNanos = System.nanoTime();
+    private long totalBytes;
+
+    public IoRateLimiter(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public synchronized void setRate(long bytesPerSecond) {
+        refill();
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public synchronized long getRate() {
+        return bytesPerSecond;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void acquire(long bytes) throws InterruptedIOException {
+        long sleepNanos;
+        synchronized (this) {
+            totalBytes += bytes;
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            refill();
+            available -= bytes;
+            sleepNanos = available < 0 ? (long) (-available * 1_000_000_000.0 / bytesPerSecond) : 0;
+        }
+        if (sleepNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling backup I/O");
+            }
+        }
+    }
+
+    public InputStream wrap(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    acquire(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    acquire(read);
+                }
+                return read;
+            }
+        };
+    }
+
+    public OutputStream wrap(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                acquire(1);
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                acquire(length);
+                out.write(buffer, offset, length);
+            }
+        };
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (bytesPerSecond > 0) {
+            double burst = Math.max(MIN_BURST_BYTES, bytesPerSecond / 4.0);
+            available = Math.min(burst, available + (now - lastRefillNanos) * bytesPerSecond / 1_000_000_000.0);
+        }
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,61 @@
+package mc.server.service.backup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+// Copies backups to another directory, typically a second disk or a network mount
+@Slf4j
+@Component
+public class LocalDirectoryBackupTarget implements BackupTarget {
+
+    @Value("${minecraft.backup.offload.local.path:}")
+    private String targetPath;
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return targetPath != null && !targetPath.isBlank();
+    }
+
+    @Override
+    public void upload(Path file, OffloadJob.FileState state, IoRateLimiter limiter, Runnable checkpoint) throws IOException {
+        Path destination = resolve(state.getKey());
+        if (Files.isRegularFile(destination) && Files.size(destination) == state.getSize()) {
+            return;
+        }
+        Files.createDirectories(destination.getParent());
+        Path tempPath = destination.resolveSibling(destination.getFileName() + ".tmp");
+        try (InputStream in = limiter.wrap(Files.newInputStream(file))) {
+            Files.copy(in, tempPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(tempPath, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void delete(OffloadJob.FileState state) throws IOException {
+        Path destination = resolve(state.getKey());
+        Files.deleteIfExists(destination);
+        Files.deleteIfExists(destination.resolveSibling(destination.getFileName() + ".tmp"));
+    }
+
+    private Path resolve(String key) throws IOException {
+        Path root = Paths.get(targetPath).toAbsolutePath().normalize();
+        Path resolved = root.resolve(key).normalize();
+        if (!resolved.startsWith(root)) {
+            throw new IOException("Offload key escapes the target directory: " + key);
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,33 @@
+package mc.server.service.backup;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Persisted next to the backups so an interrupted upload resumes where it stopped after a restart
+@Data
+@NoArgsConstructor
+public class OffloadJob {
+    private Long instanceId;
+    private String backupId;
+    private String target;
+    private String status;
+    private int attempts;
+    private List<FileState> files = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    public static class FileState {
+        // Relative to the instance's backups directory
+        private String path;
+        private String key;
+        private long size;
+        private boolean uploaded;
+        private String uploadId;
+        // Written by several upload workers while checkpoints serialize it
+        private ConcurrentSkipListMap<Integer, String> parts = new ConcurrentSkipListMap<>();
+    }
+}
@@ -0,0 +1,156 @@
+package mc.server.service.backup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+// Compresses fixed-size blocks in parallel, each as its own gzip member. Concatenated members are a valid
+// gzip file for any standard reader, and the recorded member offsets make the archive seekable
+public class ParallelGzipOutputStream extends OutputStream {
+
+    public record Member(long uncompressedOffset, int uncompressedLength, long compressedOffset, int compressedLength) {}
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int blockSize;
+    private final int level;
+    private final int maxInFlight;
+
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private final Deque<Integer> inFlightLengths = new ArrayDeque<>();
+    private final List<Member> members = new ArrayList<>();
+
+    private byte[] block;
+    private int blockFill;
+    private long uncompressedBytes;
+    private long compressedBytes;
+    private boolean closed;
+
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int blockSize, int level, int maxInFlight) {
+        this.out = out;
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.level = level;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            int copy = Math.min(length, blockSize - blockFill);
+            System.arraycopy(buffer, offset, block, blockFill, copy);
+            blockFill += copy;
+            offset += copy;
+            length -= copy;
+            if (blockFill == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (blockFill > 0) {
+                submitBlock();
+            }
+            while (!inFlight.isEmpty()) {
+                writeOldest();
+            }
+            out.flush();
+        } finally {
+            closed = true;
+            inFlight.forEach(future -> future.cancel(true));
+            out.close();
+        }
+    }
+
+    public List<Member> getMembers() {
+        return Collections.unmodifiableList(members);
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    private void submitBlock() throws IOException {
+        byte[] data = block;
+        int length = blockFill;
+        block = new byte[blockSize];
+        blockFill = 0;
+
+        // Bounded in-flight window keeps memory at roughly maxInFlight blocks no matter how slow the sink is
+        while (inFlight.size() >= maxInFlight) {
+            writeOldest();
+        }
+        inFlight.addLast(executor.submit(() -> compress(data, length)));
+        inFlightLengths.addLast(length);
+    }
+
+    private void writeOldest() throws IOException {
+        Future<byte[]> future = inFlight.removeFirst();
+        int length = inFlightLengths.removeFirst();
+        byte[] compressed;
+        try {
+            compressed = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing backup block");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress backup block", e.getCause());
+        }
+
+        out.write(compressed);
+        members.add(new Member(uncompressedBytes, length, compressedBytes, compressed.length));
+        uncompressedBytes += length;
+        compressedBytes += compressed.length;
+    }
+
+    private byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer, 64 * 1024) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(data, 0, length);
+        }
+        return buffer.toByteArray();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package mc.server.service.backup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.ServerInstance;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Anvil region files start with an 8 KiB header: 1024 chunk locations followed by 1024 chunk timestamps.
+// Comparing timestamps against the previous backup tells which chunks changed without reading the payloads
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RegionDeltaBackupEngine {
+    static final int SECTOR_BYTES = 4096;
+    static final int CHUNKS_PER_REGION = 1024;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final String INDEX_FILE = "index.json";
+    private static final String CHUNK_DATA_FILE = "chunks.bin";
+
+    @Value("${minecraft.backup.region-delta.max-chain:7}")
+    private int maxChainLength;
+
+    private final ObjectMapper objectMapper;
+
+    public RegionDeltaIndex createBackup(ServerInstance instance, Path sourceRoot, List<String> worldDirs,
+                                         IoRateLimiter ioLimiter) throws IOException {
+        long startNanos = System.nanoTime();
+        long startedAtEpochSecond = Instant.now().getEpochSecond();
+        LocalDateTime createdAt = LocalDateTime.now();
+
+        List<RegionDeltaIndex> existing = listBackups(instance);
+        RegionDeltaIndex previous = existing.isEmpty() ? null : existing.get(existing.size() - 1);
+        RegionDeltaIndex parent = previous != null && previous.chainLength() < maxChainLength ? previous : null;
+
+        String id = "region_" + createdAt.format(TIMESTAMP_FORMAT);
+        Path backupPath = rootDir(instance).resolve(id);
+        Files.createDirectories(backupPath);
+
+        Map<String, RegionDeltaIndex.RegionEntry> parentRegions = new HashMap<>();
+        Map<String, RegionDeltaIndex.FileEntry> parentFiles = new HashMap<>();
+        if (parent != null) {
+            parent.regions().forEach(region -> parentRegions.put(region.path(), region));
+            parent.files().forEach(file -> parentFiles.put(file.path(), file));
+        }
+
+        List<RegionDeltaIndex.RegionEntry> regions = new ArrayList<>();
+        List<RegionDeltaIndex.FileEntry> files = new ArrayList<>();
+        long headerBytesRead = 0;
+        long chunkBytesCopied = 0;
+        long fileBytesCopied = 0;
+
+        try (FileChannel chunkData = FileChannel.open(backupPath.resolve(CHUNK_DATA_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Path file : listFiles(sourceRoot, worldDirs)) {
+                String relativePath = sourceRoot.relativize(file).toString().replace('\\', '/');
+                long size = Files.size(file);
+
+                if (isRegionFile(file, size)) {
+                    RegionDeltaIndex.RegionEntry region = captureRegion(file, relativePath,
+                            parentRegions.get(relativePath), parent, chunkData, ioLimiter);
+                    regions.add(region);
+                    headerBytesRead += 2L * SECTOR_BYTES;
+                    chunkBytesCopied += region.chunks().stream().mapToLong(RegionDeltaIndex.ChunkRef::length).sum();
+                    continue;
+                }
+
+                long lastModified = Files.getLastModifiedTime(file).toMillis();
+                RegionDeltaIndex.FileEntry parentFile = parentFiles.get(relativePath);
+                if (parentFile != null && parentFile.size() == size && parentFile.lastModified() == lastModified) {
+                    files.add(parentFile);
+                    continue;
+                }
+
+                Path target = backupPath.resolve("files").resolve(relativePath);
+                Files.createDirectories(target.getParent());
+                MessageDigest digest = ChunkStore.sha256();
+                try (InputStream in = new DigestInputStream(ioLimiter.wrap(Files.newInputStream(file)), digest)) {
+                    Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.setLastModifiedTime(target, FileTime.fromMillis(lastModified));
+                files.add(new RegionDeltaIndex.FileEntry(relativePath, size, lastModified, id, HexFormat.of().formatHex(digest.digest())));
+                fileBytesCopied += size;
+            }
+        } catch (IOException e) {
+            BackupFiles.deleteRecursively(backupPath);
+            throw e;
+        }
+
+        RegionDeltaIndex index = new RegionDeltaIndex(
+                id,
+                parent != null ? parent.id() : null,
+                parent != null ? parent.baseId() : id,
+                parent != null ? parent.chainLength() + 1 : 0,
+                startedAtEpochSecond,
+                createdAt,
+                worldDirs,
+                regions,
+                files
+        );
+        writeIndex(backupPath, index);
+
+        log.info("Region {} backup {} for instance {} finished in {} ms: {} regions ({} KB of headers, {} MB of changed chunks), {} MB of other files",
+                parent == null ? "base" : "delta", id, instance.getId(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), regions.size(),
+                headerBytesRead / 1024, String.format("%.2f", chunkBytesCopied / (1024.0 * 1024.0)),
+                String.format("%.2f", fileBytesCopied / (1024.0 * 1024.0)));
+        return index;
+    }
+
+    private RegionDeltaIndex.RegionEntry captureRegion(Path file, String relativePath, RegionDeltaIndex.RegionEntry parentRegion,
+                                                       RegionDeltaIndex parent, FileChannel chunkData,
+                                                       IoRateLimiter ioLimiter) throws IOException {
+        int[] timestamps = new int[CHUNKS_PER_REGION];
+        int[] lengths = new int[CHUNKS_PER_REGION];
+        List<RegionDeltaIndex.ChunkRef> chunks = new ArrayList<>();
+
+        try (FileChannel region = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer header = region.map(FileChannel.MapMode.READ_ONLY, 0, 2L * SECTOR_BYTES);
+            ioLimiter.acquire(2L * SECTOR_BYTES);
+            long regionSize = region.size();
+
+            for (int i = 0; i < CHUNKS_PER_REGION; i++) {
+                int location = header.getInt(i * 4);
+                long sectorOffset = location >>> 8;
+                int sectorCount = location & 0xff;
+                timestamps[i] = header.getInt(SECTOR_BYTES + i * 4);
+                if (sectorOffset < 2 || sectorCount == 0) {
+                    timestamps[i] = 0;
+                    continue;
+                }
+
+                // Timestamps have one second resolution, so a chunk saved in the second the parent was taken is re-copied
+                boolean changed = parentRegion == null || parentRegion.lengths()[i] == 0 ||
+                        parentRegion.timestamps()[i] != timestamps[i] ||
+                        timestamps[i] >= parent.startedAtEpochSecond() - 1;
+                if (!changed) {
+                    lengths[i] = parentRegion.lengths()[i];
+                    continue;
+                }
+
+                long position = sectorOffset * SECTOR_BYTES;
+                if (position + 5 > regionSize) {
+                    log.warn("Chunk {} of {} points past the end of the file, skipping", i, relativePath);
+                    timestamps[i] = 0;
+                    continue;
+                }
+                ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+                readFully(region, lengthBuffer, position);
+                int payloadLength = Math.min(4 + lengthBuffer.flip().getInt(), sectorCount * SECTOR_BYTES);
+                if (payloadLength <= 5 || position + payloadLength > regionSize) {
+                    log.warn("Chunk {} of {} has an invalid length, skipping", i, relativePath);
+                    timestamps[i] = 0;
+                    continue;
+                }
+
+                ioLimiter.acquire(payloadLength);
+                ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+                readFully(region, payload, position);
+                long offset = chunkData.position();
+                payload.flip();
+                CRC32C crc = new CRC32C();
+                crc.update(payload.duplicate());
+                while (payload.hasRemaining()) {
+                    chunkData.write(payload);
+                }
+                chunks.add(new RegionDeltaIndex.ChunkRef(i, offset, payloadLength, (int) crc.getValue()));
+                lengths[i] = payloadLength;
+            }
+        }
+        return new RegionDeltaIndex.RegionEntry(relativePath, timestamps, lengths, chunks);
+    }
+
+    public record RestoreEstimate(int files, long bytes) {}
+
+    public RestoreEstimate estimate(ServerInstance instance, String backupId, Predicate<String> selector) throws IOException {
+        RegionDeltaIndex target = readIndex(instance, backupId);
+        int files = 0;
+        long bytes = 0;
+        for (RegionDeltaIndex.FileEntry file : target.files()) {
+            if (selector.test(file.path())) {
+                files++;
+                bytes += file.size();
+            }
+        }
+        for (RegionDeltaIndex.RegionEntry region : target.regions()) {
+            if (selector.test(region.path())) {
+                files++;
+                bytes += 2L * SECTOR_BYTES;
+                for (int length : region.lengths()) {
+                    bytes += (long) (length + SECTOR_BYTES - 1) / SECTOR_BYTES * SECTOR_BYTES;
+                }
+            }
+        }
+        return new RestoreEstimate(files, bytes);
+    }
+
+    public int restore(ServerInstance instance, String backupId, Predicate<String> selector, Path targetRoot,
+                       IoRateLimiter ioLimiter) throws IOException {
+        List<RegionDeltaIndex> chain = loadChain(instance, backupId);
+        RegionDeltaIndex target = chain.get(0);
+        Path normalizedRoot = targetRoot.normalize();
+        int restored = 0;
+
+        for (RegionDeltaIndex.FileEntry file : target.files()) {
+            if (!selector.test(file.path())) {
+                continue;
+            }
+            Path source = rootDir(instance).resolve(file.sourceId()).resolve("files").resolve(file.path());
+            Path destination = resolveInside(normalizedRoot, file.path());
+            Files.createDirectories(destination.getParent());
+            Path tempPath = destination.resolveSibling(destination.getFileName() + ".restore-tmp");
+            try (InputStream in = ioLimiter.wrap(Files.newInputStream(source))) {
+                Files.copy(in, tempPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tempPath, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.setLastModifiedTime(destination, FileTime.fromMillis(file.lastModified()));
+            restored++;
+        }
+
+        Map<String, FileChannel> chunkFiles = new HashMap<>();
+        try {
+            for (RegionDeltaIndex.RegionEntry region : target.regions()) {
+                if (selector.test(region.path())) {
+                    rebuildRegion(instance, chain, region, resolveInside(normalizedRoot, region.path()), chunkFiles, ioLimiter);
+                    restored++;
+                }
+            }
+        } finally {
+            for (FileChannel channel : chunkFiles.values()) {
+                channel.close();
+            }
+        }
+        log.info("Restored {} files of region backup {} of instance {} into {} (chain of {})",
+                restored, backupId, instance.getId(), targetRoot, chain.size());
+        return restored;
+    }
+
+    private void rebuildRegion(ServerInstance instance, List<RegionDeltaIndex> chain, RegionDeltaIndex.RegionEntry region,
+                               Path destination, Map<String, FileChannel> chunkFiles, IoRateLimiter ioLimiter) throws IOException {
+        // Newest copy of each chunk wins, walking from the requested backup back to its base
+        Map<Integer, RegionDeltaIndex.ChunkRef> chunkRefs = new HashMap<>();
+        Map<Integer, String> chunkSources = new HashMap<>();
+        for (RegionDeltaIndex backup : chain) {
+            backup.regions().stream()
+                    .filter(entry -> entry.path().equals(region.path()))
+                    .findFirst()
+                    .ifPresent(entry -> entry.chunks().forEach(ref -> {
+                        if (chunkRefs.putIfAbsent(ref.index(), ref) == null) {
+                            chunkSources.put(ref.index(), backup.id());
+                        }
+                    }));
+        }
+
+        Files.createDirectories(destination.getParent());
+        Path tempPath = destination.resolveSibling(destination.getFileName() + ".restore-tmp");
+        try (FileChannel out = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(2 * SECTOR_BYTES);
+            long nextSector = 2;
+
+            for (int i = 0; i < CHUNKS_PER_REGION; i++) {
+                if (region.lengths()[i] == 0) {
+                    continue;
+                }
+                RegionDeltaIndex.ChunkRef ref = chunkRefs.get(i);
+                if (ref == null) {
+                    throw new IOException("Backup chain is missing chunk " + i + " of " + region.path());
+                }
+
+                String sourceId = chunkSources.get(i);
+                FileChannel source = chunkFiles.get(sourceId);
+                if (source == null) {
+                    source = FileChannel.open(rootDir(instance).resolve(sourceId).resolve(CHUNK_DATA_FILE), StandardOpenOption.READ);
+                    chunkFiles.put(sourceId, source);
+                }
+
+                ioLimiter.acquire(ref.length());
+                ByteBuffer payload = ByteBuffer.allocate(ref.length());
+                readFully(source, payload, ref.offset());
+                payload.flip();
+                int sectors = (ref.length() + SECTOR_BYTES - 1) / SECTOR_BYTES;
+                long position = nextSector * SECTOR_BYTES;
+                while (payload.hasRemaining()) {
+                    position += out.write(payload, position);
+                }
+
+                header.putInt(i * 4, (int) (nextSector << 8) | sectors);
+                header.putInt(SECTOR_BYTES + i * 4, region.timestamps()[i]);
+                nextSector += sectors;
+            }
+
+            // Region files are sector aligned, pad the tail so the last chunk occupies whole sectors
+            long end = nextSector * SECTOR_BYTES;
+            if (out.size() < end) {
+                out.write(ByteBuffer.wrap(new byte[1]), end - 1);
+            }
+            header.rewind();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += out.write(header, position);
+            }
+        }
+        Files.move(tempPath, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public List<RegionDeltaIndex> listBackups(ServerInstance instance) throws IOException {
+        Path root = rootDir(instance);
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        List<RegionDeltaIndex> indexes = new ArrayList<>();
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                Path indexPath = dir.resolve(INDEX_FILE);
+                if (!Files.exists(indexPath)) {
+                    continue;
+                }
+                try {
+                    indexes.add(objectMapper.readValue(indexPath.toFile(), RegionDeltaIndex.class));
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable region backup index {}: {}", indexPath, e.getMessage());
+                }
+            }
+        }
+        indexes.sort(Comparator.comparing(RegionDeltaIndex::createdAt));
+        return indexes;
+    }
+
+    public Path backupPath(ServerInstance instance, String backupId) {
+        Path root = rootDir(instance);
+        Path path = root.resolve(backupId).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Invalid region backup id: " + backupId);
+        }
+        return path;
+    }
+
+    public Path indexPath(ServerInstance instance, String backupId) {
+        return backupPath(instance, backupId).resolve(INDEX_FILE);
+    }
+
+    Path chunkDataPath(ServerInstance instance, String backupId) {
+        return backupPath(instance, backupId).resolve(CHUNK_DATA_FILE);
+    }
+
+    Path storedFilePath(ServerInstance instance, RegionDeltaIndex.FileEntry file) {
+        return backupPath(instance, file.sourceId()).resolve("files").resolve(file.path());
+    }
+
+    List<RegionDeltaIndex> loadChain(ServerInstance instance, String backupId) throws IOException {
+        List<RegionDeltaIndex> chain = new ArrayList<>();
+        String currentId = backupId;
+        while (currentId != null) {
+            RegionDeltaIndex index = readIndex(instance, currentId);
+            chain.add(index);
+            currentId = index.parentId();
+        }
+        return chain;
+    }
+
+    private RegionDeltaIndex readIndex(ServerInstance instance, String backupId) throws IOException {
+        Path root = rootDir(instance);
+        Path indexPath = root.resolve(backupId).resolve(INDEX_FILE).normalize();
+        if (!indexPath.startsWith(root) || !Files.exists(indexPath)) {
+            throw new IllegalArgumentException("Region backup not found: " + backupId);
+        }
+        return objectMapper.readValue(indexPath.toFile(), RegionDeltaIndex.class);
+    }
+
+    private void writeIndex(Path backupPath, RegionDeltaIndex index) throws IOException {
+        Path tempPath = backupPath.resolve(INDEX_FILE + ".tmp");
+        objectMapper.writeValue(tempPath.toFile(), index);
+        Files.move(tempPath, backupPath.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<Path> listFiles(Path sourceRoot, List<String> worldDirs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String worldDir : worldDirs) {
+            try (Stream<Path> walk = Files.walk(sourceRoot.resolve(worldDir))) {
+                walk.filter(Files::isRegularFile)
+                        .filter(path -> !path.getFileName().toString().equals("session.lock"))
+                        .forEach(files::add);
+            }
+        }
+        files.sort(Comparator.naturalOrder());
+        return files;
+    }
+
+    static boolean isRegionFile(Path file, long size) {
+        return file.getFileName().toString().endsWith(".mca") && size >= 2L * SECTOR_BYTES;
+    }
+
+    private static Path resolveInside(Path root, String relativePath) throws IOException {
+        Path resolved = root.resolve(relativePath).normalize();
+        if (!resolved.startsWith(root)) {
+            throw new IOException("Backup entry escapes restore target: " + relativePath);
+        }
+        return resolved;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+
+    private Path rootDir(ServerInstance instance) {
+        return Paths.get(instance.getInstancePath(), "backups", "region-delta");
+    }
+}
@@ -0,0 +1,24 @@
+package mc.server.service.backup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record RegionDeltaIndex(
+        String id,
+        String parentId,
+        String baseId,
+        int chainLength,
+        long startedAtEpochSecond,
+        LocalDateTime createdAt,
+        List<String> worldDirs,
+        List<RegionEntry> regions,
+        List<FileEntry> files
+) {
+    // timestamps and lengths describe the full region state, chunks only the payloads stored by this backup
+    public record RegionEntry(String path, int[] timestamps, int[] lengths, List<ChunkRef> chunks) {}
+
+    // CRC32C rather than SHA-256 keeps the index small, a full base holds one ref per generated chunk
+    public record ChunkRef(int index, long offset, int length, Integer crc32c) {}
+
+    public record FileEntry(String path, long size, long lastModified, String sourceId, String sha256) {}
+}
@@ -0,0 +1,142 @@
+package mc.server.service.backup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static mc.server.service.backup.RegionDeltaBackupEngine.CHUNKS_PER_REGION;
+import static mc.server.service.backup.RegionDeltaBackupEngine.SECTOR_BYTES;
+
+// Checks an Anvil region file as it streams past: header locations must stay inside the file without
+// overlapping, and each chunk must start with a plausible length and compression type
+final class RegionHeaderCheck {
+    private static final int HEADER_BYTES = 2 * SECTOR_BYTES;
+    private static final int CHUNK_PREFIX_BYTES = 5;
+    private static final int MAX_PROBLEMS = 5;
+
+    private final String path;
+    private final long fileSize;
+    private final byte[] header = new byte[HEADER_BYTES];
+    private final List<String> problems = new ArrayList<>();
+    private final byte[] prefix = new byte[CHUNK_PREFIX_BYTES];
+
+    private long position;
+    // Sorted by start sector, encoded as (sectorOffset << 32 | sectorCount << 16 | index)
+    private long[] chunks;
+    private int nextChunk;
+    private int prefixFilled;
+
+    RegionHeaderCheck(String path, long fileSize) {
+        this.path = path;
+        this.fileSize = fileSize;
+    }
+
+    static boolean applies(String path, long size) {
+        return path.endsWith(".mca") && size >= HEADER_BYTES;
+    }
+
+    void update(byte[] buffer, int offset, int length) {
+        long end = position + length;
+        if (position < HEADER_BYTES) {
+            int copy = (int) Math.min(length, HEADER_BYTES - position);
+            System.arraycopy(buffer, offset, header, (int) position, copy);
+            if (position + copy == HEADER_BYTES) {
+                parseHeader();
+            }
+        }
+
+        while (chunks != null && nextChunk < chunks.length) {
+            long start = (chunks[nextChunk] >>> 32) * SECTOR_BYTES + prefixFilled;
+            if (start >= end) {
+                break;
+            }
+            if (start < position) {
+                // Only possible for a chunk overlapping the previous one, which parseHeader already reported
+                nextChunk++;
+                continue;
+            }
+            long available = Math.min(end - start, CHUNK_PREFIX_BYTES - prefixFilled);
+            System.arraycopy(buffer, offset + (int) (start - position), prefix, prefixFilled, (int) available);
+            prefixFilled += (int) available;
+            if (prefixFilled < CHUNK_PREFIX_BYTES) {
+                break;
+            }
+            checkChunk(chunks[nextChunk]);
+            prefixFilled = 0;
+            nextChunk++;
+        }
+        position = end;
+    }
+
+    List<String> finish() {
+        if (chunks == null) {
+            problem("region header is truncated");
+        } else if (nextChunk < chunks.length) {
+            problem((chunks.length - nextChunk) + " chunks start past the end of the data");
+        }
+        return problems;
+    }
+
+    private void parseHeader() {
+        long sectorsInFile = (fileSize + SECTOR_BYTES - 1) / SECTOR_BYTES;
+        long[] located = new long[CHUNKS_PER_REGION];
+        int count = 0;
+
+        for (int i = 0; i < CHUNKS_PER_REGION; i++) {
+            int location = readInt(header, i * 4);
+            if (location == 0) {
+                continue;
+            }
+            long sectorOffset = location >>> 8;
+            int sectorCount = location & 0xff;
+            if (sectorOffset < 2 || sectorCount == 0) {
+                problem("chunk " + i + " has an invalid location (offset " + sectorOffset + ", " + sectorCount + " sectors)");
+            } else if (sectorOffset + sectorCount > sectorsInFile) {
+                problem("chunk " + i + " points past the end of the file");
+            } else {
+                located[count++] = sectorOffset << 32 | (long) sectorCount << 16 | i;
+            }
+        }
+
+        chunks = Arrays.copyOf(located, count);
+        Arrays.sort(chunks);
+        for (int i = 1; i < chunks.length; i++) {
+            long previousEnd = (chunks[i - 1] >>> 32) + ((chunks[i - 1] >>> 16) & 0xffff);
+            if (previousEnd > chunks[i] >>> 32) {
+                problem("chunks " + (chunks[i - 1] & 0xffff) + " and " + (chunks[i] & 0xffff) + " overlap");
+            }
+        }
+    }
+
+    private void checkChunk(long chunk) {
+        int sectorCount = (int) ((chunk >>> 16) & 0xffff);
+        String problem = checkChunkPrefix((int) (chunk & 0xffff), readInt(prefix, 0), prefix[4] & 0xff, sectorCount * SECTOR_BYTES);
+        if (problem != null) {
+            problem(problem);
+        }
+    }
+
+    // The high bit of the compression byte marks chunks stored in an external .mcc file,
+    // whose in-region payload is just that type byte
+    static String checkChunkPrefix(int index, int length, int compression, int allocatedBytes) {
+        int type = compression & 0x7f;
+        if (type != 1 && type != 2 && type != 3 && type != 4 && type != 127) {
+            return "chunk " + index + " has unknown compression type " + compression;
+        }
+        if (length < 1 || (compression & 0x80) == 0 && length + 4L > allocatedBytes) {
+            return "chunk " + index + " has length " + length + " in " + allocatedBytes + " allocated bytes";
+        }
+        return null;
+    }
+
+    private void problem(String message) {
+        if (problems.size() < MAX_PROBLEMS) {
+            problems.add(path + ": " + message);
+        }
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xff) << 24 | (buffer[offset + 1] & 0xff) << 16 |
+                (buffer[offset + 2] & 0xff) << 8 | buffer[offset + 3] & 0xff;
+    }
+}
@@ -0,0 +1,397 @@
+package mc.server.service.backup;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// S3 API over plain java.net.http with SigV4 signing, so MinIO and other S3-compatible stores work without an SDK.
+// Large files go up as parallel multipart uploads read straight from the local backup, one part in memory per worker
+@Slf4j
+@Component
+public class S3BackupTarget implements BackupTarget {
+    private static final long MIN_PART_BYTES = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+    private static final int MAX_REQUEST_ATTEMPTS = 3;
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final HexFormat HEX = HexFormat.of();
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    private static final Pattern PART = Pattern.compile("<Part>.*?<PartNumber>(\\d+)</PartNumber>.*?<ETag>([^<]+)</ETag>.*?</Part>", Pattern.DOTALL);
+    private static final Pattern NEXT_MARKER = Pattern.compile("<NextPartNumberMarker>(\\d+)</NextPartNumberMarker>");
+
+    @Value("${minecraft.backup.offload.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${minecraft.backup.offload.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${minecraft.backup.offload.s3.bucket:}")
+    private String bucket;
+
+    @Value("${minecraft.backup.offload.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${minecraft.backup.offload.s3.secret-key:}")
+    private String secretKey;
+
+    @Value("${minecraft.backup.offload.s3.path-style:true}")
+    private boolean pathStyle;
+
+    @Value("${minecraft.backup.offload.s3.part-bytes:16777216}")
+    private long configuredPartBytes;
+
+    @Value("${minecraft.backup.offload.s3.parallel-parts:4}")
+    private int parallelParts;
+
+    private volatile HttpClient httpClient;
+    private volatile ExecutorService partExecutor;
+
+    @Override
+    public String getName() {
+        return "s3";
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return !endpoint.isBlank() && !bucket.isBlank() && !accessKey.isBlank() && !secretKey.isBlank();
+    }
+
+    @Override
+    public void upload(Path file, OffloadJob.FileState state, IoRateLimiter limiter, Runnable checkpoint) throws IOException {
+        long size = state.getSize();
+        long partBytes = partBytes(size);
+        if (size <= partBytes) {
+            byte[] body = readRange(file, 0, (int) size, limiter);
+            send("PUT", state.getKey(), Map.of(), body);
+            return;
+        }
+
+        if (state.getUploadId() != null) {
+            Optional<Map<Integer, String>> remoteParts = listParts(state.getKey(), state.getUploadId());
+            synchronized (state) {
+                state.getParts().clear();
+                if (remoteParts.isPresent()) {
+                    // The store's view wins, a part may have landed after the last checkpoint
+                    state.getParts().putAll(remoteParts.get());
+                    log.info("Resuming upload of {} with {} parts already stored", state.getKey(), state.getParts().size());
+                } else {
+                    state.setUploadId(null);
+                }
+            }
+            checkpoint.run();
+        }
+        if (state.getUploadId() == null) {
+            String response = send("POST", state.getKey(), Map.of("uploads", ""), new byte[0]).body();
+            Matcher matcher = UPLOAD_ID.matcher(response);
+            if (!matcher.find()) {
+                throw new IOException("CreateMultipartUpload returned no upload id for " + state.getKey());
+            }
+            state.setUploadId(matcher.group(1));
+            checkpoint.run();
+        }
+
+        int partCount = (int) ((size + partBytes - 1) / partBytes);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            if (state.getParts().containsKey(partNumber)) {
+                continue;
+            }
+            int number = partNumber;
+            long offset = (partNumber - 1) * partBytes;
+            int length = (int) Math.min(partBytes, size - offset);
+            futures.add(partExecutor().submit(() -> {
+                byte[] body = readRange(file, offset, length, limiter);
+                HttpResponse<String> response = send("PUT", state.getKey(),
+                        Map.of("partNumber", String.valueOf(number), "uploadId", state.getUploadId()), body);
+                String etag = response.headers().firstValue("ETag")
+                        .orElseThrow(() -> new IOException("UploadPart returned no ETag for part " + number));
+                synchronized (state) {
+                    state.getParts().put(number, etag);
+                }
+                checkpoint.run();
+                return null;
+            }));
+        }
+        awaitParts(futures);
+
+        StringBuilder complete = new StringBuilder("<CompleteMultipartUpload>");
+        synchronized (state) {
+            state.getParts().forEach((number, etag) -> complete.append("<Part><PartNumber>").append(number)
+                    .append("</PartNumber><ETag>").append(etag).append("</ETag></Part>"));
+        }
+        complete.append("</CompleteMultipartUpload>");
+        String response = send("POST", state.getKey(), Map.of("uploadId", state.getUploadId()),
+                complete.toString().getBytes(StandardCharsets.UTF_8)).body();
+        // CompleteMultipartUpload can fail after the 200 status line has been sent, with the error in the body
+        if (response.contains("<Error>")) {
+            throw new IOException("CompleteMultipartUpload failed for " + state.getKey() + ": " + response);
+        }
+    }
+
+    @Override
+    public void delete(OffloadJob.FileState state) throws IOException {
+        if (!state.isUploaded() && state.getUploadId() != null) {
+            sendAllowingNotFound("DELETE", state.getKey(), Map.of("uploadId", state.getUploadId()));
+        }
+        sendAllowingNotFound("DELETE", state.getKey(), Map.of());
+    }
+
+    private Optional<Map<Integer, String>> listParts(String key, String uploadId) throws IOException {
+        Map<Integer, String> parts = new TreeMap<>();
+        String marker = null;
+        while (true) {
+            Map<String, String> query = new HashMap<>(Map.of("uploadId", uploadId));
+            if (marker != null) {
+                query.put("part-number-marker", marker);
+            }
+            Optional<HttpResponse<String>> response = sendAllowingNotFound("GET", key, query);
+            if (response.isEmpty()) {
+                return Optional.empty();
+            }
+            String body = response.get().body();
+            Matcher part = PART.matcher(body);
+            while (part.find()) {
+                parts.put(Integer.parseInt(part.group(1)), part.group(2).replace("&quot;", "\"").replace("&#34;", "\""));
+            }
+            Matcher next = NEXT_MARKER.matcher(body);
+            if (!body.contains("<IsTruncated>true</IsTruncated>") || !next.find()) {
+                return Optional.of(parts);
+            }
+            marker = next.group(1);
+        }
+    }
+
+    private void awaitParts(List<Future<?>> futures) throws IOException {
+        IOException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                throw new InterruptedIOException("Interrupted while uploading parts");
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private Optional<HttpResponse<String>> sendAllowingNotFound(String method, String key, Map<String, String> query) throws IOException {
+        try {
+            return Optional.of(send(method, key, query, null));
+        } catch (S3Exception e) {
+            if (e.status == 404) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    private HttpResponse<String> send(String method, String key, Map<String, String> query, byte[] body) throws IOException {
+        byte[] payload = body != null ? body : new byte[0];
+        String payloadHash = HEX.formatHex(ChunkStore.sha256().digest(payload));
+        URI base = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        String host = pathStyle ? base.getHost() : bucket + "." + base.getHost();
+        String hostHeader = base.getPort() == -1 ? host : host + ":" + base.getPort();
+        String path = (pathStyle ? "/" + bucket + "/" : "/") + uriEncode(key, false);
+        String canonicalQuery = canonicalQuery(query);
+        URI uri = URI.create(base.getScheme() + "://" + hostHeader + path + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+
+        for (int attempt = 1; ; attempt++) {
+            String amzDate = ZonedDateTime.now(ZoneOffset.UTC).format(AMZ_DATE);
+            SortedMap<String, String> headers = new TreeMap<>();
+            headers.put("host", hostHeader);
+            headers.put("x-amz-content-sha256", payloadHash);
+            headers.put("x-amz-date", amzDate);
+
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMinutes(5))
+                    .header("x-amz-content-sha256", payloadHash)
+                    .header("x-amz-date", amzDate)
+                    .header("Authorization", authorization(method, path, canonicalQuery, headers, payloadHash,
+                            amzDate, region, accessKey, secretKey))
+                    .method(method, body != null ? HttpRequest.BodyPublishers.ofByteArray(payload) : HttpRequest.BodyPublishers.noBody())
+                    .build();
+            try {
+                HttpResponse<String> response = httpClient().send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() / 100 == 2) {
+                    return response;
+                }
+                if (response.statusCode() < 500 || attempt >= MAX_REQUEST_ATTEMPTS) {
+                    throw new S3Exception(response.statusCode(), method + " " + key + " failed with HTTP " +
+                            response.statusCode() + ": " + abbreviate(response.body()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted during " + method + " " + key);
+            } catch (S3Exception e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= MAX_REQUEST_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("{} {} failed on attempt {}, retrying: {}", method, key, attempt, e.getMessage());
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(500L << attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted during " + method + " " + key);
+            }
+        }
+    }
+
+    static String authorization(String method, String path, String canonicalQuery, SortedMap<String, String> headers,
+                                String payloadHash, String amzDate, String region, String accessKey, String secretKey) {
+        StringBuilder canonicalHeaders = new StringBuilder();
+        headers.forEach((name, value) -> canonicalHeaders.append(name).append(':').append(value.trim()).append('\n'));
+        String signedHeaders = String.join(";", headers.keySet());
+        String canonicalRequest = method + "\n" + path + "\n" + canonicalQuery + "\n" + canonicalHeaders + "\n" +
+                signedHeaders + "\n" + payloadHash;
+
+        String dateStamp = amzDate.substring(0, 8);
+        String scope = dateStamp + "/" + region + "/s3/aws4_request";
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n" +
+                HEX.formatHex(ChunkStore.sha256().digest(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), dateStamp);
+        key = hmac(key, region);
+        key = hmac(key, "s3");
+        key = hmac(key, "aws4_request");
+        String signature = HEX.formatHex(hmac(key, stringToSign));
+        return "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope + ", SignedHeaders=" + signedHeaders +
+                ", Signature=" + signature;
+    }
+
+    private static String canonicalQuery(Map<String, String> query) {
+        StringJoiner joiner = new StringJoiner("&");
+        new TreeMap<>(query).forEach((name, value) -> joiner.add(uriEncode(name, true) + "=" + uriEncode(value, true)));
+        return joiner.toString();
+    }
+
+    static String uriEncode(String value, boolean encodeSlash) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ||
+                    c == '-' || c == '_' || c == '.' || c == '~' || (c == '/' && !encodeSlash)) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static byte[] readRange(Path file, long offset, int length, IoRateLimiter limiter) throws IOException {
+        limiter.acquire(length);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException(file + " shrank while being uploaded");
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    // S3 allows at most 10,000 parts, so very large archives get bigger parts than configured
+    private long partBytes(long size) {
+        long partBytes = Math.max(MIN_PART_BYTES, configuredPartBytes);
+        return Math.max(partBytes, (size + MAX_PARTS - 1) / MAX_PARTS);
+    }
+
+    private static String abbreviate(String body) {
+        return body.length() > 300 ? body.substring(0, 300) + "..." : body;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (partExecutor != null) {
+            partExecutor.shutdownNow();
+        }
+    }
+
+    private HttpClient httpClient() {
+        if (httpClient == null) {
+            synchronized (this) {
+                if (httpClient == null) {
+                    httpClient = HttpClient.newBuilder()
+                            .connectTimeout(Duration.ofSeconds(10))
+                            .version(HttpClient.Version.HTTP_1_1)
+                            .build();
+                }
+            }
+        }
+        return httpClient;
+    }
+
+    private ExecutorService partExecutor() {
+        if (partExecutor == null) {
+            synchronized (this) {
+                if (partExecutor == null) {
+                    AtomicInteger threadIndex = new AtomicInteger();
+                    partExecutor = Executors.newFixedThreadPool(Math.max(1, parallelParts), r -> {
+                        Thread t = new Thread(r, "backup-upload-" + threadIndex.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+        return partExecutor;
+    }
+
+    private static final class S3Exception extends IOException {
+        private final int status;
+
+        private S3Exception(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
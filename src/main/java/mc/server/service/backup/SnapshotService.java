@@ -0,0 +1,241 @@
+package mc.server.service.backup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.ServerInstance;
+import mc.server.service.RconService;
+import mc.server.service.server.MinecraftServerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SnapshotService {
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final Set<String> EXCLUDED_ENTRIES = Set.of("backups", "snapshots", "diagnostics", "logs");
+    private static final String CATALOG_FILE = "catalog.json";
+
+    // Longest autosave may stay off. save-on is forced when it runs out and whatever ran in the pause is failed
+    @Value("${minecraft.backup.max-save-pause-ms:10000}")
+    private long maxSavePauseMillis;
+
+    private final MinecraftServerService minecraftServerService;
+    private final RconService rconService;
+    private final TreeSnapshotter treeSnapshotter;
+    private final BackupIoThrottle backupIoThrottle;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Long, Object> catalogLocks = new ConcurrentHashMap<>();
+
+    public record SnapshotInfo(
+            String id,
+            String label,
+            LocalDateTime createdAt,
+            TreeSnapshotter.Strategy strategy,
+            int files,
+            long copiedBytes,
+            long durationMillis,
+            boolean consistent
+    ) {}
+
+    public SnapshotInfo createSnapshot(Long instanceId, String label) throws IOException {
+        ServerInstance instance = minecraftServerService.getInstance(instanceId);
+        Path instanceRoot = Paths.get(instance.getInstancePath());
+        List<String> entries;
+        try (Stream<Path> children = Files.list(instanceRoot)) {
+            entries = children.map(path -> path.getFileName().toString())
+                    .filter(name -> !EXCLUDED_ENTRIES.contains(name))
+                    .sorted()
+                    .toList();
+        }
+
+        LocalDateTime createdAt = LocalDateTime.now();
+        String id = "snapshot_" + createdAt.format(TIMESTAMP_FORMAT);
+        Path target = snapshotsDir(instance).resolve(id);
+        if (Files.exists(target)) {
+            throw new IllegalStateException("A snapshot was already taken this second");
+        }
+
+        boolean consistent = canPauseSaving(instanceId);
+        TreeSnapshotter.SnapshotResult result;
+        IoRateLimiter ioLimiter = backupIoThrottle.open(instanceId);
+        try {
+            result = consistent ?
+                    captureConsistent(instance, entries, target, ioLimiter) :
+                    treeSnapshotter.snapshot(instanceRoot, entries, target, ioLimiter);
+        } catch (IOException e) {
+            BackupFiles.deleteRecursively(target);
+            throw e;
+        } finally {
+            backupIoThrottle.close(instanceId, ioLimiter);
+        }
+
+        SnapshotInfo info = new SnapshotInfo(id, label, createdAt, result.strategy(), result.files(),
+                result.copiedBytes(), result.durationMillis(), consistent || !minecraftServerService.isServerRunning(instanceId));
+        synchronized (catalogLock(instanceId)) {
+            List<SnapshotInfo> catalog = new ArrayList<>(readCatalog(instance));
+            catalog.add(info);
+            writeCatalog(instance, catalog);
+        }
+        log.info("Created snapshot {} of instance {} with {} in {} ms ({} files, {} MB copied)",
+                id, instanceId, result.strategy(), result.durationMillis(), result.files(),
+                String.format("%.2f", result.copiedBytes() / (1024.0 * 1024.0)));
+        return info;
+    }
+
+    public List<SnapshotInfo> listSnapshots(Long instanceId) throws IOException {
+        ServerInstance instance = minecraftServerService.getInstance(instanceId);
+        synchronized (catalogLock(instanceId)) {
+            return readCatalog(instance);
+        }
+    }
+
+    public Path getSnapshotPath(Long instanceId, String snapshotId) throws IOException {
+        ServerInstance instance = minecraftServerService.getInstance(instanceId);
+        boolean known = listSnapshots(instanceId).stream().anyMatch(info -> info.id().equals(snapshotId));
+        Path path = snapshotsDir(instance).resolve(snapshotId).normalize();
+        if (!known || !path.startsWith(snapshotsDir(instance)) || !Files.isDirectory(path)) {
+            throw new IllegalArgumentException("Snapshot not found: " + snapshotId);
+        }
+        return path;
+    }
+
+    public void deleteSnapshot(Long instanceId, String snapshotId) throws IOException {
+        ServerInstance instance = minecraftServerService.getInstance(instanceId);
+        Path path = getSnapshotPath(instanceId, snapshotId);
+        synchronized (catalogLock(instanceId)) {
+            List<SnapshotInfo> catalog = new ArrayList<>(readCatalog(instance));
+            catalog.removeIf(info -> info.id().equals(snapshotId));
+            writeCatalog(instance, catalog);
+        }
+        BackupFiles.deleteRecursively(path);
+        log.info("Deleted snapshot {} of instance {}", snapshotId, instanceId);
+    }
+
+    public boolean canPauseSaving(Long instanceId) {
+        return minecraftServerService.isServerRunning(instanceId) && rconService.isConfigured(instanceId);
+    }
+
+    // True when a snapshot of the instance only shares extents. Without that it is a full copy of every region file
+    // made while saving is off, and reading the live files with saving off is cheaper than copying them first
+    public boolean isSnapshotCheap(ServerInstance instance) {
+        return treeSnapshotter.reflinkAvailable(Paths.get(instance.getInstancePath()));
+    }
+
+    // Saving is paused only for the flush and the snapshot itself, anything slow happens afterwards on the frozen copy
+    public TreeSnapshotter.SnapshotResult captureConsistent(ServerInstance instance, List<String> entries, Path target,
+                                                            IoRateLimiter ioLimiter) throws IOException {
+        return withSavingPaused(instance, flushMillis -> {
+            TreeSnapshotter.SnapshotResult snapshot = treeSnapshotter.snapshot(Paths.get(instance.getInstancePath()), entries, target, ioLimiter);
+            log.info("Snapshot of instance {} taken with {}: {} files, {} MB copied, flush {} ms, snapshot {} ms",
+                    instance.getId(), snapshot.strategy(), snapshot.files(),
+                    String.format("%.2f", snapshot.copiedBytes() / (1024.0 * 1024.0)), flushMillis, snapshot.durationMillis());
+            return snapshot;
+        });
+    }
+
+    // For filesystems without reflinks. The standing copy is brought up to date while the server keeps saving, then only
+    // what was written since is copied again with saving paused, so the pause stays short however large the world is
+    public TreeSnapshotter.SnapshotResult captureChanged(ServerInstance instance, List<String> entries, Path target,
+                                                         IoRateLimiter ioLimiter) throws IOException {
+        Path sourceRoot = Paths.get(instance.getInstancePath());
+        TreeSnapshotter.SnapshotResult precopy = treeSnapshotter.refresh(sourceRoot, entries, target, ioLimiter);
+        return withSavingPaused(instance, flushMillis -> {
+            // Unthrottled, this pass is only what changed since the precopy and every millisecond of it is paused saving
+            TreeSnapshotter.SnapshotResult catchUp = treeSnapshotter.refresh(sourceRoot, entries, target, new IoRateLimiter(0));
+            log.info("Copy of instance {} refreshed: {} MB before the pause in {} ms, flush {} ms, {} MB with saving paused in {} ms",
+                    instance.getId(), String.format("%.2f", precopy.copiedBytes() / (1024.0 * 1024.0)), precopy.durationMillis(),
+                    flushMillis, String.format("%.2f", catchUp.copiedBytes() / (1024.0 * 1024.0)), catchUp.durationMillis());
+            return catchUp;
+        });
+    }
+
+    @FunctionalInterface
+    public interface SavingPausedAction<T> {
+        T run(long flushMillis) throws IOException;
+    }
+
+    // Runs the action with autosave off and everything flushed, so the world files on disk do not change under it.
+    // The server keeps ticking, only its writes are held back until save-on. The action must be short: after
+    // maxSavePauseMillis saving is switched back on regardless and the action's result is thrown away
+    public <T> T withSavingPaused(ServerInstance instance, SavingPausedAction<T> action) throws IOException {
+        Long instanceId = instance.getId();
+        if (rconService.executeCommandSync(instanceId, "save-off") == null) {
+            throw new IOException("Could not disable autosave over RCON");
+        }
+        long pauseStartNanos = System.nanoTime();
+        AtomicBoolean resumed = new AtomicBoolean();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        CompletableFuture.delayedExecutor(maxSavePauseMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (!resumed.get()) {
+                timedOut.set(true);
+                log.warn("Autosave on instance {} was paused longer than {} ms, switching it back on", instanceId, maxSavePauseMillis);
+                resumeSaving(instanceId, resumed);
+            }
+        });
+        try {
+            if (rconService.executeCommandSync(instanceId, "save-all flush") == null) {
+                throw new IOException("save-all flush failed over RCON");
+            }
+            T result = action.run(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pauseStartNanos));
+            if (timedOut.get()) {
+                throw new IOException("Saving was switched back on after " + maxSavePauseMillis + " ms, the copy may be inconsistent");
+            }
+            return result;
+        } finally {
+            resumeSaving(instanceId, resumed);
+            log.info("Autosave on instance {} was paused for {} ms", instanceId,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pauseStartNanos));
+        }
+    }
+
+    private void resumeSaving(Long instanceId, AtomicBoolean resumed) {
+        if (resumed.compareAndSet(false, true) && rconService.executeCommandSync(instanceId, "save-on") == null) {
+            log.error("Failed to re-enable autosave on instance {}, run save-on manually", instanceId);
+        }
+    }
+
+    private List<SnapshotInfo> readCatalog(ServerInstance instance) throws IOException {
+        Path catalogPath = snapshotsDir(instance).resolve(CATALOG_FILE);
+        if (!Files.exists(catalogPath)) {
+            return List.of();
+        }
+        return objectMapper.readValue(catalogPath.toFile(), new TypeReference<>() {});
+    }
+
+    private void writeCatalog(ServerInstance instance, List<SnapshotInfo> catalog) throws IOException {
+        Path snapshotsDir = snapshotsDir(instance);
+        Files.createDirectories(snapshotsDir);
+        Path tempPath = snapshotsDir.resolve(CATALOG_FILE + ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(tempPath.toFile(), catalog);
+        Files.move(tempPath, snapshotsDir.resolve(CATALOG_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Object catalogLock(Long instanceId) {
+        return catalogLocks.computeIfAbsent(instanceId, id -> new Object());
+    }
+
+    private Path snapshotsDir(ServerInstance instance) {
+        return Paths.get(instance.getInstancePath(), "snapshots");
+    }
+}
@@ -0,0 +1,219 @@
+package mc.server.service.backup;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+final class TarArchiveReader {
+    private static final int BLOCK = 512;
+
+    private TarArchiveReader() {
+    }
+
+    @FunctionalInterface
+    interface EntryHandler {
+        void accept(TarWriter.Entry entry, InputStream content) throws IOException;
+    }
+
+    // Seeks to the gzip member holding the entry's first byte and only inflates the members it spans
+    static void extract(Path archive, BackupArchiveIndex index, TarWriter.Entry entry, Path destination) throws IOException {
+        read(archive, index, List.of(entry), null, (e, content) -> writeEntry(e, content, destination));
+    }
+
+    // Entries must be sorted by offset; one inflater streams through all of them from the first entry's member
+    static void read(Path archive, BackupArchiveIndex index, List<TarWriter.Entry> entries, IoRateLimiter limiter,
+                     EntryHandler handler) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        ParallelGzipOutputStream.Member member = index.members().get(memberContaining(index.members(), entries.get(0).dataOffset()));
+
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            channel.position(member.compressedOffset());
+            InputStream raw = Channels.newInputStream(channel);
+            try (InputStream in = new GZIPInputStream(new BufferedInputStream(limiter != null ? limiter.wrap(raw) : raw, 64 * 1024), 64 * 1024)) {
+                long position = member.uncompressedOffset();
+                for (TarWriter.Entry entry : entries) {
+                    in.skipNBytes(entry.dataOffset() - position);
+                    BoundedInputStream content = new BoundedInputStream(in, entry.size());
+                    handler.accept(entry, content);
+                    in.skipNBytes(content.remaining);
+                    position = entry.dataOffset() + entry.size();
+                }
+            }
+        }
+    }
+
+    static long compressedBytesSpanned(BackupArchiveIndex index, TarWriter.Entry entry) {
+        List<ParallelGzipOutputStream.Member> members = index.members();
+        int first = memberContaining(members, entry.dataOffset());
+        int last = memberContaining(members, entry.dataOffset() + Math.max(0, entry.size() - 1));
+        long bytes = 0;
+        for (int i = first; i <= last; i++) {
+            bytes += members.get(i).compressedLength();
+        }
+        return bytes;
+    }
+
+    // Fallback for archives without an index: inflate from the start and hand matching entries to the handler
+    static void scan(Path archive, Predicate<String> selector, EntryHandler handler) throws IOException {
+        scan(archive, null, selector, handler);
+    }
+
+    static void scan(Path archive, IoRateLimiter limiter, Predicate<String> selector, EntryHandler handler) throws IOException {
+        InputStream raw = Files.newInputStream(archive);
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(limiter != null ? limiter.wrap(raw) : raw, 64 * 1024), 64 * 1024)) {
+            byte[] header = new byte[BLOCK];
+            String longName = null;
+            long position = 0;
+
+            while (true) {
+                if (in.readNBytes(header, 0, BLOCK) < BLOCK || isZeroBlock(header)) {
+                    return;
+                }
+                position += BLOCK;
+
+                long size = parseOctal(header, 124, 12);
+                byte type = header[156];
+                long padded = (size + BLOCK - 1) / BLOCK * BLOCK;
+
+                if (type == 'L') {
+                    byte[] nameBytes = in.readNBytes((int) size);
+                    in.skipNBytes(padded - size);
+                    position += padded;
+                    longName = new String(nameBytes, StandardCharsets.UTF_8).replace("\0", "");
+                    continue;
+                }
+
+                String name = longName != null ? longName : parseString(header, 0, 100);
+                longName = null;
+
+                if ((type == '0' || type == 0) && selector.test(name)) {
+                    TarWriter.Entry entry = new TarWriter.Entry(name, position, size, parseOctal(header, 136, 12), null);
+                    BoundedInputStream content = new BoundedInputStream(in, size);
+                    handler.accept(entry, content);
+                    in.skipNBytes(content.remaining);
+                    in.skipNBytes(padded - size);
+                } else {
+                    in.skipNBytes(padded);
+                }
+                position += padded;
+            }
+        }
+    }
+
+    static void writeEntry(TarWriter.Entry entry, InputStream in, Path destination) throws IOException {
+        Files.createDirectories(destination.getParent());
+        Path tempPath = destination.resolveSibling(destination.getFileName() + ".restore-tmp");
+        try (OutputStream out = Files.newOutputStream(tempPath)) {
+            byte[] buffer = new byte[64 * 1024];
+            long remaining = entry.size();
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new IOException("Archive ended inside " + entry.name());
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+        Files.move(tempPath, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.setLastModifiedTime(destination, FileTime.fromMillis(entry.mtimeSeconds() * 1000));
+    }
+
+    private static int memberContaining(List<ParallelGzipOutputStream.Member> members, long offset) {
+        int low = 0;
+        int high = members.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (members.get(mid).uncompressedOffset() <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseOctal(byte[] buffer, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        while (i < end && (buffer[i] == ' ' || buffer[i] == 0)) {
+            i++;
+        }
+        long value = 0;
+        while (i < end && buffer[i] >= '0' && buffer[i] <= '7') {
+            value = value * 8 + (buffer[i] - '0');
+            i++;
+        }
+        return value;
+    }
+
+    private static String parseString(byte[] buffer, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && buffer[end] != 0) {
+            end++;
+        }
+        return new String(buffer, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static final class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        private BoundedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+            // The underlying archive stream stays open for the next entry
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package mc.server.service.backup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+// Minimal ustar writer; names longer than 100 bytes use GNU ././@LongLink records like GNU tar does
+public class TarWriter implements AutoCloseable {
+    private static final int BLOCK = 512;
+    private static final int COPY_BUFFER = 64 * 1024;
+
+    public record Entry(String name, long dataOffset, long size, long mtimeSeconds, String sha256) {}
+
+    private final OutputStream out;
+    private final IoRateLimiter readLimiter;
+    private final byte[] copyBuffer = new byte[COPY_BUFFER];
+    private final List<Entry> entries = new ArrayList<>();
+    private long position;
+
+    public TarWriter(OutputStream out) {
+        this(out, null);
+    }
+
+    public TarWriter(OutputStream out, IoRateLimiter readLimiter) {
+        this.out = out;
+        this.readLimiter = readLimiter;
+    }
+
+    // Offset in the uncompressed tar stream, used to index where each member starts
+    public long position() {
+        return position;
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public void putDirectory(String name) throws IOException {
+        String dirName = name.endsWith("/") ? name : name + "/";
+        writeHeader(dirName, 0, System.currentTimeMillis() / 1000, 0755, (byte) '5');
+    }
+
+    public void putFile(String name, Path file) throws IOException {
+        long size = Files.size(file);
+        long mtime = Files.getLastModifiedTime(file).toMillis() / 1000;
+        try (InputStream in = readLimiter != null ? readLimiter.wrap(Files.newInputStream(file)) : Files.newInputStream(file)) {
+            putFile(name, in, size, mtime, mode(file));
+        }
+    }
+
+    public void putFile(String name, InputStream in, long size, long mtimeSeconds, int mode) throws IOException {
+        writeHeader(name, size, mtimeSeconds, mode, (byte) '0');
+        long dataOffset = position;
+        MessageDigest digest = ChunkStore.sha256();
+
+        long remaining = size;
+        while (remaining > 0) {
+            int read = in.read(copyBuffer, 0, (int) Math.min(copyBuffer.length, remaining));
+            if (read < 0) {
+                throw new IOException("File " + name + " shrank while being archived");
+            }
+            digest.update(copyBuffer, 0, read);
+            write(copyBuffer, 0, read);
+            remaining -= read;
+        }
+        pad(size);
+        entries.add(new Entry(name, dataOffset, size, mtimeSeconds, HexFormat.of().formatHex(digest.digest())));
+    }
+
+    public void finish() throws IOException {
+        write(new byte[BLOCK * 2], 0, BLOCK * 2);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeHeader(String name, long size, long mtimeSeconds, int mode, byte type) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > 100) {
+            byte[] longName = Arrays.copyOf(nameBytes, nameBytes.length + 1);
+            write(header("././@LongLink", longName.length, 0, 0644, (byte) 'L'), 0, BLOCK);
+            write(longName, 0, longName.length);
+            pad(longName.length);
+        }
+        write(header(name, size, mtimeSeconds, mode, type), 0, BLOCK);
+    }
+
+    private byte[] header(String name, long size, long mtimeSeconds, int mode, byte type) {
+        byte[] header = new byte[BLOCK];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, 100));
+        octal(header, 100, 8, mode);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, mtimeSeconds);
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        header[156] = type;
+        System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+        header[263] = '0';
+        header[264] = '0';
+
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        octal(header, 148, 7, checksum);
+        header[155] = ' ';
+        return header;
+    }
+
+    private static void octal(byte[] buffer, int offset, int length, long value) {
+        String digits = Long.toOctalString(value);
+        if (digits.length() > length - 1) {
+            throw new IllegalArgumentException("Value " + value + " does not fit in a " + length + " byte tar field");
+        }
+        int start = offset + length - 1 - digits.length();
+        Arrays.fill(buffer, offset, start, (byte) '0');
+        System.arraycopy(digits.getBytes(StandardCharsets.US_ASCII), 0, buffer, start, digits.length());
+        buffer[offset + length - 1] = 0;
+    }
+
+    private void pad(long size) throws IOException {
+        int padding = (int) ((BLOCK - (size % BLOCK)) % BLOCK);
+        if (padding > 0) {
+            write(new byte[padding], 0, padding);
+        }
+    }
+
+    private void write(byte[] buffer, int offset, int length) throws IOException {
+        out.write(buffer, offset, length);
+        position += length;
+    }
+
+    private static int mode(Path file) {
+        try {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+            int mode = 0;
+            for (PosixFilePermission permission : permissions) {
+                mode |= 1 << (8 - permission.ordinal());
+            }
+            return mode;
+        } catch (UnsupportedOperationException | IOException e) {
+            return 0644;
+        }
+    }
+}
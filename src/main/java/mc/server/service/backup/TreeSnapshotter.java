@@ -0,0 +1,333 @@
+package mc.server.service.backup;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TreeSnapshotter {
+
+    @Value("${minecraft.backup.snapshot.reflink:true}")
+    private boolean reflinkEnabled;
+
+    @Value("${minecraft.backup.snapshot.reflink-timeout-seconds:60}")
+    private int reflinkTimeoutSeconds;
+
+    @Value("${minecraft.backup.snapshot.copy-threads:4}")
+    private int copyThreads;
+
+    private final BackupIoThrottle backupIoThrottle;
+
+    private final Map<String, Boolean> reflinkSupport = new ConcurrentHashMap<>();
+    private volatile ExecutorService copyExecutor;
+
+    public enum Strategy {
+        REFLINK,
+        HARDLINK_AND_COPY,
+        COPY_CHANGED
+    }
+
+    public record SnapshotResult(Strategy strategy, int files, long copiedBytes, long durationMillis) {}
+
+    // Copies go through the limiter, reflinks share extents and cost no data I/O
+    public SnapshotResult snapshot(Path sourceRoot, List<String> entries, Path targetRoot, IoRateLimiter ioLimiter) throws IOException {
+        long startNanos = System.nanoTime();
+        Files.createDirectories(targetRoot);
+
+        if (reflinkEnabled && reflinkSupported(sourceRoot) && reflinkTree(sourceRoot, entries, targetRoot)) {
+            int files = countFiles(targetRoot);
+            return new SnapshotResult(Strategy.REFLINK, files, 0, elapsedMillis(startNanos));
+        }
+
+        List<Path> copies = new ArrayList<>();
+        int files = 0;
+        for (String entry : entries) {
+            Path source = sourceRoot.resolve(entry);
+            try (Stream<Path> walk = Files.walk(source)) {
+                for (Path path : walk.toList()) {
+                    Path target = targetRoot.resolve(sourceRoot.relativize(path).toString());
+                    if (Files.isDirectory(path)) {
+                        Files.createDirectories(target);
+                    } else if (Files.isRegularFile(path) && !path.getFileName().toString().equals("session.lock")) {
+                        if (!isSafeToHardlink(path) || !tryHardlink(path, target)) {
+                            copies.add(path);
+                        }
+                        files++;
+                    }
+                }
+            }
+        }
+
+        long copiedBytes = copyInParallel(sourceRoot, targetRoot, copies, ioLimiter);
+        return new SnapshotResult(Strategy.HARDLINK_AND_COPY, files, copiedBytes, elapsedMillis(startNanos));
+    }
+
+    // Brings a standing copy up to date: files whose size or mtime differ from the copy are copied again and files gone
+    // from the source are removed. Safe to run against live files, anything written during the copy gets a newer
+    // mtime than the one carried over and is picked up by the next pass
+    public SnapshotResult refresh(Path sourceRoot, List<String> entries, Path targetRoot, IoRateLimiter ioLimiter) throws IOException {
+        long startNanos = System.nanoTime();
+        Files.createDirectories(targetRoot);
+
+        Set<Path> current = new HashSet<>();
+        List<Path> copies = new ArrayList<>();
+        int files = 0;
+        for (String entry : entries) {
+            Path source = sourceRoot.resolve(entry);
+            if (!Files.exists(source)) {
+                continue;
+            }
+            try (Stream<Path> walk = Files.walk(source)) {
+                for (Path path : walk.toList()) {
+                    Path target = targetRoot.resolve(sourceRoot.relativize(path).toString());
+                    current.add(target);
+                    if (Files.isDirectory(path)) {
+                        Files.createDirectories(target);
+                    } else if (Files.isRegularFile(path) && !path.getFileName().toString().equals("session.lock")) {
+                        if (!Files.isRegularFile(target) || Files.size(target) != Files.size(path) ||
+                                !Files.getLastModifiedTime(target).equals(Files.getLastModifiedTime(path))) {
+                            copies.add(path);
+                        }
+                        files++;
+                    }
+                }
+            }
+        }
+
+        List<Path> stale;
+        try (Stream<Path> walk = Files.walk(targetRoot)) {
+            stale = walk.filter(path -> !path.equals(targetRoot) && !current.contains(path)).toList();
+        }
+        for (Path path : stale) {
+            BackupFiles.deleteRecursively(path);
+        }
+
+        long copiedBytes = copyInParallel(sourceRoot, targetRoot, copies, ioLimiter);
+        return new SnapshotResult(Strategy.COPY_CHANGED, files, copiedBytes, elapsedMillis(startNanos));
+    }
+
+    // Only files Minecraft replaces by writing a temp file and renaming it can be shared by a hardlink.
+    // Region files, logs and configs are rewritten or appended in place and would keep changing under the snapshot
+    static boolean isSafeToHardlink(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(".dat") || name.endsWith(".dat_old") || name.endsWith(".jar");
+    }
+
+    private boolean tryHardlink(Path source, Path target) {
+        try {
+            Files.createLink(target, source);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("Hardlink of {} failed, copying instead: {}", source, e.getMessage());
+            return false;
+        }
+    }
+
+    // Probes once per filesystem whether cp --reflink works there, so callers can avoid snapshots that would be full copies
+    public boolean reflinkAvailable(Path sourceRoot) {
+        if (!reflinkEnabled) {
+            return false;
+        }
+        String key = fileStoreKey(sourceRoot);
+        if (key == null) {
+            return false;
+        }
+        Boolean known = reflinkSupport.get(key);
+        if (known != null) {
+            return known;
+        }
+        boolean supported = probeReflink(sourceRoot);
+        reflinkSupport.put(key, supported);
+        log.info("Reflink snapshots are {} on {}", supported ? "available" : "not available", key);
+        return supported;
+    }
+
+    private boolean probeReflink(Path directory) {
+        Path probe = null;
+        Path copy = directory.resolve(".reflink-probe-copy");
+        try {
+            probe = Files.createTempFile(directory, ".reflink-probe", ".tmp");
+            Files.write(probe, new byte[]{1});
+            Process process = new ProcessBuilder("cp", "--reflink=always", probe.toString(), copy.toString())
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!process.waitFor(reflinkTimeoutSeconds, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return false;
+            }
+            return process.exitValue() == 0;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.debug("Reflink probe in {} failed: {}", directory, e.getMessage());
+            return false;
+        } finally {
+            try {
+                if (probe != null) {
+                    Files.deleteIfExists(probe);
+                }
+                Files.deleteIfExists(copy);
+            } catch (IOException e) {
+                log.debug("Could not remove reflink probe files in {}: {}", directory, e.getMessage());
+            }
+        }
+    }
+
+    private long copyInParallel(Path sourceRoot, Path targetRoot, List<Path> copies, IoRateLimiter ioLimiter) throws IOException {
+        if (copies.isEmpty()) {
+            return 0;
+        }
+        // Largest first so one big region file does not end up alone at the tail
+        copies.sort(Comparator.comparingLong((Path path) -> path.toFile().length()).reversed());
+
+        List<CompletableFuture<Long>> futures = copies.stream()
+                .map(source -> CompletableFuture.supplyAsync(() -> {
+                    Path target = targetRoot.resolve(sourceRoot.relativize(source).toString());
+                    try {
+                        // Incremental backups compare mtimes, the copy has to carry the original one. Taken before
+                        // copying, so a write during the copy leaves the copy looking older than the source
+                        FileTime lastModified = Files.getLastModifiedTime(source);
+                        long copied;
+                        try (InputStream in = ioLimiter.wrap(Files.newInputStream(source))) {
+                            copied = Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                        }
+                        Files.setLastModifiedTime(target, lastModified);
+                        return copied;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, copyExecutor()))
+                .toList();
+
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("Snapshot copy failed", e.getCause());
+        }
+        return futures.stream().mapToLong(CompletableFuture::join).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (copyExecutor != null) {
+            copyExecutor.shutdownNow();
+        }
+    }
+
+    private ExecutorService copyExecutor() {
+        if (copyExecutor == null) {
+            synchronized (this) {
+                if (copyExecutor == null) {
+                    AtomicInteger threadIndex = new AtomicInteger();
+                    copyExecutor = Executors.newFixedThreadPool(Math.max(1, copyThreads), r -> {
+                        Thread t = new Thread(r, "snapshot-copy-" + threadIndex.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+        return copyExecutor;
+    }
+
+    private boolean reflinkTree(Path sourceRoot, List<String> entries, Path targetRoot) {
+        try {
+            for (String entry : entries) {
+                Process process = new ProcessBuilder(backupIoThrottle.withIoPriority(List.of("cp", "-a", "--reflink=always",
+                        sourceRoot.resolve(entry).toString(), targetRoot.toString())))
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                if (!process.waitFor(reflinkTimeoutSeconds, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                    throw new IOException("cp --reflink timed out");
+                }
+                if (process.exitValue() != 0) {
+                    throw new IOException("cp --reflink exited with " + process.exitValue());
+                }
+            }
+            try (Stream<Path> locks = Files.walk(targetRoot)) {
+                for (Path lock : locks.filter(path -> path.getFileName().toString().equals("session.lock")).toList()) {
+                    Files.deleteIfExists(lock);
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.info("Reflink snapshot not available for {} ({}), falling back to hardlinks and copies", sourceRoot, e.getMessage());
+            rememberReflinkSupport(sourceRoot, false);
+            try {
+                BackupFiles.deleteRecursively(targetRoot);
+                Files.createDirectories(targetRoot);
+            } catch (IOException cleanup) {
+                log.warn("Could not clean up partial reflink snapshot {}: {}", targetRoot, cleanup.getMessage());
+            }
+            return false;
+        }
+    }
+
+    private boolean reflinkSupported(Path path) {
+        String key = fileStoreKey(path);
+        return key == null || reflinkSupport.getOrDefault(key, true);
+    }
+
+    private void rememberReflinkSupport(Path path, boolean supported) {
+        String key = fileStoreKey(path);
+        if (key != null) {
+            reflinkSupport.put(key, supported);
+        }
+    }
+
+    private static String fileStoreKey(Path path) {
+        try {
+            FileStore store = Files.getFileStore(path);
+            return store.name() + ":" + store.type();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static int countFiles(Path root) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            return (int) walk.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
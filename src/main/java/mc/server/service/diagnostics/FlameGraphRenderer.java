@@ -0,0 +1,99 @@
+package mc.server.service.diagnostics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class FlameGraphRenderer {
+    private static final int WIDTH = 1200;
+    private static final int FRAME_HEIGHT = 16;
+    private static final int PADDING = 10;
+    private static final int TITLE_HEIGHT = 24;
+    private static final double MIN_WIDTH = 0.5;
+
+    private FlameGraphRenderer() {
+    }
+
+    public static String render(Map<String, Long> collapsedStacks, String title) {
+        Node root = new Node("all");
+        for (Map.Entry<String, Long> entry : collapsedStacks.entrySet()) {
+            Node node = root;
+            node.samples += entry.getValue();
+            for (String frame : entry.getKey().split(";")) {
+                node = node.children.computeIfAbsent(frame, Node::new);
+                node.samples += entry.getValue();
+            }
+        }
+
+        int depth = root.depth();
+        int height = TITLE_HEIGHT + (depth + 1) * FRAME_HEIGHT + PADDING * 2;
+        double scale = root.samples == 0 ? 0 : (WIDTH - PADDING * 2) / (double) root.samples;
+
+        StringBuilder svg = new StringBuilder();
+        svg.append(String.format(Locale.ROOT,
+                "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" font-family=\"monospace\" font-size=\"11\">%n",
+                WIDTH, height));
+        svg.append(String.format(Locale.ROOT,
+                "<rect width=\"100%%\" height=\"100%%\" fill=\"#f8f8f8\"/>%n<text x=\"%d\" y=\"%d\" font-size=\"14\">%s</text>%n",
+                PADDING, PADDING + 12, escape(title)));
+
+        renderNode(svg, root, PADDING, 0, height - PADDING, scale, root.samples);
+        svg.append("</svg>\n");
+        return svg.toString();
+    }
+
+    private static void renderNode(StringBuilder svg, Node node, double x, int level, int bottom, double scale, long total) {
+        double width = node.samples * scale;
+        if (width < MIN_WIDTH) {
+            return;
+        }
+
+        double y = bottom - (level + 1) * FRAME_HEIGHT;
+        double percent = total == 0 ? 0 : node.samples * 100.0 / total;
+        svg.append(String.format(Locale.ROOT,
+                "<g><title>%s (%d samples, %.2f%%)</title><rect x=\"%.1f\" y=\"%.1f\" width=\"%.1f\" height=\"%d\" fill=\"%s\" rx=\"2\"/>",
+                escape(node.name), node.samples, percent, x, y, width, FRAME_HEIGHT - 1, color(node.name)));
+        int maxChars = (int) (width / 7);
+        if (maxChars >= 3) {
+            String label = node.name.length() > maxChars ? node.name.substring(0, maxChars - 2) + ".." : node.name;
+            svg.append(String.format(Locale.ROOT, "<text x=\"%.1f\" y=\"%.1f\">%s</text>", x + 3, y + FRAME_HEIGHT - 4, escape(label)));
+        }
+        svg.append("</g>\n");
+
+        double childX = x;
+        for (Node child : node.children.values()) {
+            renderNode(svg, child, childX, level + 1, bottom, scale, total);
+            childX += child.samples * scale;
+        }
+    }
+
+    private static String color(String name) {
+        int hash = name.hashCode();
+        int red = 205 + Math.floorMod(hash, 50);
+        int green = Math.floorMod(hash >> 8, 180);
+        int blue = Math.floorMod(hash >> 16, 55);
+        return String.format("#%02x%02x%02x", red, green, blue);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static class Node {
+        private final String name;
+        private final Map<String, Node> children = new TreeMap<>();
+        private long samples;
+
+        private Node(String name) {
+            this.name = name;
+        }
+
+        private int depth() {
+            int max = 0;
+            for (Node child : children.values()) {
+                max = Math.max(max, child.depth() + 1);
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package mc.server.service.diagnostics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.ConsoleMessage;
+import mc.server.model.ServerInstance;
+import mc.server.repository.ServerInstanceRepository;
+import mc.server.service.LogMonitoringService;
+import mc.server.service.RconService;
+import mc.server.service.WebSocketService;
+import mc.server.service.server.MinecraftServerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HangWatchdogService {
+    private static final int TPS_WINDOW = 4;
+    private static final double TPS_TREND_CEILING = 15.0;
+
+    @Value("${minecraft.watchdog.enabled:true}")
+    private boolean enabled;
+
+    @Value("${minecraft.watchdog.probe-timeout-ms:5000}")
+    private int probeTimeoutMillis;
+
+    @Value("${minecraft.watchdog.rcon-timeout-threshold:3}")
+    private int rconTimeoutThreshold;
+
+    @Value("${minecraft.watchdog.log-silence-seconds:120}")
+    private int logSilenceSeconds;
+
+    @Value("${minecraft.watchdog.startup-grace-seconds:300}")
+    private int startupGraceSeconds;
+
+    @Value("${minecraft.watchdog.tps-floor:5.0}")
+    private double tpsFloor;
+
+    @Value("${minecraft.watchdog.auto-restart:false}")
+    private boolean autoRestart;
+
+    private final ServerInstanceRepository serverInstanceRepository;
+    private final MinecraftServerService minecraftServerService;
+    private final RconService rconService;
+    private final LogMonitoringService logMonitoringService;
+    private final ThreadDumpService threadDumpService;
+    private final WebSocketService webSocketService;
+
+    private final Map<Long, WatchdogState> states = new ConcurrentHashMap<>();
+
+    public record WatchdogStatus(
+            Long instanceId,
+            int consecutiveRconTimeouts,
+            boolean logSilent,
+            boolean tpsDegrading,
+            boolean hung,
+            LocalDateTime lastCheck,
+            LocalDateTime hangDetectedAt,
+            String lastThreadDump
+    ) {}
+
+    @Scheduled(fixedDelayString = "${minecraft.watchdog.interval-ms:15000}")
+    public void checkForHangs() {
+        if (!enabled) {
+            return;
+        }
+
+        List<CompletableFuture<Void>> checks = new ArrayList<>();
+        for (ServerInstance instance : serverInstanceRepository.findAll()) {
+            Long instanceId = instance.getId();
+            try {
+                if (!minecraftServerService.isServerRunning(instanceId) || !rconService.isConfigured(instanceId)) {
+                    states.remove(instanceId);
+                    continue;
+                }
+                checks.add(CompletableFuture.runAsync(() -> check(instanceId))
+                        .exceptionally(throwable -> {
+                            log.error("Watchdog check failed for instance {}", instanceId, throwable);
+                            return null;
+                        }));
+            } catch (Exception e) {
+                log.error("Error scheduling watchdog check for instance {}", instanceId, e);
+            }
+        }
+        CompletableFuture.allOf(checks.toArray(CompletableFuture[]::new)).join();
+    }
+
+    public WatchdogStatus getStatus(Long instanceId) {
+        WatchdogState state = states.get(instanceId);
+        if (state == null) {
+            return new WatchdogStatus(instanceId, 0, false, false, false, null, null, null);
+        }
+        synchronized (state) {
+            return state.toStatus(instanceId);
+        }
+    }
+
+    private void check(Long instanceId) {
+        if (isInStartupGrace(instanceId)) {
+            return;
+        }
+
+        RconService.ProbeResult result = rconService.probe(instanceId, "list", probeTimeoutMillis);
+        WatchdogState state = states.computeIfAbsent(instanceId, k -> new WatchdogState());
+
+        boolean hangDetected;
+        synchronized (state) {
+            state.lastCheck = LocalDateTime.now();
+            switch (result) {
+                case RESPONDED -> {
+                    if (state.hung) {
+                        log.info("Server instance {} is responding again after a suspected hang", instanceId);
+                    }
+                    state.consecutiveRconTimeouts = 0;
+                    state.hung = false;
+                }
+                case TIMED_OUT -> state.consecutiveRconTimeouts++;
+                case FAILED -> {
+                    // Refused or rejected connections say nothing about the main thread
+                }
+            }
+
+            minecraftServerService.getLastKnownTps(instanceId).ifPresent(state::recordTps);
+            state.logSilent = isLogSilent(instanceId);
+            state.tpsDegrading = state.isTpsDegrading(tpsFloor);
+
+            hangDetected = !state.hung && isHung(state);
+            if (hangDetected) {
+                state.hung = true;
+                state.hangDetectedAt = LocalDateTime.now();
+            }
+        }
+
+        if (hangDetected) {
+            onHang(instanceId, state);
+        }
+    }
+
+    // RCON timeouts are the primary signal; log silence or a collapsing TPS trend confirm it sooner,
+    // while an idle server that simply logs nothing needs twice as many timeouts on its own
+    private boolean isHung(WatchdogState state) {
+        if (state.consecutiveRconTimeouts < rconTimeoutThreshold) {
+            return false;
+        }
+        return state.logSilent || state.tpsDegrading || state.consecutiveRconTimeouts >= rconTimeoutThreshold * 2;
+    }
+
+    private void onHang(Long instanceId, WatchdogState state) {
+        String reason;
+        synchronized (state) {
+            reason = String.format("Watchdog hang verdict: %d consecutive RCON timeouts, log silent=%s, TPS degrading=%s",
+                    state.consecutiveRconTimeouts, state.logSilent, state.tpsDegrading);
+        }
+        log.warn("Server instance {} appears to be hung. {}", instanceId, reason);
+        broadcast(instanceId, ConsoleMessage.error("[WATCHDOG] Server appears to be hung - capturing thread dump"));
+
+        try {
+            Path dumpFile = threadDumpService.captureAndStore(instanceId, reason);
+            synchronized (state) {
+                state.lastThreadDump = dumpFile.getFileName().toString();
+            }
+            broadcast(instanceId, ConsoleMessage.info("[WATCHDOG] Thread dump saved: " + dumpFile.getFileName()));
+        } catch (Exception e) {
+            log.error("Failed to capture thread dump for hung instance {}", instanceId, e);
+        }
+
+        if (autoRestart) {
+            log.warn("Automatically restarting hung server instance {}", instanceId);
+            broadcast(instanceId, ConsoleMessage.error("[WATCHDOG] Restarting hung server..."));
+            minecraftServerService.restartServer(instanceId)
+                    .whenComplete((restarted, throwable) -> {
+                        states.remove(instanceId);
+                        if (throwable != null || !Boolean.TRUE.equals(restarted)) {
+                            log.error("Watchdog restart of instance {} failed", instanceId, throwable);
+                        }
+                    });
+        }
+    }
+
+    private boolean isInStartupGrace(Long instanceId) {
+        return minecraftServerService.getServerStartTime(instanceId)
+                .map(start -> start.plusSeconds(startupGraceSeconds).isAfter(LocalDateTime.now()))
+                .orElse(false);
+    }
+
+    private boolean isLogSilent(Long instanceId) {
+        if (!logMonitoringService.isMonitoring(instanceId)) {
+            return false;
+        }
+        Optional<Instant> lastActivity = logMonitoringService.getLastLogActivity(instanceId);
+        return lastActivity
+                .map(activity -> Duration.between(activity, Instant.now()).getSeconds() > logSilenceSeconds)
+                .orElse(true);
+    }
+
+    private void broadcast(Long instanceId, ConsoleMessage message) {
+        if (webSocketService.hasActiveSessions()) {
+            webSocketService.broadcastConsoleMessage(instanceId, message);
+        }
+    }
+
+    private static class WatchdogState {
+        private final Deque<Double> tpsSamples = new ArrayDeque<>();
+        private int consecutiveRconTimeouts;
+        private boolean logSilent;
+        private boolean tpsDegrading;
+        private boolean hung;
+        private LocalDateTime lastCheck;
+        private LocalDateTime hangDetectedAt;
+        private String lastThreadDump;
+
+        private void recordTps(double tps) {
+            tpsSamples.addLast(tps);
+            if (tpsSamples.size() > TPS_WINDOW) {
+                tpsSamples.removeFirst();
+            }
+        }
+
+        private boolean isTpsDegrading(double floor) {
+            if (tpsSamples.isEmpty()) {
+                return false;
+            }
+            double latest = tpsSamples.peekLast();
+            if (latest < floor) {
+                return true;
+            }
+            if (tpsSamples.size() < TPS_WINDOW || latest >= TPS_TREND_CEILING) {
+                return false;
+            }
+
+            Iterator<Double> iterator = tpsSamples.iterator();
+            double previous = iterator.next();
+            while (iterator.hasNext()) {
+                double current = iterator.next();
+                if (current >= previous) {
+                    return false;
+                }
+                previous = current;
+            }
+            return true;
+        }
+
+        private WatchdogStatus toStatus(Long instanceId) {
+            return new WatchdogStatus(instanceId, consecutiveRconTimeouts, logSilent, tpsDegrading, hung,
+                    lastCheck, hangDetectedAt, lastThreadDump);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package mc.server.service.diagnostics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class JcmdService {
+
+    @Value("${minecraft.diagnostics.jcmd-timeout-seconds:30}")
+    private int timeoutSeconds;
+
+    public String execute(long pid, String... command) throws IOException {
+        List<String> commandParts = new ArrayList<>();
+        commandParts.add(locateJcmd(pid));
+        commandParts.add(String.valueOf(pid));
+        commandParts.addAll(Arrays.asList(command));
+
+        // Output goes to a file so a stuck attach can be timed out without blocking on the pipe
+        Path output = Files.createTempFile("jcmd-" + pid + "-", ".out");
+        try {
+            Process process = new ProcessBuilder(commandParts)
+                    .redirectErrorStream(true)
+                    .redirectOutput(output.toFile())
+                    .start();
+
+            if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("jcmd " + String.join(" ", command) + " timed out after " + timeoutSeconds + "s for PID " + pid);
+            }
+
+            String result = Files.readString(output, StandardCharsets.UTF_8);
+            if (process.exitValue() != 0) {
+                throw new IOException("jcmd " + String.join(" ", command) + " failed for PID " + pid + ": " + result.trim());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running jcmd for PID " + pid, e);
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    // Prefer the jcmd shipped next to the java binary the server runs on, so a portable JDK works without PATH
+    private String locateJcmd(long pid) {
+        String executable = System.getProperty("os.name").toLowerCase().contains("win") ? "jcmd.exe" : "jcmd";
+        String javaBinary = ProcessHandle.of(pid)
+                .flatMap(handle -> handle.info().command())
+                .orElse(null);
+
+        if (javaBinary != null) {
+            Path sibling = Paths.get(javaBinary).resolveSibling(executable);
+            if (Files.isExecutable(sibling)) {
+                return sibling.toString();
+            }
+        }
+
+        Path javaHomeJcmd = Paths.get(System.getProperty("java.home"), "bin", executable);
+        if (Files.isExecutable(javaHomeJcmd)) {
+            return javaHomeJcmd.toString();
+        }
+        return executable;
+    }
+}
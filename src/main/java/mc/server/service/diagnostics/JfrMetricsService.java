@@ -0,0 +1,290 @@
+package mc.server.service.diagnostics;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.EventStream;
+import jdk.jfr.consumer.RecordedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.ConsoleMessage;
+import mc.server.model.ServerInstance;
+import mc.server.repository.ServerInstanceRepository;
+import mc.server.service.WebSocketService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JfrMetricsService {
+    private static final String REPOSITORY_DIR = "jfr";
+    private static final double MB = 1024.0 * 1024.0;
+
+    @Value("${minecraft.jfr.max-age:15m}")
+    private String maxAge;
+
+    @Value("${minecraft.jfr.max-size:256m}")
+    private String maxSize;
+
+    @Value("${minecraft.jfr.history-size:360}")
+    private int historySize;
+
+    @Value("${minecraft.jfr.gc-pause-alert-ms:200}")
+    private long gcPauseAlertMillis;
+
+    @Value("${minecraft.jfr.alert-cooldown-seconds:60}")
+    private long alertCooldownSeconds;
+
+    private final ServerInstanceRepository serverInstanceRepository;
+    private final WebSocketService webSocketService;
+
+    private final Map<Long, InstanceStream> streams = new ConcurrentHashMap<>();
+
+    public record JfrSample(
+            LocalDateTime timestamp,
+            int gcCount,
+            double gcPauseMillis,
+            double maxGcPauseMillis,
+            double heapAfterGcMb,
+            double jvmCpuPercent,
+            double machineCpuPercent,
+            double threadParkMillis,
+            double allocationRateMbPerSecond
+    ) {}
+
+    public List<String> jvmArguments(ServerInstance instance) {
+        if (!Boolean.TRUE.equals(instance.getJfrEnabled())) {
+            return List.of();
+        }
+        Path repository = getRepositoryRoot(instance);
+        return List.of(
+                "-XX:FlightRecorderOptions=repository=" + repository,
+                "-XX:StartFlightRecording=name=mcpanel,settings=default,disk=true,maxage=" + maxAge + ",maxsize=" + maxSize
+        );
+    }
+
+    public void prepareRepository(ServerInstance instance) throws IOException {
+        if (Boolean.TRUE.equals(instance.getJfrEnabled())) {
+            Files.createDirectories(getRepositoryRoot(instance));
+        }
+    }
+
+    public List<JfrSample> getSamples(Long instanceId) {
+        InstanceStream stream = streams.get(instanceId);
+        return stream == null ? List.of() : stream.snapshot();
+    }
+
+    public boolean isStreaming(Long instanceId) {
+        return streams.containsKey(instanceId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streams.values().forEach(InstanceStream::close);
+        streams.clear();
+    }
+
+    // Attaches to recordings of newly started or re-adopted servers, detaches from stopped ones and rolls the
+    // current aggregation bucket into the per-instance time series
+    @Scheduled(fixedDelayString = "${minecraft.jfr.sample-interval-ms:10000}")
+    public void syncStreams() {
+        for (ServerInstance instance : serverInstanceRepository.findAll()) {
+            Long instanceId = instance.getId();
+            try {
+                boolean running = Boolean.TRUE.equals(instance.getJfrEnabled()) && instance.getPid() != null &&
+                        ProcessHandle.of(instance.getPid()).map(ProcessHandle::isAlive).orElse(false);
+                InstanceStream current = streams.get(instanceId);
+
+                if (current != null && (!running || current.pid != instance.getPid())) {
+                    streams.remove(instanceId);
+                    current.close();
+                    current = null;
+                }
+
+                if (current == null && running) {
+                    openStream(instance).ifPresent(stream -> streams.put(instanceId, stream));
+                } else if (current != null) {
+                    current.roll();
+                }
+            } catch (Exception e) {
+                log.error("Error syncing JFR stream for instance {}", instanceId, e);
+            }
+        }
+    }
+
+    private Optional<InstanceStream> openStream(ServerInstance instance) throws IOException {
+        Optional<Path> chunkDirectory = findChunkDirectory(instance);
+        if (chunkDirectory.isEmpty()) {
+            log.debug("No JFR repository found yet for instance {} (PID {})", instance.getId(), instance.getPid());
+            return Optional.empty();
+        }
+
+        EventStream eventStream = EventStream.openRepository(chunkDirectory.get());
+        InstanceStream stream = new InstanceStream(instance.getId(), instance.getPid(), eventStream);
+        eventStream.onEvent("jdk.GarbageCollection", stream::onGarbageCollection);
+        eventStream.onEvent("jdk.GCHeapSummary", stream::onHeapSummary);
+        eventStream.onEvent("jdk.CPULoad", stream::onCpuLoad);
+        eventStream.onEvent("jdk.ThreadPark", stream::onThreadPark);
+        eventStream.onEvent("jdk.ObjectAllocationSample", stream::onAllocationSample);
+        eventStream.setReuse(true);
+        eventStream.startAsync();
+
+        log.info("Streaming JFR events for instance {} from {}", instance.getId(), chunkDirectory.get());
+        return Optional.of(stream);
+    }
+
+    // JFR creates one <timestamp>_<pid> directory per JVM below the configured repository
+    private Optional<Path> findChunkDirectory(ServerInstance instance) throws IOException {
+        Path root = getRepositoryRoot(instance);
+        if (!Files.isDirectory(root)) {
+            return Optional.empty();
+        }
+        try (Stream<Path> dirs = Files.list(root)) {
+            return dirs
+                    .filter(Files::isDirectory)
+                    .filter(dir -> dir.getFileName().toString().endsWith("_" + instance.getPid()))
+                    .max(Comparator.comparing(dir -> dir.getFileName().toString()));
+        }
+    }
+
+    private Path getRepositoryRoot(ServerInstance instance) {
+        return Paths.get(instance.getInstancePath(), "diagnostics", REPOSITORY_DIR).toAbsolutePath();
+    }
+
+    private void alertLongPause(Long instanceId, String collector, double pauseMillis) {
+        log.warn("Long GC pause on instance {}: {} paused for {} ms", instanceId, collector, String.format("%.1f", pauseMillis));
+        if (webSocketService.hasActiveSessions()) {
+            webSocketService.broadcastConsoleMessage(instanceId, ConsoleMessage.builder()
+                    .type("warning")
+                    .message(String.format("[JFR] %s paused the server for %.0f ms", collector, pauseMillis))
+                    .timestamp(LocalDateTime.now())
+                    .source("system")
+                    .build());
+        }
+    }
+
+    private class InstanceStream {
+        private final Long instanceId;
+        private final long pid;
+        private final EventStream eventStream;
+        private final Deque<JfrSample> history = new ArrayDeque<>();
+
+        private Instant bucketStart = Instant.now();
+        private Instant lastAlert = Instant.EPOCH;
+        private int gcCount;
+        private double gcPauseMillis;
+        private double maxGcPauseMillis;
+        private double heapAfterGcMb = -1;
+        private double jvmCpuPercent;
+        private double machineCpuPercent;
+        private double threadParkMillis;
+        private double allocatedBytes;
+
+        private InstanceStream(Long instanceId, long pid, EventStream eventStream) {
+            this.instanceId = instanceId;
+            this.pid = pid;
+            this.eventStream = eventStream;
+        }
+
+        private void onGarbageCollection(RecordedEvent event) {
+            double pause = toMillis(event.getDuration("sumOfPauses"));
+            boolean alert;
+            synchronized (this) {
+                gcCount++;
+                gcPauseMillis += pause;
+                maxGcPauseMillis = Math.max(maxGcPauseMillis, pause);
+                alert = pause >= gcPauseAlertMillis && Instant.now().isAfter(lastAlert.plusSeconds(alertCooldownSeconds));
+                if (alert) {
+                    lastAlert = Instant.now();
+                }
+            }
+            if (alert) {
+                alertLongPause(instanceId, event.getString("name"), pause);
+            }
+        }
+
+        private void onHeapSummary(RecordedEvent event) {
+            if ("After GC".equals(event.getString("when"))) {
+                synchronized (this) {
+                    heapAfterGcMb = event.getLong("heapUsed") / MB;
+                }
+            }
+        }
+
+        private void onCpuLoad(RecordedEvent event) {
+            synchronized (this) {
+                jvmCpuPercent = (event.getFloat("jvmUser") + event.getFloat("jvmSystem")) * 100.0;
+                machineCpuPercent = event.getFloat("machineTotal") * 100.0;
+            }
+        }
+
+        private void onThreadPark(RecordedEvent event) {
+            double parked = toMillis(event.getDuration());
+            synchronized (this) {
+                threadParkMillis += parked;
+            }
+        }
+
+        private void onAllocationSample(RecordedEvent event) {
+            long weight = event.getLong("weight");
+            synchronized (this) {
+                allocatedBytes += weight;
+            }
+        }
+
+        private synchronized void roll() {
+            Instant now = Instant.now();
+            double seconds = Math.max(1, Duration.between(bucketStart, now).toMillis()) / 1000.0;
+            history.addLast(new JfrSample(LocalDateTime.now(), gcCount, round(gcPauseMillis), round(maxGcPauseMillis),
+                    round(heapAfterGcMb), round(jvmCpuPercent), round(machineCpuPercent), round(threadParkMillis),
+                    round(allocatedBytes / MB / seconds)));
+            while (history.size() > historySize) {
+                history.removeFirst();
+            }
+
+            bucketStart = now;
+            gcCount = 0;
+            gcPauseMillis = 0;
+            maxGcPauseMillis = 0;
+            threadParkMillis = 0;
+            allocatedBytes = 0;
+        }
+
+        private synchronized List<JfrSample> snapshot() {
+            return new ArrayList<>(history);
+        }
+
+        private void close() {
+            try {
+                eventStream.close();
+            } catch (Exception e) {
+                log.debug("Error closing JFR stream for instance {}", instanceId, e);
+            }
+        }
+
+        private double toMillis(Duration duration) {
+            return duration == null ? 0 : duration.toNanos() / 1_000_000.0;
+        }
+
+        private double round(double value) {
+            return Math.round(value * 100.0) / 100.0;
+        }
+    }
+}
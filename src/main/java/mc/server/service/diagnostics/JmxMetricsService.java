@@ -0,0 +1,271 @@
+package mc.server.service.diagnostics;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.ServerInstance;
+import mc.server.repository.ServerInstanceRepository;
+import mc.server.service.PortManagerService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JmxMetricsService {
+    private static final String JMX_HOST = "127.0.0.1";
+    private static final double MB = 1024.0 * 1024.0;
+    private static final String JMX_USER = "mcpanel";
+    private static final String PASSWORD_FILE = "jmxremote.password";
+    private static final String ACCESS_FILE = "jmxremote.access";
+    // The JVM replaces the plaintext in the password file with a salted hash after the first login, so the panel
+    // keeps its own copy to reconnect with
+    private static final String PANEL_SECRET_FILE = "panel.secret";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final ServerInstanceRepository serverInstanceRepository;
+    private final PortManagerService portManagerService;
+
+    private final Map<Long, PooledConnection> connections = new ConcurrentHashMap<>();
+    private final Map<Long, JvmMetrics> latestMetrics = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicBoolean> pollsInFlight = new ConcurrentHashMap<>();
+
+    public record JvmMetrics(
+            double heapUsedMb,
+            double heapCommittedMb,
+            double heapMaxMb,
+            double gcTimePercent,
+            long gcCount,
+            int threadCount,
+            LocalDateTime timestamp
+    ) {}
+
+    public List<String> jvmArguments(ServerInstance instance) {
+        if (!Boolean.TRUE.equals(instance.getJmxEnabled()) || instance.getJmxPort() == null) {
+            return List.of();
+        }
+        int port = instance.getJmxPort();
+        Path credentials = getCredentialsDir(instance);
+        return List.of(
+                "-Dcom.sun.management.jmxremote",
+                "-Dcom.sun.management.jmxremote.port=" + port,
+                "-Dcom.sun.management.jmxremote.rmi.port=" + port,
+                "-Dcom.sun.management.jmxremote.host=" + JMX_HOST,
+                "-Djava.rmi.server.hostname=" + JMX_HOST,
+                "-Dcom.sun.management.jmxremote.local.only=true",
+                "-Dcom.sun.management.jmxremote.authenticate=true",
+                "-Dcom.sun.management.jmxremote.password.file=" + credentials.resolve(PASSWORD_FILE),
+                "-Dcom.sun.management.jmxremote.access.file=" + credentials.resolve(ACCESS_FILE),
+                "-Dcom.sun.management.jmxremote.ssl=false"
+        );
+    }
+
+    // A fresh read-only password for every start. Other local users could otherwise attach to the port, and the
+    // JVM refuses to start with a password file anyone but the owner can read
+    public void prepareCredentials(ServerInstance instance) throws IOException {
+        if (!Boolean.TRUE.equals(instance.getJmxEnabled()) || instance.getJmxPort() == null) {
+            return;
+        }
+        Path credentials = getCredentialsDir(instance);
+        Files.createDirectories(credentials);
+        byte[] secret = new byte[24];
+        RANDOM.nextBytes(secret);
+        String password = Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+        writeOwnerOnly(credentials.resolve(PANEL_SECRET_FILE), password + "\n");
+        writeOwnerOnly(credentials.resolve(PASSWORD_FILE), JMX_USER + " " + password + "\n");
+        writeOwnerOnly(credentials.resolve(ACCESS_FILE), JMX_USER + " readonly\n");
+    }
+
+    public void setEnabled(Long instanceId, boolean enabled) {
+        ServerInstance instance = serverInstanceRepository.findById(instanceId)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid instanceId: " + instanceId));
+        instance.setJmxEnabled(enabled);
+        if (enabled && (instance.getJmxPort() == null || instance.getJmxPort() <= 0)) {
+            instance.setJmxPort(portManagerService.findAvailableJmxPort());
+        }
+        serverInstanceRepository.save(instance);
+    }
+
+    public Optional<JvmMetrics> getLatestMetrics(Long instanceId) {
+        return Optional.ofNullable(latestMetrics.get(instanceId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connections.values().forEach(PooledConnection::close);
+        connections.clear();
+    }
+
+    @Scheduled(fixedDelayString = "${minecraft.jmx.poll-interval-ms:10000}")
+    public void pollMetrics() {
+        for (ServerInstance instance : serverInstanceRepository.findAll()) {
+            Long instanceId = instance.getId();
+            boolean running = Boolean.TRUE.equals(instance.getJmxEnabled()) && instance.getJmxPort() != null &&
+                    instance.getPid() != null &&
+                    ProcessHandle.of(instance.getPid()).map(ProcessHandle::isAlive).orElse(false);
+
+            if (!running) {
+                latestMetrics.remove(instanceId);
+                closeConnection(instanceId);
+                continue;
+            }
+
+            // A server that is slow to answer must not delay the others or stack up overlapping polls
+            AtomicBoolean inFlight = pollsInFlight.computeIfAbsent(instanceId, k -> new AtomicBoolean());
+            if (inFlight.compareAndSet(false, true)) {
+                CompletableFuture.runAsync(() -> poll(instance))
+                        .whenComplete((result, throwable) -> inFlight.set(false));
+            }
+        }
+    }
+
+    private void poll(ServerInstance instance) {
+        Long instanceId = instance.getId();
+        try {
+            PooledConnection connection = connections.get(instanceId);
+            if (connection == null || connection.pid != instance.getPid() || connection.port != instance.getJmxPort()) {
+                closeConnection(instanceId);
+                connection = PooledConnection.open(instance.getPid(), instance.getJmxPort(), readPassword(instance));
+                connections.put(instanceId, connection);
+                log.info("Connected to JMX of instance {} on {}:{}", instanceId, JMX_HOST, instance.getJmxPort());
+            }
+            latestMetrics.put(instanceId, connection.sample());
+        } catch (Exception e) {
+            log.debug("JMX poll failed for instance {}: {}", instanceId, e.getMessage());
+            closeConnection(instanceId);
+        }
+    }
+
+    private static String readPassword(ServerInstance instance) throws IOException {
+        Path secretFile = getCredentialsDir(instance).resolve(PANEL_SECRET_FILE);
+        String password = Files.exists(secretFile) ? Files.readString(secretFile).trim() : "";
+        if (password.isEmpty()) {
+            throw new IOException("No JMX password for instance " + instance.getId() + ", restart the server to create one");
+        }
+        return password;
+    }
+
+    private static void writeOwnerOnly(Path file, String content) throws IOException {
+        Files.deleteIfExists(file);
+        if (Files.getFileStore(file.getParent()).supportsFileAttributeView("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+        } else {
+            Files.createFile(file);
+        }
+        Files.writeString(file, content);
+    }
+
+    private static Path getCredentialsDir(ServerInstance instance) {
+        return Paths.get(instance.getInstancePath(), "diagnostics", "jmx").toAbsolutePath();
+    }
+
+    private void closeConnection(Long instanceId) {
+        PooledConnection connection = connections.remove(instanceId);
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    private static class PooledConnection {
+        private final long pid;
+        private final int port;
+        private final JMXConnector connector;
+        private final MemoryMXBean memoryBean;
+        private final List<GarbageCollectorMXBean> gcBeans;
+        private final ThreadMXBean threadBean;
+
+        private long lastGcTimeMillis = -1;
+        private long lastSampleNanos;
+
+        private PooledConnection(long pid, int port, JMXConnector connector) throws IOException {
+            this.pid = pid;
+            this.port = port;
+            this.connector = connector;
+            MBeanServerConnection connection = connector.getMBeanServerConnection();
+            this.memoryBean = ManagementFactory.newPlatformMXBeanProxy(connection, ManagementFactory.MEMORY_MXBEAN_NAME, MemoryMXBean.class);
+            this.gcBeans = ManagementFactory.getPlatformMXBeans(connection, GarbageCollectorMXBean.class);
+            this.threadBean = ManagementFactory.newPlatformMXBeanProxy(connection, ManagementFactory.THREAD_MXBEAN_NAME, ThreadMXBean.class);
+        }
+
+        private static PooledConnection open(long pid, int port, String password) throws IOException {
+            JMXServiceURL url = new JMXServiceURL("service:jmx:rmi:///jndi/rmi://" + JMX_HOST + ":" + port + "/jmxrmi");
+            JMXConnector connector = JMXConnectorFactory.connect(url, Map.of(JMXConnector.CREDENTIALS, new String[]{JMX_USER, password}));
+            try {
+                return new PooledConnection(pid, port, connector);
+            } catch (IOException | RuntimeException e) {
+                connector.close();
+                throw e;
+            }
+        }
+
+        private synchronized JvmMetrics sample() {
+            MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+            long gcTimeMillis = 0;
+            long gcCount = 0;
+            for (GarbageCollectorMXBean gcBean : gcBeans) {
+                gcTimeMillis += Math.max(0, gcBean.getCollectionTime());
+                gcCount += Math.max(0, gcBean.getCollectionCount());
+            }
+            int threadCount = threadBean.getThreadCount();
+
+            long now = System.nanoTime();
+            double gcTimePercent = 0.0;
+            if (lastGcTimeMillis >= 0) {
+                double wallMillis = (now - lastSampleNanos) / 1_000_000.0;
+                if (wallMillis > 0) {
+                    gcTimePercent = Math.min(100.0, (gcTimeMillis - lastGcTimeMillis) * 100.0 / wallMillis);
+                }
+            }
+            lastGcTimeMillis = gcTimeMillis;
+            lastSampleNanos = now;
+
+            return new JvmMetrics(
+                    round(heap.getUsed() / MB),
+                    round(heap.getCommitted() / MB),
+                    heap.getMax() < 0 ? 0 : round(heap.getMax() / MB),
+                    round(gcTimePercent),
+                    gcCount,
+                    threadCount,
+                    LocalDateTime.now()
+            );
+        }
+
+        private void close() {
+            try {
+                connector.close();
+            } catch (Exception e) {
+                log.debug("Error closing JMX connection on port {}", port, e);
+            }
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100.0) / 100.0;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package mc.server.service.diagnostics;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.ServerInstance;
+import mc.server.repository.ServerInstanceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SamplingProfilerService {
+    private static final int MAX_PROFILES_PER_INSTANCE = 5;
+
+    @Value("${minecraft.profiler.max-duration-seconds:300}")
+    private int maxDurationSeconds;
+
+    @Value("${minecraft.profiler.min-interval-ms:100}")
+    private int minIntervalMillis;
+
+    private final JcmdService jcmdService;
+    private final ServerInstanceRepository serverInstanceRepository;
+
+    private final Map<String, Profile> profiles = new ConcurrentHashMap<>();
+    // Claimed atomically, so two concurrent requests cannot both start a profile for the same instance
+    private final Map<Long, Profile> activeProfiles = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "sampling-profiler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public enum ProfileStatus {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    public record ProfileSummary(
+            String id,
+            Long instanceId,
+            ProfileStatus status,
+            LocalDateTime startedAt,
+            LocalDateTime finishedAt,
+            int durationSeconds,
+            int intervalMillis,
+            int dumps,
+            long stackSamples,
+            String error
+    ) {}
+
+    public record HotMethod(String method, long selfSamples, long totalSamples, double selfPercent, double totalPercent) {}
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public ProfileSummary startProfile(Long instanceId, int durationSeconds, int intervalMillis, boolean includeIdle, boolean perThread) {
+        ServerInstance instance = getInstance(instanceId);
+        if (instance.getPid() == null || ProcessHandle.of(instance.getPid()).map(h -> !h.isAlive()).orElse(true)) {
+            throw new IllegalStateException("Server instance " + instanceId + " is not running");
+        }
+        Profile profile = new Profile(UUID.randomUUID().toString(), instanceId,
+                Math.max(1, Math.min(durationSeconds, maxDurationSeconds)),
+                Math.max(intervalMillis, minIntervalMillis), includeIdle, perThread);
+        if (activeProfiles.putIfAbsent(instanceId, profile) != null) {
+            throw new IllegalStateException("A profile is already running for instance " + instanceId);
+        }
+        profiles.put(profile.id, profile);
+        evictOldProfiles(instanceId);
+
+        long pid = instance.getPid();
+        try {
+            executor.submit(() -> runProfile(profile, pid));
+        } catch (RuntimeException e) {
+            profile.finish(ProfileStatus.FAILED, e.getMessage());
+            activeProfiles.remove(instanceId, profile);
+            throw e;
+        }
+        log.info("Started sampling profile {} for instance {} ({}s every {} ms)", profile.id, instanceId,
+                profile.durationSeconds, profile.intervalMillis);
+        return profile.toSummary();
+    }
+
+    public List<ProfileSummary> listProfiles(Long instanceId) {
+        return profiles.values().stream()
+                .filter(p -> p.instanceId.equals(instanceId))
+                .sorted(Comparator.comparing((Profile p) -> p.startedAt).reversed())
+                .map(Profile::toSummary)
+                .toList();
+    }
+
+    public ProfileSummary getProfile(Long instanceId, String profileId) {
+        return findProfile(instanceId, profileId).toSummary();
+    }
+
+    // One line per distinct stack, root first: "frame;frame;frame count" (the format flamegraph.pl reads)
+    public String getCollapsedStacks(Long instanceId, String profileId) {
+        StringBuilder collapsed = new StringBuilder();
+        findProfile(instanceId, profileId).snapshotStacks().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> collapsed.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n'));
+        return collapsed.toString();
+    }
+
+    public String getFlameGraph(Long instanceId, String profileId) {
+        Profile profile = findProfile(instanceId, profileId);
+        String title = String.format("Instance %d - %d stack samples from %d thread dumps", instanceId,
+                profile.stackSamples, profile.dumps);
+        return FlameGraphRenderer.render(profile.snapshotStacks(), title);
+    }
+
+    public List<HotMethod> getHotMethods(Long instanceId, String profileId, int limit) {
+        Profile profile = findProfile(instanceId, profileId);
+        Map<String, Long> stacks = profile.snapshotStacks();
+
+        Map<String, Long> selfSamples = new HashMap<>();
+        Map<String, Long> totalSamples = new HashMap<>();
+        long total = 0;
+        int firstMethodFrame = profile.perThread ? 1 : 0;
+        for (Map.Entry<String, Long> entry : stacks.entrySet()) {
+            String[] frames = entry.getKey().split(";");
+            long count = entry.getValue();
+            total += count;
+            if (frames.length <= firstMethodFrame) {
+                continue;
+            }
+            selfSamples.merge(frames[frames.length - 1], count, Long::sum);
+            Set<String> seen = new HashSet<>();
+            for (int i = firstMethodFrame; i < frames.length; i++) {
+                if (seen.add(frames[i])) {
+                    totalSamples.merge(frames[i], count, Long::sum);
+                }
+            }
+        }
+
+        long sampleCount = total;
+        return totalSamples.entrySet().stream()
+                .map(entry -> {
+                    long self = selfSamples.getOrDefault(entry.getKey(), 0L);
+                    return new HotMethod(entry.getKey(), self, entry.getValue(),
+                            percent(self, sampleCount), percent(entry.getValue(), sampleCount));
+                })
+                .sorted(Comparator.comparingLong(HotMethod::selfSamples).reversed()
+                        .thenComparing(Comparator.comparingLong(HotMethod::totalSamples).reversed()))
+                .limit(Math.max(1, limit))
+                .toList();
+    }
+
+    private void runProfile(Profile profile, long pid) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(profile.durationSeconds);
+        try {
+            while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                long sampleStart = System.nanoTime();
+                profile.record(jcmdService.execute(pid, "Thread.print"));
+
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sampleStart);
+                if (elapsedMillis < profile.intervalMillis) {
+                    Thread.sleep(profile.intervalMillis - elapsedMillis);
+                }
+            }
+            profile.finish(ProfileStatus.COMPLETED, null);
+            log.info("Sampling profile {} for instance {} completed: {} thread dumps, {} stack samples",
+                    profile.id, profile.instanceId, profile.dumps, profile.stackSamples);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            profile.finish(ProfileStatus.FAILED, "Profiling interrupted");
+        } catch (Exception e) {
+            log.error("Sampling profile {} for instance {} failed", profile.id, profile.instanceId, e);
+            profile.finish(profile.dumps > 0 ? ProfileStatus.COMPLETED : ProfileStatus.FAILED, e.getMessage());
+        } finally {
+            activeProfiles.remove(profile.instanceId, profile);
+        }
+    }
+
+    private void evictOldProfiles(Long instanceId) {
+        profiles.values().stream()
+                .filter(p -> p.instanceId.equals(instanceId) && p.status != ProfileStatus.RUNNING)
+                .sorted(Comparator.comparing((Profile p) -> p.startedAt).reversed())
+                .skip(MAX_PROFILES_PER_INSTANCE - 1)
+                .forEach(p -> profiles.remove(p.id));
+    }
+
+    private Profile findProfile(Long instanceId, String profileId) {
+        Profile profile = profiles.get(profileId);
+        if (profile == null || !profile.instanceId.equals(instanceId)) {
+            throw new IllegalArgumentException("Profile not found: " + profileId);
+        }
+        return profile;
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0.0 : Math.round(part * 10000.0 / total) / 100.0;
+    }
+
+    private ServerInstance getInstance(Long instanceId) {
+        return serverInstanceRepository.findById(instanceId)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid instanceId: " + instanceId));
+    }
+
+    private static class Profile {
+        private final String id;
+        private final Long instanceId;
+        private final int durationSeconds;
+        private final int intervalMillis;
+        private final boolean includeIdle;
+        private final boolean perThread;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final Map<String, Long> stacks = new HashMap<>();
+
+        private volatile ProfileStatus status = ProfileStatus.RUNNING;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+        private volatile int dumps;
+        private volatile long stackSamples;
+
+        private Profile(String id, Long instanceId, int durationSeconds, int intervalMillis, boolean includeIdle, boolean perThread) {
+            this.id = id;
+            this.instanceId = instanceId;
+            this.durationSeconds = durationSeconds;
+            this.intervalMillis = intervalMillis;
+            this.includeIdle = includeIdle;
+            this.perThread = perThread;
+        }
+
+        private synchronized void record(String dump) {
+            for (ThreadDumpParser.ThreadStack thread : ThreadDumpParser.parse(dump)) {
+                if (thread.frames().isEmpty() || (!includeIdle && !"RUNNABLE".equals(thread.state()))) {
+                    continue;
+                }
+
+                List<String> frames = new ArrayList<>(thread.frames());
+                Collections.reverse(frames);
+                if (perThread) {
+                    frames.add(0, thread.name().replaceAll("\\d+", "#").replace(';', ':'));
+                }
+                stacks.merge(String.join(";", frames), 1L, Long::sum);
+                stackSamples++;
+            }
+            dumps++;
+        }
+
+        private synchronized Map<String, Long> snapshotStacks() {
+            return new HashMap<>(stacks);
+        }
+
+        private void finish(ProfileStatus finalStatus, String message) {
+            error = message;
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+        }
+
+        private ProfileSummary toSummary() {
+            return new ProfileSummary(id, instanceId, status, startedAt, finishedAt, durationSeconds, intervalMillis,
+                    dumps, stackSamples, error);
+        }
+    }
+}
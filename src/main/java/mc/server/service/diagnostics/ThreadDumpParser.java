@@ -0,0 +1,49 @@
+package mc.server.service.diagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ThreadDumpParser {
+
+    private ThreadDumpParser() {
+    }
+
+    public record ThreadStack(String name, String state, List<String> frames) {}
+
+    public static List<ThreadStack> parse(String dump) {
+        List<ThreadStack> threads = new ArrayList<>();
+        String name = null;
+        String state = null;
+        List<String> frames = new ArrayList<>();
+
+        for (String rawLine : dump.split("\n")) {
+            String line = rawLine.strip();
+            if (line.startsWith("\"")) {
+                if (name != null) {
+                    threads.add(new ThreadStack(name, state, frames));
+                }
+                int end = line.indexOf('"', 1);
+                name = end > 0 ? line.substring(1, end) : line.substring(1);
+                state = null;
+                frames = new ArrayList<>();
+            } else if (name != null && line.startsWith("java.lang.Thread.State: ")) {
+                String value = line.substring("java.lang.Thread.State: ".length());
+                int space = value.indexOf(' ');
+                state = space > 0 ? value.substring(0, space) : value;
+            } else if (name != null && line.startsWith("at ")) {
+                frames.add(frameName(line.substring(3)));
+            }
+        }
+        if (name != null) {
+            threads.add(new ThreadStack(name, state, frames));
+        }
+        return threads;
+    }
+
+    // "net.minecraft.server.MinecraftServer.tick(MinecraftServer.java:900)" -> "net.minecraft.server.MinecraftServer.tick"
+    private static String frameName(String frame) {
+        int paren = frame.indexOf('(');
+        String method = paren > 0 ? frame.substring(0, paren) : frame;
+        return method.replace(';', ':');
+    }
+}
@@ -0,0 +1,99 @@
+package mc.server.service.diagnostics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.ServerInstance;
+import mc.server.repository.ServerInstanceRepository;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ThreadDumpService {
+    private static final String DUMP_PREFIX = "thread-dump-";
+    private static final String DUMP_SUFFIX = ".txt";
+
+    private final JcmdService jcmdService;
+    private final ServerInstanceRepository serverInstanceRepository;
+
+    public record ThreadDumpInfo(String name, long sizeBytes, LocalDateTime createdAt) {}
+
+    public String captureThreadDump(Long instanceId) throws IOException {
+        ServerInstance instance = getInstance(instanceId);
+        if (instance.getPid() == null) {
+            throw new IllegalStateException("Server instance " + instanceId + " is not running");
+        }
+        return jcmdService.execute(instance.getPid(), "Thread.print", "-l");
+    }
+
+    public Path captureAndStore(Long instanceId, String reason) throws IOException {
+        String dump = captureThreadDump(instanceId);
+
+        Path dumpDir = getDumpDirectory(instanceId);
+        Files.createDirectories(dumpDir);
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+        Path dumpFile = dumpDir.resolve(DUMP_PREFIX + timestamp + DUMP_SUFFIX);
+
+        Files.writeString(dumpFile, "# Reason: " + reason + System.lineSeparator() + dump);
+        log.info("Stored thread dump for instance {}: {}", instanceId, dumpFile);
+        return dumpFile;
+    }
+
+    public List<ThreadDumpInfo> listThreadDumps(Long instanceId) throws IOException {
+        Path dumpDir = getDumpDirectory(instanceId);
+        if (!Files.isDirectory(dumpDir)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.list(dumpDir)) {
+            return files
+                    .filter(this::isThreadDump)
+                    .map(this::toInfo)
+                    .sorted(Comparator.comparing(ThreadDumpInfo::createdAt).reversed())
+                    .toList();
+        }
+    }
+
+    public String readThreadDump(Long instanceId, String name) throws IOException {
+        Path dumpDir = getDumpDirectory(instanceId);
+        Path dumpFile = dumpDir.resolve(name).normalize();
+        if (!dumpFile.getParent().equals(dumpDir) || !isThreadDump(dumpFile) || !Files.exists(dumpFile)) {
+            throw new IllegalArgumentException("Thread dump not found: " + name);
+        }
+        return Files.readString(dumpFile);
+    }
+
+    private boolean isThreadDump(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.startsWith(DUMP_PREFIX) && fileName.endsWith(DUMP_SUFFIX);
+    }
+
+    private ThreadDumpInfo toInfo(Path path) {
+        try {
+            LocalDateTime createdAt = LocalDateTime.ofInstant(Files.getLastModifiedTime(path).toInstant(), ZoneId.systemDefault());
+            return new ThreadDumpInfo(path.getFileName().toString(), Files.size(path), createdAt);
+        } catch (IOException e) {
+            return new ThreadDumpInfo(path.getFileName().toString(), 0, LocalDateTime.now());
+        }
+    }
+
+    private Path getDumpDirectory(Long instanceId) {
+        return Paths.get(getInstance(instanceId).getInstancePath(), "diagnostics", "thread-dumps").normalize();
+    }
+
+    private ServerInstance getInstance(Long instanceId) {
+        return serverInstanceRepository.findById(instanceId)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid instanceId: " + instanceId));
+    }
+}
@@ -0,0 +1,205 @@
+package mc.server.service.log;
+
+import mc.server.model.ConsoleMessage;
+
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed-size console history. Every message gets the next sequence number and overwrites the slot of the message
+// capacity places before it, so appending is O(1) and reads only touch the slots they return.
+// Nothing is kept as objects: type and source are byte codes, the timestamp epoch millis and the text UTF-8 in one
+// byte slab that is written round-robin like the slots. ConsoleMessages are only built for what is read.
+// Readers never lock, they check the slot's sequence and the slab position again after copying and drop the
+// entry if a writer overtook them
+public class ConsoleHistoryBuffer {
+    private static final int DEFAULT_BYTES_PER_LINE = 128;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    // Types and sources are a handful of fixed strings, shared across all buffers. Code 0 is null
+    private static final List<String> CODES = new CopyOnWriteArrayList<>(List.of(
+            "", "info", "warning", "error", "command", "raw", "player_join", "player_leave", "server", "admin", "system"));
+    private static final Map<String, Byte> CODES_BY_NAME = new ConcurrentHashMap<>();
+
+    static {
+        for (int i = 1; i < CODES.size(); i++) {
+            CODES_BY_NAME.put(CODES.get(i), (byte) i);
+        }
+    }
+
+    private final int capacity;
+    private final AtomicLongArray sequences;
+    private final long[] timestamps;
+    private final byte[] types;
+    private final byte[] sources;
+    private final long[] textStarts;
+    private final int[] textLengths;
+    private final byte[] slab;
+    private final int maxTextBytes;
+
+    private long nextSequence = 1;
+    private volatile long lastPublished;
+    private volatile long slabWritten;
+    private volatile long clearedBefore = 1;
+
+    public ConsoleHistoryBuffer(int capacity) {
+        this(capacity, DEFAULT_BYTES_PER_LINE);
+    }
+
+    public ConsoleHistoryBuffer(int capacity, int bytesPerLine) {
+        this.capacity = Math.max(1, capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        this.timestamps = new long[this.capacity];
+        this.types = new byte[this.capacity];
+        this.sources = new byte[this.capacity];
+        this.textStarts = new long[this.capacity];
+        this.textLengths = new int[this.capacity];
+        this.slab = new byte[(int) Math.min(Integer.MAX_VALUE - 8, (long) this.capacity * Math.max(16, bytesPerLine))];
+        this.maxTextBytes = Math.max(1, slab.length / 4);
+    }
+
+    // Writers are serialised, in practice there is one per instance and the lock is never contended
+    public synchronized long append(ConsoleMessage message) {
+        long sequence = nextSequence++;
+        message.setSequence(sequence);
+        byte[] text = message.getMessage() != null ? message.getMessage().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = Math.min(text.length, maxTextBytes);
+        if (length < text.length) {
+            // Do not leave half a UTF-8 sequence at the cut
+            while (length > 0 && (text[length] & 0xC0) == 0x80) {
+                length--;
+            }
+        }
+
+        int slot = slot(sequence);
+        sequences.set(slot, 0);
+        long start = slabWritten;
+        // Claim the bytes before overwriting them, so readers of older entries see that they are gone
+        slabWritten = start + length;
+        // A volatile store only orders what came before it, without the fence the plain writes below could become
+        // visible ahead of the invalidation and a reader's re-check would accept a half-overwritten entry
+        VarHandle.storeStoreFence();
+        int offset = (int) (start % slab.length);
+        int firstPart = Math.min(length, slab.length - offset);
+        System.arraycopy(text, 0, slab, offset, firstPart);
+        System.arraycopy(text, firstPart, slab, 0, length - firstPart);
+
+        timestamps[slot] = message.getTimestamp() != null ? message.getTimestamp().atZone(ZONE).toInstant().toEpochMilli() : Long.MIN_VALUE;
+        types[slot] = code(message.getType());
+        sources[slot] = code(message.getSource());
+        textStarts[slot] = start;
+        textLengths[slot] = length;
+        sequences.set(slot, sequence);
+        lastPublished = sequence;
+        return sequence;
+    }
+
+    public List<ConsoleMessage> last(int limit) {
+        return since(lastPublished - Math.max(0, limit), limit);
+    }
+
+    // The oldest limit messages with a sequence above afterSequence, so a client paging with the last sequence it
+    // got sees every retained message exactly once. last() is the one that wants the newest
+    public List<ConsoleMessage> since(long afterSequence, int limit) {
+        long published = lastPublished;
+        long start = Math.max(Math.max(afterSequence + 1, published + 1 - capacity), clearedBefore);
+        long end = Math.min(published + 1, start + Math.max(0, limit));
+        List<ConsoleMessage> messages = new ArrayList<>((int) Math.max(0, end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            ConsoleMessage message = read(sequence);
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    public List<ConsoleMessage> all() {
+        return since(0, capacity);
+    }
+
+    // Sequences keep counting up, so clients holding an old sequence simply see nothing before the clear
+    public void clear() {
+        clearedBefore = lastPublished + 1;
+    }
+
+    public long getLastSequence() {
+        return lastPublished;
+    }
+
+    public int size() {
+        long end = lastPublished + 1;
+        return (int) (end - Math.max(end - capacity, clearedBefore));
+    }
+
+    private ConsoleMessage read(long sequence) {
+        int slot = slot(sequence);
+        if (sequences.get(slot) != sequence) {
+            return null;
+        }
+        long timestamp = timestamps[slot];
+        byte type = types[slot];
+        byte source = sources[slot];
+        long start = textStarts[slot];
+        int length = textLengths[slot];
+        if (length < 0 || length > maxTextBytes) {
+            return null;
+        }
+        byte[] text = new byte[length];
+        int offset = (int) (start % slab.length);
+        int firstPart = Math.min(length, slab.length - offset);
+        System.arraycopy(slab, offset, text, 0, firstPart);
+        System.arraycopy(slab, 0, text, firstPart, length - firstPart);
+
+        VarHandle.acquireFence();
+        if (sequences.get(slot) != sequence || start < slabWritten - slab.length) {
+            return null;
+        }
+        return ConsoleMessage.builder()
+                .type(name(type))
+                .source(name(source))
+                .timestamp(timestamp != Long.MIN_VALUE ? LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZONE) : null)
+                .message(new String(text, StandardCharsets.UTF_8))
+                .sequence(sequence)
+                .build();
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    private static byte code(String name) {
+        if (name == null) {
+            return 0;
+        }
+        Byte code = CODES_BY_NAME.get(name);
+        if (code != null) {
+            return code;
+        }
+        synchronized (CODES) {
+            code = CODES_BY_NAME.get(name);
+            if (code == null) {
+                if (CODES.size() > Byte.MAX_VALUE) {
+                    // Never expected, but an unbounded set of names must not overflow the table
+                    return CODES_BY_NAME.get("raw");
+                }
+                CODES.add(name);
+                code = (byte) (CODES.size() - 1);
+                CODES_BY_NAME.put(name, code);
+            }
+            return code;
+        }
+    }
+
+    private static String name(byte code) {
+        return code == 0 ? null : CODES.get(code);
+    }
+}
@@ -0,0 +1,28 @@
+package mc.server.service.log;
+
+import java.time.LocalDateTime;
+
+// Typed events recognised in a server's log, published through the Spring application event bus as each line is
+// tailed. Subscribe with @EventListener on the record type, or on GameEvent for all of them
+public sealed interface GameEvent {
+    Long instanceId();
+
+    LocalDateTime timestamp();
+
+    record PlayerJoin(Long instanceId, LocalDateTime timestamp, String player) implements GameEvent {}
+
+    record PlayerLeave(Long instanceId, LocalDateTime timestamp, String player) implements GameEvent {}
+
+    record Chat(Long instanceId, LocalDateTime timestamp, String player, String message) implements GameEvent {}
+
+    record Death(Long instanceId, LocalDateTime timestamp, String player, String message) implements GameEvent {}
+
+    // kind is "advancement", "challenge" or "goal"
+    record Advancement(Long instanceId, LocalDateTime timestamp, String player, String kind, String advancement) implements GameEvent {}
+
+    record ServerStarted(Long instanceId, LocalDateTime timestamp, double startupSeconds) implements GameEvent {}
+
+    record ServerStopping(Long instanceId, LocalDateTime timestamp) implements GameEvent {}
+
+    record SaveComplete(Long instanceId, LocalDateTime timestamp) implements GameEvent {}
+}
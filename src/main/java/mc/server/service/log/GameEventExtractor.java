@@ -0,0 +1,112 @@
+package mc.server.service.log;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Turns an already parsed INFO line into a GameEvent. The first character and a few fixed phrases decide which event
+// it can be, so each line is checked against at most a couple of candidates instead of every pattern
+public final class GameEventExtractor {
+    private static final String NOT_SECURE = "[Not Secure] ";
+    private static final String JOINED = " joined the game";
+    private static final String LEFT = " left the game";
+    private static final String DONE = "Done (";
+    private static final List<String[]> ADVANCEMENT_PHRASES = List.of(
+            new String[]{" has made the advancement [", "advancement"},
+            new String[]{" has completed the challenge [", "challenge"},
+            new String[]{" has reached the goal [", "goal"});
+    // Vanilla death messages start with the player's name followed by one of these
+    private static final List<String> DEATH_PHRASES = List.of(
+            "was ", "died", "drowned", "burned", "fell ", "suffocated", "starved", "withered", "experienced kinetic energy",
+            "went up in flames", "went off with a bang", "discovered the floor was lava", "tried to swim in lava",
+            "walked into fire", "hit the ground", "froze to death", "blew up");
+
+    private GameEventExtractor() {
+    }
+
+    public static GameEvent extract(Long instanceId, LogLineParser.ParsedLine line, LocalDateTime timestamp) {
+        if (line.level() != LogLineParser.Level.INFO) {
+            return null;
+        }
+        String message = line.message();
+        if (message.startsWith(NOT_SECURE)) {
+            message = message.substring(NOT_SECURE.length());
+        }
+        if (message.isEmpty()) {
+            return null;
+        }
+
+        if (message.charAt(0) == '<') {
+            int close = message.indexOf("> ");
+            if (close > 1 && isPlayerName(message, 1, close)) {
+                return new GameEvent.Chat(instanceId, timestamp, message.substring(1, close), message.substring(close + 2));
+            }
+            return null;
+        }
+
+        switch (line.kind()) {
+            case PLAYER_JOIN -> {
+                return message.endsWith(JOINED) && isPlayerName(message, 0, message.length() - JOINED.length())
+                        ? new GameEvent.PlayerJoin(instanceId, timestamp, message.substring(0, message.length() - JOINED.length()))
+                        : null;
+            }
+            case PLAYER_LEAVE -> {
+                return message.endsWith(LEFT) && isPlayerName(message, 0, message.length() - LEFT.length())
+                        ? new GameEvent.PlayerLeave(instanceId, timestamp, message.substring(0, message.length() - LEFT.length()))
+                        : null;
+            }
+            default -> {
+            }
+        }
+
+        if (message.startsWith(DONE)) {
+            int seconds = message.indexOf("s)!", DONE.length());
+            if (seconds > 0) {
+                try {
+                    return new GameEvent.ServerStarted(instanceId, timestamp, Double.parseDouble(message.substring(DONE.length(), seconds)));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+            return null;
+        }
+        if (message.equals("Stopping server")) {
+            return new GameEvent.ServerStopping(instanceId, timestamp);
+        }
+        if (message.equals("Saved the game")) {
+            return new GameEvent.SaveComplete(instanceId, timestamp);
+        }
+
+        int space = message.indexOf(' ');
+        if (space <= 0 || !isPlayerName(message, 0, space)) {
+            return null;
+        }
+        String player = message.substring(0, space);
+        for (String[] phrase : ADVANCEMENT_PHRASES) {
+            if (message.startsWith(phrase[0], space) && message.endsWith("]")) {
+                return new GameEvent.Advancement(instanceId, timestamp, player, phrase[1],
+                        message.substring(space + phrase[0].length(), message.length() - 1));
+            }
+        }
+        for (String phrase : DEATH_PHRASES) {
+            if (message.startsWith(phrase, space + 1)) {
+                return new GameEvent.Death(instanceId, timestamp, player, message);
+            }
+        }
+        return null;
+    }
+
+    // Java edition names are 3 to 16 letters, digits and underscores, a looser 1 to 16 also covers offline-mode servers
+    private static boolean isPlayerName(String text, int from, int to) {
+        int length = to - from;
+        if (length < 1 || length > 16) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
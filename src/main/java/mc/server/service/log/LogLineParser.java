@@ -0,0 +1,98 @@
+package mc.server.service.log;
+
+// Reads the "[HH:MM:SS] [thread/LEVEL]: message" prefix of a server log line in one left-to-right pass and sorts
+// the message with plain substring checks, instead of running a regex per level and per event type.
+// Lines without that prefix (stack traces, plugin output) come back with level RAW and the whole line as message
+public final class LogLineParser {
+
+    public enum Level { INFO, WARN, ERROR, RAW }
+
+    public enum Kind { MESSAGE, PLAYER_JOIN, PLAYER_LEAVE, IGNORED }
+
+    // hour is -1 when the line had no timestamp
+    public record ParsedLine(int hour, int minute, int second, String thread, Level level, String message, Kind kind) {}
+
+    private static final String JOINED = " joined the game";
+    private static final String LEFT = " left the game";
+
+    private LogLineParser() {
+    }
+
+    public static ParsedLine parse(String line) {
+        if (isIgnored(line)) {
+            return new ParsedLine(-1, -1, -1, null, Level.RAW, line, Kind.IGNORED);
+        }
+
+        int length = line.length();
+        // [HH:MM:SS] [ is 13 characters, the shortest possible header "[00:00:00] [t/INFO]: x" is longer still
+        if (length < 13 || line.charAt(0) != '[' || line.charAt(3) != ':' || line.charAt(6) != ':'
+                || line.charAt(9) != ']' || line.charAt(10) != ' ' || line.charAt(11) != '[') {
+            return raw(line, -1, -1, -1);
+        }
+        int hour = twoDigits(line, 1);
+        int minute = twoDigits(line, 4);
+        int second = twoDigits(line, 7);
+        if (hour < 0 || minute < 0 || second < 0) {
+            return raw(line, -1, -1, -1);
+        }
+
+        int headerEnd = line.indexOf("]: ", 12);
+        if (headerEnd < 0) {
+            return raw(line, hour, minute, second);
+        }
+        int slash = line.lastIndexOf('/', headerEnd);
+        if (slash < 12) {
+            return raw(line, hour, minute, second);
+        }
+        Level level = level(line, slash + 1, headerEnd);
+        int messageStart = headerEnd + 3;
+        if (level == Level.RAW || messageStart >= length) {
+            return raw(line, hour, minute, second);
+        }
+
+        String message = line.substring(messageStart);
+        Kind kind = Kind.MESSAGE;
+        if (level == Level.INFO) {
+            if (message.indexOf(JOINED) > 0) {
+                kind = Kind.PLAYER_JOIN;
+            } else if (message.indexOf(LEFT) > 0) {
+                kind = Kind.PLAYER_LEAVE;
+            }
+        }
+        return new ParsedLine(hour, minute, second, line.substring(12, slash), level, message, kind);
+    }
+
+    // RCON connection chatter and UUID lookups are noise in the console
+    private static boolean isIgnored(String line) {
+        int rcon = line.indexOf("Thread RCON Client ");
+        if (rcon >= 0 && (line.indexOf(" started", rcon) > 0 || line.indexOf(" shutting down", rcon) > 0)) {
+            return true;
+        }
+        if (line.contains("RCON running on")) {
+            return true;
+        }
+        int uuid = line.indexOf("UUID of player ");
+        return uuid >= 0 && line.indexOf(" is ", uuid + 15) > 0;
+    }
+
+    private static Level level(String line, int from, int to) {
+        return switch (to - from) {
+            case 4 -> line.startsWith("INFO", from) ? Level.INFO : line.startsWith("WARN", from) ? Level.WARN : Level.RAW;
+            case 5 -> line.startsWith("ERROR", from) ? Level.ERROR : Level.RAW;
+            default -> Level.RAW;
+        };
+    }
+
+    private static ParsedLine raw(String line, int hour, int minute, int second) {
+        return new ParsedLine(hour, minute, second, null, Level.RAW, line, Kind.MESSAGE);
+    }
+
+    private static int twoDigits(String line, int index) {
+        int tens = line.charAt(index) - '0';
+        int ones = line.charAt(index + 1) - '0';
+        if (tens < 0 || tens > 9 || ones < 0 || ones > 9) {
+            return -1;
+        }
+        return tens * 10 + ones;
+    }
+}
@@ -0,0 +1,206 @@
+package mc.server.service.log;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+// Follows a growing text file through one reusable direct buffer. Lines are split on the '\n' byte, which never
+// occurs inside a multi-byte UTF-8 sequence, so each line is decoded whole no matter where a read ended.
+// The offset only advances past complete lines and can be used as a checkpoint to resume from.
+// Follows the path rather than the open file, so rotation and in-place truncation are picked up on the next poll
+@Slf4j
+public class LogTailer implements Closeable {
+    private static final int DEFAULT_BUFFER_BYTES = 64 * 1024;
+    // Longer lines are cut here instead of growing the carry-over buffer without bound
+    private static final int MAX_LINE_BYTES = 64 * 1024;
+
+    @FunctionalInterface
+    public interface LineHandler {
+        void onLine(String line);
+    }
+
+    private final Path path;
+    private FileChannel channel;
+    private Object fileKey;
+    private final ByteBuffer buffer;
+    // Heap copy of each read, scanning a plain array is several times faster than indexed gets on the direct buffer
+    private final byte[] chunk;
+    private byte[] pending = new byte[256];
+    private int pendingLength;
+    private boolean truncating;
+    private long readPosition;
+    private long committedOffset;
+    private int rotations;
+    private long lastReopenLatencyMillis = -1;
+
+    public LogTailer(Path path, long startOffset) throws IOException {
+        this(path, startOffset, DEFAULT_BUFFER_BYTES);
+    }
+
+    public LogTailer(Path path, long startOffset, int bufferBytes) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileKey = fileIdentity(path);
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+        this.chunk = new byte[bufferBytes];
+        this.readPosition = Math.min(Math.max(0, startOffset), channel.size());
+        this.committedOffset = readPosition;
+    }
+
+    // Hands every complete line written since the last call to the handler and returns how many there were.
+    // A trailing line without its newline yet is held back until the rest of it arrives
+    public int poll(LineHandler handler) throws IOException {
+        int lines = drain(handler);
+
+        if (channel.size() < readPosition) {
+            // Truncated in place (copytruncate): whatever was held back belonged to the old contents
+            log.info("{} was truncated from {} to {} bytes, reading it again from the start", path, readPosition, channel.size());
+            pendingLength = 0;
+            truncating = false;
+            readPosition = 0;
+            committedOffset = 0;
+            lines += drain(handler);
+        }
+
+        Object current = currentIdentity();
+        if (current != null && !current.equals(fileKey)) {
+            // latest.log was renamed away and recreated. Lines written to the old file just before the rename are still
+            // read through the open channel, its unterminated last line is final now, then the new file starts at 0
+            lines += drain(handler);
+            if (pendingLength > 0) {
+                handler.onLine(new String(pending, 0, pendingLength, StandardCharsets.UTF_8));
+                lines++;
+            }
+            reopen(current);
+            lines += drain(handler);
+        }
+        return lines;
+    }
+
+    private void reopen(Object newKey) throws IOException {
+        channel.close();
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        fileKey = newKey;
+        pendingLength = 0;
+        truncating = false;
+        readPosition = 0;
+        committedOffset = 0;
+        rotations++;
+
+        // Time since the new file appeared, where the filesystem reports no birth time this is since its last write
+        Instant created = Files.readAttributes(path, BasicFileAttributes.class).creationTime().toInstant();
+        lastReopenLatencyMillis = Math.max(0, Duration.between(created, Instant.now()).toMillis());
+        log.info("{} was rotated, reopened the new file {} ms after it was created", path, lastReopenLatencyMillis);
+    }
+
+    private int drain(LineHandler handler) throws IOException {
+        int lines = 0;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, readPosition);
+            if (read <= 0) {
+                return lines;
+            }
+            buffer.flip();
+            buffer.get(chunk, 0, read);
+
+            int segmentStart = 0;
+            for (int i = 0; i < read; i++) {
+                if (chunk[i] != '\n') {
+                    continue;
+                }
+                if (pendingLength == 0 && !truncating) {
+                    // Whole line inside this read, decode it straight from the chunk
+                    int end = i > segmentStart && chunk[i - 1] == '\r' ? i - 1 : i;
+                    handler.onLine(new String(chunk, segmentStart, Math.min(end - segmentStart, MAX_LINE_BYTES), StandardCharsets.UTF_8));
+                } else {
+                    appendPending(segmentStart, i);
+                    int length = pendingLength;
+                    if (length > 0 && pending[length - 1] == '\r') {
+                        length--;
+                    }
+                    handler.onLine(new String(pending, 0, length, StandardCharsets.UTF_8));
+                }
+                lines++;
+                pendingLength = 0;
+                truncating = false;
+                segmentStart = i + 1;
+                committedOffset = readPosition + segmentStart;
+            }
+            appendPending(segmentStart, read);
+            readPosition += read;
+        }
+    }
+
+    public long getOffset() {
+        return committedOffset;
+    }
+
+    public Object getFileKey() {
+        return fileKey;
+    }
+
+    public int getRotations() {
+        return rotations;
+    }
+
+    public long getLastReopenLatencyMillis() {
+        return lastReopenLatencyMillis;
+    }
+
+    // Inode where the filesystem has one, creation time otherwise
+    public static Object fileIdentity(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+    }
+
+    private Object currentIdentity() throws IOException {
+        try {
+            return fileIdentity(path);
+        } catch (NoSuchFileException e) {
+            // Between the rename and the new file being created, keep reading the old one
+            return null;
+        }
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void appendPending(int from, int to) {
+        int length = to - from;
+        if (length <= 0 || truncating) {
+            return;
+        }
+        if (pendingLength + length > MAX_LINE_BYTES) {
+            length = MAX_LINE_BYTES - pendingLength;
+            truncating = true;
+        }
+        if (pendingLength + length > pending.length) {
+            pending = Arrays.copyOf(pending, Math.min(MAX_LINE_BYTES, Math.max(pending.length * 2, pendingLength + length)));
+        }
+        System.arraycopy(chunk, from, pending, pendingLength, length);
+        pendingLength += length;
+    }
+}
@@ -0,0 +1,175 @@
+package mc.server.service.log;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// One WatchService and one thread watch the log directories of every instance. Change events are handed to a small
+// shared pool, and each watched file runs at most one handler at a time, so the thread count does not grow with
+// the number of servers
+@Slf4j
+@Component
+public class LogWatchReactor {
+
+    @Value("${minecraft.log.reactor.threads:2}")
+    private int handlerThreads;
+
+    // Rescan everything this often even without events, inotify drops events on overflow and some network filesystems never send any
+    @Value("${minecraft.log.reactor.rescan-ms:5000}")
+    private long rescanMillis;
+
+    private final Map<WatchKey, List<Registration>> registrationsByKey = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> keysByDirectory = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private ExecutorService handlers;
+    private Thread reactorThread;
+
+    public class Registration implements Closeable {
+        private final Path directory;
+        private final String fileName;
+        private final Runnable onChange;
+        private final AtomicInteger pendingSignals = new AtomicInteger();
+        private volatile boolean closed;
+
+        private Registration(Path directory, String fileName, Runnable onChange) {
+            this.directory = directory;
+            this.fileName = fileName;
+            this.onChange = onChange;
+        }
+
+        // Coalesces bursts: a signal while the handler runs makes it run once more afterwards instead of queueing a task each
+        public void signal() {
+            if (!closed && pendingSignals.getAndIncrement() == 0) {
+                handlers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int seen;
+            do {
+                seen = pendingSignals.get();
+                if (!closed) {
+                    try {
+                        onChange.run();
+                    } catch (Exception e) {
+                        log.error("Error handling change of {}", directory.resolve(fileName), e);
+                    }
+                }
+            } while (pendingSignals.addAndGet(-seen) > 0);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            unregister(this);
+        }
+    }
+
+    public synchronized Registration register(Path file, Runnable onChange) throws IOException {
+        ensureStarted();
+        Path directory = file.toAbsolutePath().normalize().getParent();
+        Registration registration = new Registration(directory, file.getFileName().toString(), onChange);
+        WatchKey key = keysByDirectory.get(directory);
+        if (key == null || !key.isValid()) {
+            key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            keysByDirectory.put(directory, key);
+        }
+        registrationsByKey.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(registration);
+        log.debug("Watching {} ({} directories watched)", file, keysByDirectory.size());
+        return registration;
+    }
+
+    private synchronized void unregister(Registration registration) {
+        WatchKey key = keysByDirectory.get(registration.directory);
+        if (key == null) {
+            return;
+        }
+        List<Registration> registrations = registrationsByKey.get(key);
+        if (registrations != null) {
+            registrations.remove(registration);
+            if (registrations.isEmpty()) {
+                registrationsByKey.remove(key);
+                keysByDirectory.remove(registration.directory);
+                key.cancel();
+            }
+        }
+    }
+
+    private void ensureStarted() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        handlers = Executors.newFixedThreadPool(Math.max(1, handlerThreads), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "log-handler-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        reactorThread = new Thread(this::run, "log-watch-reactor");
+        reactorThread.setDaemon(true);
+        reactorThread.start();
+        log.info("Started log watch reactor with {} handler threads", Math.max(1, handlerThreads));
+    }
+
+    private void run() {
+        try {
+            long lastRescan = System.nanoTime();
+            while (!Thread.currentThread().isInterrupted()) {
+                long untilRescan = rescanMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastRescan);
+                WatchKey key = untilRescan > 0 ? watchService.poll(untilRescan, TimeUnit.MILLISECONDS) : watchService.poll();
+                // A steady stream of events from one busy log must not starve the rescan of the others
+                if (System.nanoTime() - lastRescan >= TimeUnit.MILLISECONDS.toNanos(rescanMillis)) {
+                    registrationsByKey.values().forEach(registrations -> registrations.forEach(Registration::signal));
+                    lastRescan = System.nanoTime();
+                }
+                if (key == null) {
+                    continue;
+                }
+                List<Registration> registrations = registrationsByKey.getOrDefault(key, List.of());
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        registrations.forEach(Registration::signal);
+                        continue;
+                    }
+                    String changed = event.context().toString();
+                    for (Registration registration : registrations) {
+                        if (registration.fileName.equals(changed)) {
+                            registration.signal();
+                        }
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            log.debug("Log watch reactor stopped");
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (watchService == null) {
+            return;
+        }
+        reactorThread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.debug("Error closing log watch service", e);
+        }
+        handlers.shutdownNow();
+    }
+}
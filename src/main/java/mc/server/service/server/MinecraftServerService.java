@@ -6,11 +6,16 @@ import mc.server.model.InstallationStatus;
 import mc.server.model.ServerInstance;
 import mc.server.model.ServerStatus;
 import mc.server.repository.ServerInstanceRepository;
+import mc.server.service.LogMonitoringService;
 import mc.server.service.RconService;
 import mc.server.service.SystemMonitoringService;
 import mc.server.service.TemplateService;
+import mc.server.service.diagnostics.JfrMetricsService;
+import mc.server.service.diagnostics.JmxMetricsService;
+import mc.server.service.log.GameEvent;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
@@ -22,7 +27,6 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -37,11 +41,18 @@ import static mc.server.service.LogPatterns.*;
 @Service
 @RequiredArgsConstructor
 public class MinecraftServerService {
+    private static final int TPS_SAMPLE_SECONDS = 5;
+    // Status polls come every few seconds, profiling that often would keep the server under the profiler most of the time
+    private static final long TPS_SAMPLE_INTERVAL_MILLIS = 30_000;
+
     private final ServerInstanceRepository serverInstanceRepository;
     private final SystemMonitoringService systemMonitoringService;
     private final RconService rconService;
     private final ServerPropertiesService serverProperties;
     private final TemplateService templateService;
+    private final LogMonitoringService logMonitoringService;
+    private final JfrMetricsService jfrMetricsService;
+    private final JmxMetricsService jmxMetricsService;
     private final ApplicationContext applicationContext;
 
     private final Map<Long, LocalDateTime> serverStartTimes = new ConcurrentHashMap<>();
@@ -49,6 +60,8 @@ public class MinecraftServerService {
     private final Map<Long, String> worldSeeds = new ConcurrentHashMap<>();
     private final Map<Long, Double> lastKnownTps = new ConcurrentHashMap<>();
     private final Map<Long, Boolean> tpsDebugActive = new ConcurrentHashMap<>();
+    private final Map<Long, Boolean> tpsCommandMissing = new ConcurrentHashMap<>();
+    private final Map<Long, Long> lastTpsSampleMillis = new ConcurrentHashMap<>();
     private final Map<Long, Set<String>> onlinePlayers = new ConcurrentHashMap<>();
     private final Map<Long, Integer> currentPlayerCounts = new ConcurrentHashMap<>();
 
@@ -74,6 +87,7 @@ public class MinecraftServerService {
             double instanceRamUsage = systemMonitoringService.getInstanceRamUsage(instance);
             double allocatedRam = systemMonitoringService.parseMemoryToMb(instance.getAllocatedMemory());
             double instanceDiskUsage = systemMonitoringService.getInstanceDiskUsage(instance);
+            var jvmMetrics = jmxMetricsService.getLatestMetrics(instanceId);
 
             return ServerStatus.builder()
                     .instanceId(instance.getId())
@@ -97,6 +111,11 @@ public class MinecraftServerService {
                     .instanceRamUsage(instanceRamUsage)
                     .allocatedRam(allocatedRam)
                     .instanceDiskUsage(instanceDiskUsage)
+                    .heapUsedMb(jvmMetrics.map(JmxMetricsService.JvmMetrics::heapUsedMb).orElse(0.0))
+                    .heapCommittedMb(jvmMetrics.map(JmxMetricsService.JvmMetrics::heapCommittedMb).orElse(0.0))
+                    .heapMaxMb(jvmMetrics.map(JmxMetricsService.JvmMetrics::heapMaxMb).orElse(0.0))
+                    .gcTimePercent(jvmMetrics.map(JmxMetricsService.JvmMetrics::gcTimePercent).orElse(0.0))
+                    .threadCount(jvmMetrics.map(JmxMetricsService.JvmMetrics::threadCount).orElse(0))
                     .build();
 
         } catch (Exception e) {
@@ -180,10 +199,31 @@ public class MinecraftServerService {
         }
     }
 
+    // Join and leave lines keep the player list current between the periodic RCON list refreshes
+    @EventListener
+    public void onPlayerJoin(GameEvent.PlayerJoin event) {
+        Set<String> players = onlinePlayers.computeIfAbsent(event.instanceId(), id -> ConcurrentHashMap.newKeySet());
+        players.add(event.player());
+        currentPlayerCounts.put(event.instanceId(), players.size());
+    }
+
+    @EventListener
+    public void onPlayerLeave(GameEvent.PlayerLeave event) {
+        Set<String> players = onlinePlayers.get(event.instanceId());
+        if (players != null) {
+            players.remove(event.player());
+            currentPlayerCounts.put(event.instanceId(), players.size());
+        }
+    }
+
     private void updateTpsFromRcon(Long instanceId) {
         if (!rconService.isConfigured(instanceId)) {
             return;
         }
+        if (tpsCommandMissing.getOrDefault(instanceId, false)) {
+            sampleTpsWithDebugProfiler(instanceId);
+            return;
+        }
 
         rconService.executeCommand(instanceId, "tps")
                 .thenAccept(response -> {
@@ -195,14 +235,79 @@ public class MinecraftServerService {
                         try {
                             double tps = Double.parseDouble(matcher.group(1));
                             lastKnownTps.put(instanceId, Math.min(tps, 20.0));
+                            tpsCommandMissing.remove(instanceId);
                             log.debug("Updated TPS for instance {} to: {}", instanceId, lastKnownTps.get(instanceId));
                         } catch (NumberFormatException e) {
                             log.debug("Failed to parse TPS from response for instance {}: {}", instanceId, response);
                         }
+                    } else {
+                        // Vanilla and Fabric have no tps command, measure ticks over a short debug profiling window instead
+                        log.info("Instance {} has no tps command, sampling TPS with debug start/stop", instanceId);
+                        tpsCommandMissing.put(instanceId, true);
+                        sampleTpsWithDebugProfiler(instanceId);
+                    }
+                });
+    }
+
+    // The only debug profiler user in the panel, so debug start/stop never interleave with another sampler
+    private void sampleTpsWithDebugProfiler(Long instanceId) {
+        long now = System.currentTimeMillis();
+        Long lastSample = lastTpsSampleMillis.get(instanceId);
+        if (lastSample != null && now - lastSample < TPS_SAMPLE_INTERVAL_MILLIS) {
+            return;
+        }
+        if (tpsDebugActive.putIfAbsent(instanceId, true) != null) {
+            return;
+        }
+        lastTpsSampleMillis.put(instanceId, now);
+        rconService.executeCommand(instanceId, "debug start")
+                .thenAccept(response -> {
+                    if (response == null) {
+                        tpsDebugActive.remove(instanceId);
+                        return;
                     }
+                    CompletableFuture.delayedExecutor(TPS_SAMPLE_SECONDS, TimeUnit.SECONDS).execute(() -> {
+                        try {
+                            String stopResponse = rconService.executeCommandSync(instanceId, "debug stop");
+                            Matcher matcher = stopResponse != null ? DEBUG_STOP_PATTERN.matcher(stopResponse) : null;
+                            if (matcher != null && matcher.find()) {
+                                double seconds = Double.parseDouble(matcher.group(1));
+                                double ticks = Double.parseDouble(matcher.group(2));
+                                if (seconds > 0) {
+                                    lastKnownTps.put(instanceId, Math.min(ticks / seconds, 20.0));
+                                    log.debug("Updated TPS for instance {} to: {}", instanceId, lastKnownTps.get(instanceId));
+                                }
+                            } else {
+                                log.debug("Failed to parse TPS from debug stop for instance {}: {}", instanceId, stopResponse);
+                            }
+                            deleteDebugReport(instanceId, stopResponse);
+                        } catch (RuntimeException e) {
+                            log.debug("TPS sampling failed for instance {}: {}", instanceId, e.getMessage());
+                        } finally {
+                            tpsDebugActive.remove(instanceId);
+                        }
+                    });
                 });
     }
 
+    // Only the report this sample's debug stop names is removed, reports written by admins or plugins are left alone
+    private void deleteDebugReport(Long instanceId, String stopResponse) {
+        Matcher matcher = stopResponse != null ? DEBUG_REPORT_PATTERN.matcher(stopResponse) : null;
+        if (matcher == null || !matcher.find()) {
+            return;
+        }
+        Path debugDir = Paths.get(getInstance(instanceId).getInstancePath(), "debug").normalize();
+        Path report = debugDir.resolve(matcher.group(1)).normalize();
+        if (!report.startsWith(debugDir) || report.equals(debugDir)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(report);
+        } catch (IOException e) {
+            log.debug("Could not remove debug report {} of instance {}: {}", report, instanceId, e.getMessage());
+        }
+    }
+
     private void updateServerInfoFromRcon(Long instanceId) {
         if (!rconService.isConfigured(instanceId)) {
             return;
@@ -448,14 +553,19 @@ public class MinecraftServerService {
         new Thread(() -> {
             try {
                 String javaCommand = (javaExecutable != null) ? javaExecutable.toString() : "java";
-                ProcessBuilder processBuilder = new ProcessBuilder(
-                        javaCommand,
-                        "-Xms" + memory,
-                        "-Xmx" + memory,
-                        "-jar",
-                        instance.getJarFileName(),
-                        "nogui"
-                );
+                List<String> command = new ArrayList<>();
+                command.add(javaCommand);
+                command.add("-Xms" + memory);
+                command.add("-Xmx" + memory);
+                jfrMetricsService.prepareRepository(instance);
+                jmxMetricsService.prepareCredentials(instance);
+                command.addAll(jfrMetricsService.jvmArguments(instance));
+                command.addAll(jmxMetricsService.jvmArguments(instance));
+                command.add("-jar");
+                command.add(instance.getJarFileName());
+                command.add("nogui");
+
+                ProcessBuilder processBuilder = new ProcessBuilder(command);
                 processBuilder.directory(Paths.get(instance.getInstancePath()).toFile());
                 Process process = processBuilder.start();
                 instance.setPid((int) process.pid());
@@ -471,6 +581,7 @@ public class MinecraftServerService {
                         log.info("[Server {}] {}", instanceId, line);
                         if (line.contains("Done")) {
                             log.info("Minecraft server instance {} started successfully.", instanceId);
+                            logMonitoringService.startMonitoring(instanceId);
                             future.complete(true);
                             return;
                         }
@@ -525,11 +636,14 @@ public class MinecraftServerService {
                     });
                 }
 
+                logMonitoringService.stopMonitoring(instanceId);
                 instance.setPid(null);
                 serverInstanceRepository.save(instance);
                 onlinePlayers.remove(instanceId);
                 currentPlayerCounts.remove(instanceId);
                 serverStartTimes.remove(instanceId);
+                tpsCommandMissing.remove(instanceId);
+                lastTpsSampleMillis.remove(instanceId);
                 log.info("Minecraft server instance {} stopped successfully", instanceId);
                 return true;
 
@@ -565,6 +679,14 @@ public class MinecraftServerService {
     }
 
 
+    public void adoptRunningServer(Long instanceId, LocalDateTime startTime) {
+        if (startTime != null) {
+            serverStartTimes.put(instanceId, startTime);
+        }
+        onlinePlayers.putIfAbsent(instanceId, ConcurrentHashMap.newKeySet());
+        currentPlayerCounts.putIfAbsent(instanceId, 0);
+    }
+
     public boolean isServerRunning(Long instanceId) {
         ServerInstance instance = getInstance(instanceId);
         if (instance.getPid() == null) {
@@ -573,58 +695,18 @@ public class MinecraftServerService {
         return ProcessHandle.of(instance.getPid()).map(ProcessHandle::isAlive).orElse(false);
     }
 
-    @Async
-    public CompletableFuture<Boolean> backupWorld(Long instanceId) {
-        ServerInstance instance = getInstance(instanceId);
-        log.info("Starting world backup for instance {}...", instanceId);
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
-                Path backupDir = Paths.get(instance.getInstancePath(), "backups");
-                Files.createDirectories(backupDir);
-                String backupFile = "world_backup_" + timestamp + ".tar.gz";
-                Path backupPath = backupDir.resolve(backupFile);
-
-                List<String> worldDirs = new ArrayList<>();
-                if (Files.exists(Paths.get(instance.getInstancePath(), "world"))) {
-                    worldDirs.add("world");
-                }
-                if (Files.exists(Paths.get(instance.getInstancePath(), "world_nether"))) {
-                    worldDirs.add("world_nether");
-                }
-                if (Files.exists(Paths.get(instance.getInstancePath(), "world_the_end"))) {
-                    worldDirs.add("world_the_end");
-                }
-
-                if (worldDirs.isEmpty()) {
-                    log.warn("No world directories found to back up for instance {}", instanceId);
-                    return false;
-                }
-
-                List<String> commandParts = new ArrayList<>();
-                commandParts.add("tar");
-                commandParts.add("-czf");
-                commandParts.add(backupPath.toString());
-                commandParts.add("-C");
-                commandParts.add(instance.getInstancePath());
-                commandParts.addAll(worldDirs);
-
-                Process process = new ProcessBuilder(commandParts).start();
-                int exitCode = process.waitFor();
+    public void refreshTps(Long instanceId) {
+        if (isServerRunning(instanceId) && !tpsDebugActive.getOrDefault(instanceId, false)) {
+            updateTpsFromRcon(instanceId);
+        }
+    }
 
-                boolean success = exitCode == 0;
-                if (success) {
-                    log.info("World backup for instance {} created successfully: {}", instanceId, backupPath);
-                } else {
-                    log.error("World backup for instance {} failed with exit code: {}", instanceId, exitCode);
-                }
+    public Optional<Double> getLastKnownTps(Long instanceId) {
+        return Optional.ofNullable(lastKnownTps.get(instanceId));
+    }
 
-                return success;
-            } catch (Exception e) {
-                log.error("Error creating world backup for instance {}", instanceId, e);
-                return false;
-            }
-        });
+    public Optional<LocalDateTime> getServerStartTime(Long instanceId) {
+        return Optional.ofNullable(serverStartTimes.get(instanceId));
     }
 
     public Set<String> getOnlinePlayersSet(Long instanceId) {
@@ -792,6 +874,8 @@ public class MinecraftServerService {
         worldSeeds.remove(instanceId);
         lastKnownTps.remove(instanceId);
         tpsDebugActive.remove(instanceId);
+        tpsCommandMissing.remove(instanceId);
+        lastTpsSampleMillis.remove(instanceId);
 
         Path serverPath = Paths.get(instance.getInstancePath());
         if (Files.exists(serverPath)) {
@@ -804,6 +888,12 @@ public class MinecraftServerService {
         log.info("Successfully deleted server instance: {}", instance.getName());
     }
 
+    public void updateJfrEnabled(Long instanceId, boolean enabled) {
+        ServerInstance instance = getInstance(instanceId);
+        instance.setJfrEnabled(enabled);
+        serverInstanceRepository.save(instance);
+    }
+
     public void updateAllocatedMemory(Long instanceId, String memory) {
         ServerInstance instance = getInstance(instanceId);
         instance.setAllocatedMemory(memory);
@@ -0,0 +1,140 @@
+package mc.server.service.server;
+
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.ServerInstance;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public final class ServerProcessInspector {
+    private static final Path PROC = Paths.get("/proc");
+    private static final long DEFAULT_CLOCK_TICKS = 100;
+
+    private static volatile Long clockTicks;
+    private static volatile Long bootTimeSeconds;
+
+    private ServerProcessInspector() {
+    }
+
+    // PIDs get recycled, so after a panel restart a live PID alone does not prove it is still our server
+    public static boolean isSameServer(ProcessHandle handle, ServerInstance instance) {
+        if (!handle.isAlive()) {
+            return false;
+        }
+
+        List<String> commandLine = commandLine(handle);
+        if (commandLine.isEmpty()) {
+            log.debug("Could not read command line of PID {} for instance {}", handle.pid(), instance.getId());
+            return false;
+        }
+
+        String executable = Paths.get(commandLine.get(0)).getFileName().toString().toLowerCase();
+        if (!executable.startsWith("java")) {
+            return false;
+        }
+
+        String jarFileName = instance.getJarFileName();
+        if (jarFileName != null && commandLine.stream().noneMatch(arg -> arg.endsWith(jarFileName))) {
+            return false;
+        }
+
+        Path cwd = PROC.resolve(String.valueOf(handle.pid())).resolve("cwd");
+        if (Files.exists(cwd)) {
+            try {
+                return Files.isSameFile(cwd, Paths.get(instance.getInstancePath()));
+            } catch (Exception e) {
+                log.debug("Could not resolve working directory of PID {}: {}", handle.pid(), e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    public static List<String> commandLine(ProcessHandle handle) {
+        Path cmdline = PROC.resolve(String.valueOf(handle.pid())).resolve("cmdline");
+        if (Files.isReadable(cmdline)) {
+            try {
+                String raw = new String(Files.readAllBytes(cmdline), StandardCharsets.UTF_8);
+                List<String> parts = new ArrayList<>();
+                for (String part : raw.split("\0")) {
+                    if (!part.isEmpty()) {
+                        parts.add(part);
+                    }
+                }
+                if (!parts.isEmpty()) {
+                    return parts;
+                }
+            } catch (Exception e) {
+                log.debug("Could not read {}: {}", cmdline, e.getMessage());
+            }
+        }
+
+        ProcessHandle.Info info = handle.info();
+        List<String> parts = new ArrayList<>();
+        info.command().ifPresent(parts::add);
+        info.arguments().ifPresent(args -> parts.addAll(Arrays.asList(args)));
+        return parts;
+    }
+
+    // Field 22 of /proc/<pid>/stat is the start time in clock ticks since boot
+    public static Optional<LocalDateTime> startTime(long pid) {
+        Path stat = PROC.resolve(String.valueOf(pid)).resolve("stat");
+        if (Files.isReadable(stat)) {
+            try {
+                String content = Files.readString(stat);
+                String[] fields = content.substring(content.lastIndexOf(')') + 2).split(" ");
+                long startTicks = Long.parseLong(fields[19]);
+                long startMillis = bootTimeSeconds() * 1000 + startTicks * 1000 / clockTicks();
+                return Optional.of(LocalDateTime.ofInstant(Instant.ofEpochMilli(startMillis), ZoneId.systemDefault()));
+            } catch (Exception e) {
+                log.debug("Could not parse {}: {}", stat, e.getMessage());
+            }
+        }
+
+        return ProcessHandle.of(pid)
+                .flatMap(handle -> handle.info().startInstant())
+                .map(instant -> LocalDateTime.ofInstant(instant, ZoneId.systemDefault()));
+    }
+
+    private static long bootTimeSeconds() throws Exception {
+        if (bootTimeSeconds == null) {
+            bootTimeSeconds = Files.readAllLines(PROC.resolve("stat")).stream()
+                    .filter(line -> line.startsWith("btime "))
+                    .map(line -> Long.parseLong(line.substring(6).trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("btime not found in /proc/stat"));
+        }
+        return bootTimeSeconds;
+    }
+
+    private static long clockTicks() {
+        if (clockTicks == null) {
+            long ticks = DEFAULT_CLOCK_TICKS;
+            try {
+                Process process = new ProcessBuilder("getconf", "CLK_TCK").start();
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                    String line = reader.readLine();
+                    if (process.waitFor(2, TimeUnit.SECONDS) && line != null) {
+                        ticks = Long.parseLong(line.trim());
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("Could not query CLK_TCK, assuming {}: {}", DEFAULT_CLOCK_TICKS, e.getMessage());
+            }
+            clockTicks = ticks;
+        }
+        return clockTicks;
+    }
+}
@@ -0,0 +1,109 @@
+package mc.server.service.server;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.InstallationStatus;
+import mc.server.model.ServerInstance;
+import mc.server.repository.ServerInstanceRepository;
+import mc.server.service.LogMonitoringService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ServerProcessReconciler implements ApplicationRunner {
+
+    @Value("${minecraft.server.reconcile.threads:16}")
+    private int reconcileThreads;
+
+    @Value("${minecraft.server.reconcile.timeout-seconds:30}")
+    private int reconcileTimeoutSeconds;
+
+    private final ServerInstanceRepository serverInstanceRepository;
+    private final MinecraftServerService minecraftServerService;
+    private final LogMonitoringService logMonitoringService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<ServerInstance> candidates = serverInstanceRepository.findAll().stream()
+                .filter(instance -> instance.getPid() != null)
+                .toList();
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(reconcileThreads, candidates.size()), r -> {
+            Thread t = new Thread(r, "server-reconcile");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<CompletableFuture<Boolean>> results = candidates.stream()
+                    .map(instance -> CompletableFuture.supplyAsync(() -> reconcile(instance), executor))
+                    .toList();
+
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                    .get(reconcileTimeoutSeconds, TimeUnit.SECONDS);
+
+            long adopted = results.stream().filter(CompletableFuture::join).count();
+            log.info("Reconciled {} persisted server processes in {} ms: {} re-adopted, {} cleared",
+                    candidates.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    adopted, candidates.size() - adopted);
+        } catch (Exception e) {
+            log.error("Server process reconciliation did not complete cleanly", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private boolean reconcile(ServerInstance instance) {
+        Long instanceId = instance.getId();
+        try {
+            Optional<ProcessHandle> handle = ProcessHandle.of(instance.getPid());
+            if (handle.isEmpty() || !ServerProcessInspector.isSameServer(handle.get(), instance)) {
+                log.info("Persisted PID {} of instance {} is gone or no longer belongs to it, clearing", instance.getPid(), instanceId);
+                clearStalePid(instance);
+                return false;
+            }
+
+            LocalDateTime startTime = ServerProcessInspector.startTime(instance.getPid()).orElse(null);
+            minecraftServerService.adoptRunningServer(instanceId, startTime);
+            logMonitoringService.startMonitoring(instanceId);
+
+            CompletableFuture.runAsync(() -> minecraftServerService.refreshServerInfo(instanceId))
+                    .exceptionally(throwable -> {
+                        log.debug("Initial RCON refresh failed for re-adopted instance {}: {}", instanceId, throwable.getMessage());
+                        return null;
+                    });
+
+            log.info("Re-adopted running server instance {} (PID {}, started {})", instanceId, instance.getPid(), startTime);
+            return true;
+        } catch (Exception e) {
+            log.error("Error reconciling server instance {}", instanceId, e);
+            return false;
+        }
+    }
+
+    private void clearStalePid(ServerInstance instance) {
+        instance.setPid(null);
+        if (instance.getStatus() == InstallationStatus.STARTING ||
+                instance.getStatus() == InstallationStatus.RUNNING ||
+                instance.getStatus() == InstallationStatus.STOPPING) {
+            instance.setStatus(InstallationStatus.STOPPED);
+        }
+        serverInstanceRepository.save(instance);
+    }
+}
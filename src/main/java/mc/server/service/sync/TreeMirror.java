@@ -0,0 +1,129 @@
+package mc.server.service.sync;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Mirrors directory trees on the same machine. Files whose size and mtime match the target are skipped like rsync's
+// quick check, every other file is copied whole: with both sides local, a block delta would read the target and the
+// source and then write the result, more I/O than the copy it is meant to save
+@Component
+public class TreeMirror {
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    public record MirrorStats(long copiedBytes, long skippedBytes) {
+        public MirrorStats plus(MirrorStats other) {
+            return new MirrorStats(copiedBytes + other.copiedBytes, skippedBytes + other.skippedBytes);
+        }
+    }
+
+    public record MirrorProgress(int filesTotal, int filesDone, int filesUnchanged, long bytesTotal,
+                                 MirrorStats stats, String currentFile) {}
+
+    public record MirrorResult(int files, int unchanged, int removed, MirrorStats stats) {}
+
+    // Copied to a temp file and renamed, so the target never holds half a file. The mtime is read before copying,
+    // a write during the copy leaves the target looking older than the source and it is copied again next pass
+    public long copyFile(Path source, Path target) throws IOException {
+        FileTime lastModified = Files.getLastModifiedTime(source);
+        Files.createDirectories(target.getParent());
+        Path tempPath = target.resolveSibling(target.getFileName() + ".sync-tmp");
+        try {
+            Files.copy(source, tempPath, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempPath, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.setLastModifiedTime(target, lastModified);
+            return Files.size(target);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    // Makes each entry under targetRoot an exact copy of the same entry under sourceRoot: files with matching size
+    // and mtime are skipped, changed ones copied, extra ones removed
+    public MirrorResult mirror(Path sourceRoot, Path targetRoot, Collection<String> entries, Set<String> excludedNames,
+                               Consumer<MirrorProgress> progress) throws IOException {
+        List<Path> files = new ArrayList<>();
+        long bytesTotal = 0;
+        for (String entry : entries) {
+            Path path = sourceRoot.resolve(entry);
+            if (!Files.exists(path)) {
+                continue;
+            }
+            try (Stream<Path> walk = Files.walk(path)) {
+                for (Path file : walk.filter(Files::isRegularFile)
+                        .filter(candidate -> !excludedNames.contains(candidate.getFileName().toString()))
+                        .sorted()
+                        .toList()) {
+                    files.add(file);
+                    bytesTotal += Files.size(file);
+                }
+            }
+        }
+
+        Set<Path> expected = new HashSet<>();
+        int done = 0;
+        int unchanged = 0;
+        MirrorStats stats = new MirrorStats(0, 0);
+        long lastProgress = 0;
+        for (Path file : files) {
+            String relativePath = sourceRoot.relativize(file).toString();
+            Path destination = targetRoot.resolve(relativePath).normalize();
+            expected.add(destination);
+
+            if (Files.isRegularFile(destination) && Files.size(destination) == Files.size(file) &&
+                    Files.getLastModifiedTime(destination).toMillis() == Files.getLastModifiedTime(file).toMillis()) {
+                unchanged++;
+                stats = stats.plus(new MirrorStats(0, Files.size(file)));
+            } else {
+                stats = stats.plus(new MirrorStats(copyFile(file, destination), 0));
+            }
+            done++;
+
+            if (System.nanoTime() - lastProgress > PROGRESS_INTERVAL_NANOS || done == files.size()) {
+                progress.accept(new MirrorProgress(files.size(), done, unchanged, bytesTotal, stats, relativePath));
+                lastProgress = System.nanoTime();
+            }
+        }
+
+        int removed = 0;
+        for (String entry : entries) {
+            Path target = targetRoot.resolve(entry);
+            if (!Files.exists(target)) {
+                continue;
+            }
+            if (!Files.exists(sourceRoot.resolve(entry))) {
+                deleteRecursively(target);
+                removed++;
+                continue;
+            }
+            try (Stream<Path> walk = Files.walk(target)) {
+                for (Path path : walk.filter(Files::isRegularFile).toList()) {
+                    if (!expected.contains(path.normalize()) && !excludedNames.contains(path.getFileName().toString())) {
+                        Files.delete(path);
+                        removed++;
+                    }
+                }
+            }
+        }
+        return new MirrorResult(files.size(), unchanged, removed, stats);
+    }
+
+    static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            for (Path child : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package mc.server.service.sync;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.ConsoleMessage;
+import mc.server.model.ServerInstance;
+import mc.server.repository.ServerInstanceRepository;
+import mc.server.service.CrossPlatformJavaService;
+import mc.server.service.RconService;
+import mc.server.service.TemplateService;
+import mc.server.service.WebSocketService;
+import mc.server.service.server.MinecraftServerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Moves an instance to a new directory the way VM live migration works: copy while it runs, repeat rounds that
+// copy the files changed since the previous one until they stop shrinking, then stop it and copy the last changes.
+// Downtime is the final round plus startup instead of a full copy
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WorldMigrationService {
+    private static final Set<String> EXCLUDED_NAMES = Set.of("session.lock");
+    // Large and append-only or not needed to run the server: copied once up front instead of in every round
+    private static final Set<String> BULK_ENTRIES = Set.of("backups", "restores", "snapshots", "logs");
+
+    @Value("${minecraft.migration.max-precopy-rounds:5}")
+    private int maxPrecopyRounds;
+
+    // A pre-copy round that sends less than this is small enough to go straight to the stop-and-copy phase
+    @Value("${minecraft.migration.converge-bytes:8388608}")
+    private long convergeBytes;
+
+    @Value("${minecraft.migration.start-timeout-seconds:300}")
+    private long startTimeoutSeconds;
+
+    @Value("${minecraft.migration.stop-timeout-seconds:120}")
+    private long stopTimeoutSeconds;
+
+    private final MinecraftServerService minecraftServerService;
+    private final ServerInstanceRepository serverInstanceRepository;
+    private final RconService rconService;
+    private final TemplateService templateService;
+    private final CrossPlatformJavaService crossPlatformJavaService;
+    private final TreeMirror treeMirror;
+    private final WebSocketService webSocketService;
+
+    private final Map<String, MigrationProgress> migrations = new ConcurrentHashMap<>();
+    private final Set<Long> migratingInstances = ConcurrentHashMap.newKeySet();
+
+    public record MigrationProgress(
+            String migrationId,
+            Long instanceId,
+            String sourcePath,
+            String targetPath,
+            String state,
+            int round,
+            long lastRoundBytes,
+            long totalBytesSent,
+            Long downtimeMillis,
+            String error,
+            LocalDateTime startedAt,
+            LocalDateTime updatedAt
+    ) {}
+
+    public MigrationProgress startMigration(Long instanceId, String targetPath) throws IOException {
+        ServerInstance instance = minecraftServerService.getInstance(instanceId);
+        Path sourceRoot = Paths.get(instance.getInstancePath()).toAbsolutePath().normalize();
+        Path targetRoot = Paths.get(targetPath).toAbsolutePath().normalize();
+        if (targetRoot.startsWith(sourceRoot) || sourceRoot.startsWith(targetRoot)) {
+            throw new IllegalArgumentException("Target directory must not overlap the current instance directory");
+        }
+        if (Files.exists(targetRoot) && !Files.isDirectory(targetRoot)) {
+            throw new IllegalArgumentException("Target path exists and is not a directory");
+        }
+        if (serverInstanceRepository.findAll().stream()
+                .anyMatch(other -> other.getInstancePath() != null && Paths.get(other.getInstancePath()).toAbsolutePath().normalize().equals(targetRoot))) {
+            throw new IllegalArgumentException("Target directory already belongs to an instance");
+        }
+        if (!migratingInstances.add(instanceId)) {
+            throw new IllegalStateException("This instance is already being migrated");
+        }
+        Files.createDirectories(targetRoot);
+
+        String migrationId = "migration_" + UUID.randomUUID().toString().substring(0, 8);
+        LocalDateTime now = LocalDateTime.now();
+        MigrationProgress progress = new MigrationProgress(migrationId, instanceId, sourceRoot.toString(), targetRoot.toString(),
+                "starting", 0, 0, 0, null, null, now, now);
+        migrations.put(migrationId, progress);
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                migrate(migrationId, instanceId, sourceRoot, targetRoot);
+            } finally {
+                migratingInstances.remove(instanceId);
+            }
+        });
+        return progress;
+    }
+
+    public Optional<MigrationProgress> getProgress(String migrationId) {
+        return Optional.ofNullable(migrations.get(migrationId));
+    }
+
+    private void migrate(String migrationId, Long instanceId, Path sourceRoot, Path targetRoot) {
+        boolean wasRunning = minecraftServerService.isServerRunning(instanceId);
+        boolean savingPaused = false;
+        boolean switched = false;
+        long downtimeStart = 0;
+        try {
+            copyBulkEntries(migrationId, sourceRoot, targetRoot);
+
+            // Pre-copy: the server keeps running, each round only sends what changed during the previous one
+            long lastRoundBytes = Long.MAX_VALUE;
+            int round = 0;
+            while (round < maxPrecopyRounds && lastRoundBytes > convergeBytes) {
+                round++;
+                lastRoundBytes = copyRound(migrationId, round, "precopy", sourceRoot, targetRoot);
+                if (!wasRunning) {
+                    break;
+                }
+            }
+
+            if (wasRunning) {
+                if (rconService.isConfigured(instanceId)) {
+                    // Flush and freeze the region files so one more round catches up while players are still online
+                    if (rconService.executeCommandSync(instanceId, "save-off") != null) {
+                        savingPaused = true;
+                        rconService.executeCommandSync(instanceId, "save-all flush");
+                        copyRound(migrationId, ++round, "flushed", sourceRoot, targetRoot);
+                    }
+                    minecraftServerService.broadcastMessage(instanceId, "Server is moving, back in a moment...");
+                }
+
+                update(migrationId, "stopping", null, null);
+                downtimeStart = System.nanoTime();
+                if (!stopServer(instanceId)) {
+                    throw new IllegalStateException("Source server did not stop");
+                }
+                savingPaused = false;
+            }
+
+            // Stop-and-copy: only what the shutdown save wrote since the last round is left
+            copyRound(migrationId, ++round, "final", sourceRoot, targetRoot);
+
+            ServerInstance instance = minecraftServerService.getInstance(instanceId);
+            instance.setInstancePath(targetRoot.toString());
+            serverInstanceRepository.save(instance);
+            switched = true;
+
+            if (wasRunning) {
+                update(migrationId, "starting", null, null);
+                if (!startServer(instanceId)) {
+                    throw new IllegalStateException("Server did not start from the new directory");
+                }
+            }
+
+            Long downtimeMillis = wasRunning ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - downtimeStart) : null;
+            update(migrationId, "completed", null, downtimeMillis);
+            log.info("Migrated instance {} from {} to {} in {} rounds, downtime {} ms. The old directory was kept and can be removed",
+                    instanceId, sourceRoot, targetRoot, round, downtimeMillis);
+            notifyConsole(instanceId, "[SYSTEM] Instance moved to " + targetRoot +
+                    (downtimeMillis != null ? " with " + downtimeMillis + " ms of downtime" : ""));
+        } catch (Exception e) {
+            log.error("Error migrating instance {} to {}", instanceId, targetRoot, e);
+            update(migrationId, "failed", e.getMessage(), null);
+            rollBack(instanceId, sourceRoot, wasRunning, savingPaused, switched);
+        }
+    }
+
+    // Backups, restores and logs can be far larger than the server itself and keep growing while it runs. Sending
+    // them in every round would keep the rounds from converging and stretch the downtime of the final one
+    private void copyBulkEntries(String migrationId, Path sourceRoot, Path targetRoot) throws IOException {
+        List<String> entries = BULK_ENTRIES.stream().filter(name -> Files.exists(sourceRoot.resolve(name))).sorted().toList();
+        if (entries.isEmpty()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        TreeMirror.MirrorResult result = treeMirror.mirror(sourceRoot, targetRoot, entries, EXCLUDED_NAMES,
+                progress -> update(migrationId, "bulk", 0, progress.stats().copiedBytes(), false));
+        update(migrationId, "bulk", 0, result.stats().copiedBytes(), true);
+        log.info("Migration of {}: copied {} ({} files, {} MB) before the rounds in {} ms", sourceRoot, entries,
+                result.files(), String.format("%.2f", result.stats().copiedBytes() / (1024.0 * 1024.0)),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    private long copyRound(String migrationId, int round, String state, Path sourceRoot, Path targetRoot) throws IOException {
+        List<String> entries;
+        try (Stream<Path> list = Files.list(sourceRoot)) {
+            entries = list.map(path -> path.getFileName().toString())
+                    .filter(name -> !BULK_ENTRIES.contains(name))
+                    .sorted()
+                    .toList();
+        }
+        long startNanos = System.nanoTime();
+        TreeMirror.MirrorResult result = treeMirror.mirror(sourceRoot, targetRoot, entries, EXCLUDED_NAMES,
+                progress -> update(migrationId, state, round, progress.stats().copiedBytes(), false));
+        update(migrationId, state, round, result.stats().copiedBytes(), true);
+        log.info("Migration round {} ({}) of {}: {} files, {} changed, {} MB sent in {} ms", round, state, sourceRoot,
+                result.files(), result.files() - result.unchanged(),
+                String.format("%.2f", result.stats().copiedBytes() / (1024.0 * 1024.0)),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        return result.stats().copiedBytes();
+    }
+
+    // Whatever failed, the instance goes back to serving from its original directory
+    private void rollBack(Long instanceId, Path sourceRoot, boolean wasRunning, boolean savingPaused, boolean switched) {
+        try {
+            if (switched) {
+                if (minecraftServerService.isServerRunning(instanceId) && !stopServer(instanceId)) {
+                    log.error("Instance {} did not stop while rolling back its migration, it stays on the new directory", instanceId);
+                    return;
+                }
+                ServerInstance instance = minecraftServerService.getInstance(instanceId);
+                instance.setInstancePath(sourceRoot.toString());
+                serverInstanceRepository.save(instance);
+            }
+            if (savingPaused && minecraftServerService.isServerRunning(instanceId)) {
+                rconService.executeCommandSync(instanceId, "save-on");
+            }
+            if (wasRunning && !minecraftServerService.isServerRunning(instanceId) && !startServer(instanceId)) {
+                log.error("Instance {} could not be restarted from {} after a failed migration", instanceId, sourceRoot);
+            }
+        } catch (Exception e) {
+            log.error("Error rolling back migration of instance {}", instanceId, e);
+        }
+    }
+
+    // A hung shutdown fails the migration with a TimeoutException, so the rollback turns saving back on
+    private boolean stopServer(Long instanceId) throws Exception {
+        return Boolean.TRUE.equals(minecraftServerService.stopServer(instanceId).get(stopTimeoutSeconds, TimeUnit.SECONDS));
+    }
+
+    private boolean startServer(Long instanceId) throws Exception {
+        ServerInstance instance = minecraftServerService.getInstance(instanceId);
+        var template = templateService.getTemplateById(instance.getTemplateId());
+        Path javaExecutable = crossPlatformJavaService.ensureJavaAvailable(instanceId, template.systemRequirements());
+        return Boolean.TRUE.equals(minecraftServerService.startServer(instanceId, javaExecutable, instance.getAllocatedMemory())
+                .get(startTimeoutSeconds, TimeUnit.SECONDS));
+    }
+
+    private void update(String migrationId, String state, int round, long roundBytes, boolean roundDone) {
+        MigrationProgress updated = migrations.computeIfPresent(migrationId, (id, p) -> new MigrationProgress(p.migrationId(),
+                p.instanceId(), p.sourcePath(), p.targetPath(), state, round, roundBytes,
+                roundDone ? p.totalBytesSent() + roundBytes : p.totalBytesSent(), p.downtimeMillis(), p.error(),
+                p.startedAt(), LocalDateTime.now()));
+        broadcast(updated);
+    }
+
+    private void update(String migrationId, String state, String error, Long downtimeMillis) {
+        MigrationProgress updated = migrations.computeIfPresent(migrationId, (id, p) -> new MigrationProgress(p.migrationId(),
+                p.instanceId(), p.sourcePath(), p.targetPath(), state, p.round(), p.lastRoundBytes(), p.totalBytesSent(),
+                downtimeMillis, error, p.startedAt(), LocalDateTime.now()));
+        broadcast(updated);
+    }
+
+    private void broadcast(MigrationProgress progress) {
+        if (progress != null && webSocketService.hasActiveSessions()) {
+            webSocketService.broadcastSyncProgress(progress.instanceId(), progress);
+        }
+    }
+
+    private void notifyConsole(Long instanceId, String message) {
+        if (webSocketService.hasActiveSessions()) {
+            webSocketService.broadcastConsoleMessage(instanceId, ConsoleMessage.info(message));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package mc.server.service.sync;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import mc.server.model.ServerInstance;
+import mc.server.service.WebSocketService;
+import mc.server.service.backup.BackupIoThrottle;
+import mc.server.service.backup.BackupService;
+import mc.server.service.backup.IoRateLimiter;
+import mc.server.service.backup.SnapshotService;
+import mc.server.service.server.MinecraftServerService;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Copies one instance's worlds onto another, skipping files whose size and mtime already match on the target
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WorldSyncService {
+    private static final Set<String> EXCLUDED_NAMES = Set.of("session.lock");
+    private static final List<String> WORLD_DIRS = List.of("world", "world_nether", "world_the_end");
+
+    private final MinecraftServerService minecraftServerService;
+    private final BackupService backupService;
+    private final SnapshotService snapshotService;
+    private final BackupIoThrottle backupIoThrottle;
+    private final TreeMirror treeMirror;
+    private final WebSocketService webSocketService;
+
+    private final Map<String, SyncProgress> syncs = new ConcurrentHashMap<>();
+    private final Set<Long> busyTargets = ConcurrentHashMap.newKeySet();
+
+    public record SyncProgress(
+            String syncId,
+            Long sourceInstanceId,
+            Long targetInstanceId,
+            String state,
+            int filesTotal,
+            int filesDone,
+            int filesUnchanged,
+            long bytesTotal,
+            long bytesCopied,
+            long bytesSkipped,
+            String currentFile,
+            String error,
+            LocalDateTime startedAt,
+            LocalDateTime updatedAt
+    ) {}
+
+    public SyncProgress startWorldCopy(Long sourceInstanceId, Long targetInstanceId) {
+        if (sourceInstanceId.equals(targetInstanceId)) {
+            throw new IllegalArgumentException("Source and target instance must differ");
+        }
+        ServerInstance source = minecraftServerService.getInstance(sourceInstanceId);
+        ServerInstance target = minecraftServerService.getInstance(targetInstanceId);
+        if (minecraftServerService.isServerRunning(targetInstanceId)) {
+            throw new IllegalStateException("Stop the target server before copying a world onto it");
+        }
+        if (backupService.existingWorldDirs(source).isEmpty()) {
+            throw new IllegalStateException("Source instance has no world to copy");
+        }
+        if (!busyTargets.add(targetInstanceId)) {
+            throw new IllegalStateException("A world copy onto this instance is already running");
+        }
+
+        String syncId = "sync_" + UUID.randomUUID().toString().substring(0, 8);
+        LocalDateTime now = LocalDateTime.now();
+        SyncProgress progress = new SyncProgress(syncId, sourceInstanceId, targetInstanceId, "starting",
+                0, 0, 0, 0, 0, 0, null, null, now, now);
+        syncs.put(syncId, progress);
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                copyWorlds(syncId, source, target);
+            } finally {
+                busyTargets.remove(targetInstanceId);
+            }
+        });
+        return progress;
+    }
+
+    public Optional<SyncProgress> getProgress(String syncId) {
+        return Optional.ofNullable(syncs.get(syncId));
+    }
+
+    private void copyWorlds(String syncId, ServerInstance source, ServerInstance target) {
+        long startNanos = System.nanoTime();
+        Path sourceRoot = Paths.get(source.getInstancePath());
+        Path targetRoot = Paths.get(target.getInstancePath());
+        Path stagingRoot = null;
+        try {
+            List<String> worldDirs = backupService.existingWorldDirs(source);
+            TreeMirror.MirrorResult result;
+            if (snapshotService.canPauseSaving(source.getId()) && snapshotService.isSnapshotCheap(source)) {
+                // A running source keeps writing, so sync from a flushed snapshot rather than the live files
+                update(syncId, "snapshotting", null);
+                stagingRoot = sourceRoot.resolve("backups").resolve("sync-staging").resolve(syncId);
+                IoRateLimiter ioLimiter = backupIoThrottle.open(source.getId());
+                try {
+                    snapshotService.captureConsistent(source, worldDirs, stagingRoot, ioLimiter);
+                } finally {
+                    backupIoThrottle.close(source.getId(), ioLimiter);
+                }
+                result = mirror(syncId, stagingRoot, targetRoot);
+            } else if (snapshotService.canPauseSaving(source.getId())) {
+                // Without copy-on-write a snapshot is a second full copy. Mirror the live files first, then catch up on
+                // what changed meanwhile with saving paused, which is only the files written since the first pass
+                mirror(syncId, sourceRoot, targetRoot);
+                update(syncId, "catching up", null);
+                result = snapshotService.withSavingPaused(source, flushMillis -> mirror(syncId, sourceRoot, targetRoot));
+            } else {
+                if (minecraftServerService.isServerRunning(source.getId())) {
+                    log.warn("Copying live world of instance {} without pausing saves, RCON is not configured", source.getId());
+                }
+                result = mirror(syncId, sourceRoot, targetRoot);
+            }
+            update(syncId, "completed", null);
+            log.info("Copied worlds of instance {} onto instance {} in {} ms: {} files ({} unchanged), {} MB copied, {} MB skipped, {} stale files removed",
+                    source.getId(), target.getId(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    result.files(), result.unchanged(), String.format("%.2f", result.stats().copiedBytes() / (1024.0 * 1024.0)),
+                    String.format("%.2f", result.stats().skippedBytes() / (1024.0 * 1024.0)), result.removed());
+        } catch (Exception e) {
+            log.error("Error copying worlds of instance {} onto instance {}", source.getId(), target.getId(), e);
+            update(syncId, "failed", e.getMessage());
+        } finally {
+            if (stagingRoot != null) {
+                try {
+                    TreeMirror.deleteRecursively(stagingRoot);
+                } catch (IOException e) {
+                    log.warn("Could not remove sync staging snapshot {}: {}", stagingRoot, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private TreeMirror.MirrorResult mirror(String syncId, Path sourceRoot, Path targetRoot) throws IOException {
+        return treeMirror.mirror(sourceRoot, targetRoot, WORLD_DIRS, EXCLUDED_NAMES, progress -> {
+            SyncProgress updated = syncs.computeIfPresent(syncId, (id, p) -> withCounts(p, "copying", progress));
+            broadcast(updated);
+        });
+    }
+
+    private void update(String syncId, String state, String error) {
+        SyncProgress updated = syncs.computeIfPresent(syncId, (id, p) -> new SyncProgress(p.syncId(), p.sourceInstanceId(),
+                p.targetInstanceId(), state, p.filesTotal(), p.filesDone(), p.filesUnchanged(), p.bytesTotal(), p.bytesCopied(),
+                p.bytesSkipped(), p.currentFile(), error, p.startedAt(), LocalDateTime.now()));
+        broadcast(updated);
+    }
+
+    private static SyncProgress withCounts(SyncProgress p, String state, TreeMirror.MirrorProgress progress) {
+        return new SyncProgress(p.syncId(), p.sourceInstanceId(), p.targetInstanceId(), state, progress.filesTotal(),
+                progress.filesDone(), progress.filesUnchanged(), progress.bytesTotal(), progress.stats().copiedBytes(),
+                progress.stats().skippedBytes(), progress.currentFile(), p.error(), p.startedAt(), LocalDateTime.now());
+    }
+
+    private void broadcast(SyncProgress progress) {
+        if (progress == null || !webSocketService.hasActiveSessions()) {
+            return;
+        }
+        webSocketService.broadcastSyncProgress(progress.sourceInstanceId(), progress);
+        webSocketService.broadcastSyncProgress(progress.targetInstanceId(), progress);
+    }
+}
@@ -0,0 +1,98 @@
+package mc.server.service.backup;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static mc.server.service.backup.TestData.random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentDefinedChunkerTest {
+    private static final int MIN = 2 * 1024;
+    private static final int AVG = 8 * 1024;
+    private static final int MAX = 32 * 1024;
+
+    private final ContentDefinedChunker chunker = new ContentDefinedChunker(MIN, AVG, MAX);
+
+    @Test
+    void chunksReassembleToInputWithinSizeBounds() throws IOException {
+        byte[] data = random(1, 1_000_000);
+
+        List<byte[]> chunks = split(new ByteArrayInputStream(data));
+
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (int i = 0; i < chunks.size(); i++) {
+            int length = chunks.get(i).length;
+            assertTrue(length <= MAX, "chunk longer than max");
+            assertTrue(length >= MIN || i == chunks.size() - 1, "only the last chunk may be shorter than min");
+            joined.write(chunks.get(i));
+        }
+        assertArrayEquals(data, joined.toByteArray());
+    }
+
+    @Test
+    void boundariesDoNotDependOnReadSizes() throws IOException {
+        byte[] data = random(2, 300_000);
+
+        List<byte[]> whole = split(new ByteArrayInputStream(data));
+        List<byte[]> trickled = split(new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 777));
+            }
+        });
+
+        assertEquals(lengths(whole), lengths(trickled));
+    }
+
+    @Test
+    void insertionOnlyChangesNearbyChunks() throws IOException {
+        byte[] original = random(3, 1_000_000);
+        ByteArrayOutputStream edited = new ByteArrayOutputStream();
+        edited.write(original, 0, 500_000);
+        edited.write(random(4, 100));
+        edited.write(original, 500_000, original.length - 500_000);
+
+        List<byte[]> before = split(new ByteArrayInputStream(original));
+        List<byte[]> after = split(new ByteArrayInputStream(edited.toByteArray()));
+
+        Set<String> beforeChunks = new HashSet<>();
+        before.forEach(chunk -> beforeChunks.add(Arrays.toString(chunk)));
+        long changed = after.stream().filter(chunk -> !beforeChunks.contains(Arrays.toString(chunk))).count();
+        // A fixed-size split would change every chunk after the insertion
+        assertTrue(changed <= 3, "expected the insertion to change at most a few chunks, got " + changed);
+    }
+
+    @Test
+    void emptyInputProducesNoChunks() throws IOException {
+        assertTrue(split(new ByteArrayInputStream(new byte[0])).isEmpty());
+    }
+
+    @Test
+    void rejectsInconsistentSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new ContentDefinedChunker(0, 8, 16));
+        assertThrows(IllegalArgumentException.class, () -> new ContentDefinedChunker(16, 8, 32));
+        assertThrows(IllegalArgumentException.class, () -> new ContentDefinedChunker(4, 16, 8));
+    }
+
+    private List<byte[]> split(InputStream in) throws IOException {
+        List<byte[]> chunks = new ArrayList<>();
+        chunker.split(in, (buffer, offset, length) -> chunks.add(Arrays.copyOfRange(buffer, offset, offset + length)));
+        return chunks;
+    }
+
+    private static List<Integer> lengths(List<byte[]> chunks) {
+        return chunks.stream().map(chunk -> chunk.length).toList();
+    }
+}
@@ -0,0 +1,165 @@
+package mc.server.service.backup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import mc.server.model.ServerInstance;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static mc.server.service.backup.RegionDeltaBackupEngine.CHUNKS_PER_REGION;
+import static mc.server.service.backup.RegionDeltaBackupEngine.SECTOR_BYTES;
+import static mc.server.service.backup.TestData.random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RegionDeltaBackupEngineTest {
+    private static final String REGION = "world/region/r.0.0.mca";
+    // Well before any backup, so unchanged chunks are not re-copied for being saved in the second the parent started
+    private static final int OLD_TIMESTAMP = 1_600_000_000;
+    private static final int NEW_TIMESTAMP = 1_600_000_500;
+
+    @TempDir
+    Path dir;
+
+    private RegionDeltaBackupEngine engine;
+    private ServerInstance instance;
+    private Path serverRoot;
+    private final IoRateLimiter unlimited = new IoRateLimiter(0);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        engine = new RegionDeltaBackupEngine(new ObjectMapper().registerModule(new JavaTimeModule()));
+        ReflectionTestUtils.setField(engine, "maxChainLength", 7);
+        instance = ServerInstance.builder().id(1L).instancePath(dir.resolve("instance").toString()).build();
+        serverRoot = dir.resolve("server");
+        Files.createDirectories(serverRoot.resolve("world/region"));
+        Files.write(serverRoot.resolve("world/level.dat"), random(99, 300));
+    }
+
+    @Test
+    void deltaStoresOnlyChangedChunksAndRestoresTheFullRegion() throws Exception {
+        Map<Integer, Chunk> base = new TreeMap<>(Map.of(
+                0, new Chunk(OLD_TIMESTAMP, random(1, 1_000)),
+                5, new Chunk(OLD_TIMESTAMP, random(2, 9_000)),
+                1023, new Chunk(OLD_TIMESTAMP, random(3, 200))));
+        writeRegion(serverRoot.resolve(REGION), base);
+        RegionDeltaIndex baseIndex = engine.createBackup(instance, serverRoot, List.of("world"), unlimited);
+        assertNull(baseIndex.parentId());
+        assertEquals(3, baseIndex.regions().get(0).chunks().size());
+
+        Map<Integer, Chunk> changed = new TreeMap<>(base);
+        changed.put(5, new Chunk(NEW_TIMESTAMP, random(4, 5_000)));
+        changed.put(7, new Chunk(NEW_TIMESTAMP, random(5, 2_000)));
+        writeRegion(serverRoot.resolve(REGION), changed);
+        // Backup ids have one second resolution
+        Thread.sleep(1_100);
+        RegionDeltaIndex deltaIndex = engine.createBackup(instance, serverRoot, List.of("world"), unlimited);
+
+        assertEquals(baseIndex.id(), deltaIndex.parentId());
+        assertEquals(baseIndex.id(), deltaIndex.baseId());
+        assertEquals(1, deltaIndex.chainLength());
+        assertEquals(List.of(5, 7), deltaIndex.regions().get(0).chunks().stream().map(RegionDeltaIndex.ChunkRef::index).toList());
+        assertEquals(baseIndex.id(), deltaIndex.files().get(0).sourceId(), "unchanged files are referenced, not copied");
+
+        Path restored = dir.resolve("restored-delta");
+        assertEquals(2, engine.restore(instance, deltaIndex.id(), path -> true, restored, unlimited));
+        assertEquals(changed, readRegion(restored.resolve(REGION)));
+        assertArrayEquals(Files.readAllBytes(serverRoot.resolve("world/level.dat")), Files.readAllBytes(restored.resolve("world/level.dat")));
+
+        Path restoredBase = dir.resolve("restored-base");
+        engine.restore(instance, baseIndex.id(), path -> true, restoredBase, unlimited);
+        assertEquals(base, readRegion(restoredBase.resolve(REGION)));
+    }
+
+    @Test
+    void restoredRegionIsSectorAligned() throws Exception {
+        writeRegion(serverRoot.resolve(REGION), Map.of(3, new Chunk(OLD_TIMESTAMP, random(6, 4_095))));
+        RegionDeltaIndex index = engine.createBackup(instance, serverRoot, List.of("world"), unlimited);
+
+        Path restored = dir.resolve("restored");
+        engine.restore(instance, index.id(), path -> path.endsWith(".mca"), restored, unlimited);
+        assertEquals(0, Files.size(restored.resolve(REGION)) % SECTOR_BYTES);
+        assertEquals(Map.of(3, new Chunk(OLD_TIMESTAMP, random(6, 4_095))), readRegion(restored.resolve(REGION)));
+    }
+
+    @Test
+    void chainStartsOverOnceItReachesTheMaximumLength() throws Exception {
+        ReflectionTestUtils.setField(engine, "maxChainLength", 1);
+        writeRegion(serverRoot.resolve(REGION), Map.of(0, new Chunk(OLD_TIMESTAMP, random(7, 100))));
+        RegionDeltaIndex first = engine.createBackup(instance, serverRoot, List.of("world"), unlimited);
+        Thread.sleep(1_100);
+        RegionDeltaIndex second = engine.createBackup(instance, serverRoot, List.of("world"), unlimited);
+        Thread.sleep(1_100);
+        RegionDeltaIndex third = engine.createBackup(instance, serverRoot, List.of("world"), unlimited);
+
+        assertEquals(first.id(), second.parentId());
+        assertEquals(0, second.regions().get(0).chunks().size());
+        assertNull(third.parentId());
+        assertEquals(1, third.regions().get(0).chunks().size());
+    }
+
+    private record Chunk(int timestamp, byte[] data) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Chunk chunk && timestamp == chunk.timestamp && Arrays.equals(data, chunk.data);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * timestamp + Arrays.hashCode(data);
+        }
+    }
+
+    // Chunks are laid out in reverse index order so the restore, which packs them in index order, cannot just match byte for byte
+    private static void writeRegion(Path file, Map<Integer, Chunk> chunks) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(2 * SECTOR_BYTES);
+        ByteBuffer body = ByteBuffer.allocate(chunks.size() * 4 * SECTOR_BYTES);
+        int nextSector = 2;
+        for (int index : new TreeMap<>(chunks).descendingKeySet()) {
+            Chunk chunk = chunks.get(index);
+            int sectors = (5 + chunk.data().length + SECTOR_BYTES - 1) / SECTOR_BYTES;
+            int position = (nextSector - 2) * SECTOR_BYTES;
+            body.putInt(position, 1 + chunk.data().length);
+            body.put(position + 4, (byte) 2);
+            body.put(position + 5, chunk.data());
+            header.putInt(index * 4, nextSector << 8 | sectors);
+            header.putInt(SECTOR_BYTES + index * 4, chunk.timestamp());
+            nextSector += sectors;
+        }
+        byte[] bytes = new byte[nextSector * SECTOR_BYTES];
+        header.get(0, bytes, 0, 2 * SECTOR_BYTES);
+        body.get(0, bytes, 2 * SECTOR_BYTES, bytes.length - 2 * SECTOR_BYTES);
+        Files.write(file, bytes);
+    }
+
+    private static Map<Integer, Chunk> readRegion(Path file) throws IOException {
+        ByteBuffer region = ByteBuffer.wrap(Files.readAllBytes(file));
+        Map<Integer, Chunk> chunks = new TreeMap<>();
+        for (int i = 0; i < CHUNKS_PER_REGION; i++) {
+            int location = region.getInt(i * 4);
+            if (location == 0) {
+                continue;
+            }
+            int position = (location >>> 8) * SECTOR_BYTES;
+            int length = region.getInt(position);
+            assertEquals(2, region.get(position + 4));
+            byte[] data = new byte[length - 1];
+            region.get(position + 5, data);
+            assertEquals((5 + data.length + SECTOR_BYTES - 1) / SECTOR_BYTES, location & 0xff);
+            chunks.put(i, new Chunk(region.getInt(SECTOR_BYTES + i * 4), data));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,146 @@
+package mc.server.service.backup;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static mc.server.service.backup.TestData.random;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TarArchiveRoundTripTest {
+    private static final int BLOCK_SIZE = 16 * 1024;
+    private static final String LONG_NAME = "world/datapacks/" + "nested-directory/".repeat(8) + "a-file-name-well-past-the-ustar-limit.json";
+
+    @TempDir
+    Path dir;
+
+    private ExecutorService executor;
+    private Map<String, byte[]> files;
+    private Path archive;
+    private BackupArchiveIndex index;
+
+    @BeforeEach
+    void writeArchive() throws IOException {
+        executor = Executors.newFixedThreadPool(3);
+        files = new LinkedHashMap<>();
+        files.put("world/level.dat", compressible(1, 3_000));
+        files.put(LONG_NAME, compressible(2, 700));
+        files.put("world/region/r.0.0.mca", compressible(3, 100_000));
+        files.put("world/empty.txt", new byte[0]);
+        files.put("world/playerdata/player.dat", compressible(4, 5_000));
+
+        archive = dir.resolve("backup.tar.gz");
+        ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(Files.newOutputStream(archive), executor, BLOCK_SIZE, 6, 4);
+        TarWriter tar = new TarWriter(gzip);
+        try (tar) {
+            tar.putDirectory("world");
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                tar.putFile(file.getKey(), new ByteArrayInputStream(file.getValue()), file.getValue().length, 1_700_000_000L, 0644);
+            }
+            tar.finish();
+        }
+        index = new BackupArchiveIndex(BLOCK_SIZE, gzip.getMembers(), tar.getEntries());
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void membersTileTheArchiveAndInflateOnTheirOwn() throws IOException {
+        List<ParallelGzipOutputStream.Member> members = index.members();
+        assertTrue(members.size() > 5, "expected the archive to span several gzip members");
+
+        long uncompressed = 0;
+        long compressed = 0;
+        for (ParallelGzipOutputStream.Member member : members) {
+            assertEquals(uncompressed, member.uncompressedOffset());
+            assertEquals(compressed, member.compressedOffset());
+            assertTrue(member.uncompressedLength() <= BLOCK_SIZE);
+            assertEquals(member.uncompressedLength(), inflateMember(member).length);
+            uncompressed += member.uncompressedLength();
+            compressed += member.compressedLength();
+        }
+        assertEquals(Files.size(archive), compressed);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archive))) {
+            assertEquals(uncompressed, in.readAllBytes().length);
+        }
+    }
+
+    @Test
+    void scanReadsEveryEntryIncludingLongNames() throws IOException {
+        Map<String, byte[]> scanned = new HashMap<>();
+        TarArchiveReader.scan(archive, name -> true, (entry, content) -> scanned.put(entry.name(), content.readAllBytes()));
+
+        assertEquals(files.keySet(), scanned.keySet());
+        files.forEach((name, content) -> assertArrayEquals(content, scanned.get(name), name));
+    }
+
+    @Test
+    void indexedReadSeeksToSelectedEntries() throws IOException {
+        List<TarWriter.Entry> selected = index.entries().stream()
+                .filter(entry -> !entry.name().equals("world/level.dat"))
+                .sorted(Comparator.comparingLong(TarWriter.Entry::dataOffset))
+                .toList();
+
+        Map<String, byte[]> read = new HashMap<>();
+        TarArchiveReader.read(archive, index, selected, new IoRateLimiter(0),
+                (entry, content) -> read.put(entry.name(), content.readAllBytes()));
+
+        assertEquals(selected.size(), read.size());
+        for (TarWriter.Entry entry : selected) {
+            assertArrayEquals(files.get(entry.name()), read.get(entry.name()), entry.name());
+        }
+    }
+
+    @Test
+    void extractWritesSingleEntryWithItsMtime() throws IOException {
+        TarWriter.Entry entry = index.entries().stream().filter(e -> e.name().equals(LONG_NAME)).findFirst().orElseThrow();
+        Path destination = dir.resolve("restored").resolve("file.json");
+
+        TarArchiveReader.extract(archive, index, entry, destination);
+
+        assertArrayEquals(files.get(LONG_NAME), Files.readAllBytes(destination));
+        assertEquals(1_700_000_000_000L, Files.getLastModifiedTime(destination).toMillis());
+    }
+
+    private byte[] inflateMember(ParallelGzipOutputStream.Member member) throws IOException {
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            channel.position(member.compressedOffset());
+            byte[] compressed = Channels.newInputStream(channel).readNBytes(member.compressedLength());
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+                return in.readAllBytes();
+            }
+        }
+    }
+
+    private static byte[] compressible(long seed, int length) {
+        // Half random, half repeated so the blocks actually compress
+        byte[] bytes = random(seed, length);
+        for (int i = length / 2; i < length; i++) {
+            bytes[i] = (byte) (i % 7);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,16 @@
+package mc.server.service.backup;
+
+import java.util.Random;
+
+// Seeded so a failing test sees the same bytes on every run
+final class TestData {
+
+    private TestData() {
+    }
+
+    static byte[] random(long seed, int length) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
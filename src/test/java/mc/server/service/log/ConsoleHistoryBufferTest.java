@@ -0,0 +1,135 @@
+package mc.server.service.log;
+
+import mc.server.model.ConsoleMessage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsoleHistoryBufferTest {
+
+    @Test
+    void wrapAroundKeepsTheNewestMessages() {
+        ConsoleHistoryBuffer buffer = new ConsoleHistoryBuffer(5);
+        for (int i = 1; i <= 12; i++) {
+            assertEquals(i, buffer.append(message("line " + i)));
+        }
+
+        assertEquals(5, buffer.size());
+        assertEquals(12, buffer.getLastSequence());
+        assertEquals(List.of(8L, 9L, 10L, 11L, 12L), sequences(buffer.all()));
+        assertEquals("line 8", buffer.all().get(0).getMessage());
+    }
+
+    @Test
+    void sinceReturnsTheOldestPageAfterTheSequence() {
+        ConsoleHistoryBuffer buffer = new ConsoleHistoryBuffer(10);
+        for (int i = 1; i <= 8; i++) {
+            buffer.append(message("line " + i));
+        }
+
+        assertEquals(List.of(4L, 5L, 6L), sequences(buffer.since(3, 3)));
+        assertEquals(List.of(7L, 8L), sequences(buffer.since(6, 3)));
+        assertEquals(List.of(), buffer.since(8, 3));
+        assertEquals(List.of(), buffer.since(0, 0));
+    }
+
+    @Test
+    void pagingWithTheLastSequenceSeesEveryRetainedMessageOnce() {
+        ConsoleHistoryBuffer buffer = new ConsoleHistoryBuffer(16);
+        for (int i = 1; i <= 40; i++) {
+            buffer.append(message("line " + i));
+        }
+
+        List<Long> seen = new ArrayList<>();
+        long after = 0;
+        List<ConsoleMessage> page;
+        while (!(page = buffer.since(after, 5)).isEmpty()) {
+            seen.addAll(sequences(page));
+            after = page.get(page.size() - 1).getSequence();
+        }
+        // Everything before 25 was overwritten, a client that fell behind resumes at the oldest retained message
+        assertEquals(LongStream.rangeClosed(25, 40).boxed().toList(), seen);
+    }
+
+    @Test
+    void lastReturnsTheNewestOldestFirst() {
+        ConsoleHistoryBuffer buffer = new ConsoleHistoryBuffer(10);
+        for (int i = 1; i <= 7; i++) {
+            buffer.append(message("line " + i));
+        }
+
+        assertEquals(List.of(5L, 6L, 7L), sequences(buffer.last(3)));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), sequences(buffer.last(50)));
+        assertEquals(List.of(), buffer.last(0));
+    }
+
+    @Test
+    void clearHidesOlderMessagesButKeepsCounting() {
+        ConsoleHistoryBuffer buffer = new ConsoleHistoryBuffer(10);
+        buffer.append(message("before 1"));
+        buffer.append(message("before 2"));
+        buffer.clear();
+
+        assertEquals(0, buffer.size());
+        assertEquals(List.of(), buffer.all());
+        assertEquals(3, buffer.append(message("after")));
+        assertEquals(List.of(3L), sequences(buffer.since(0, 10)));
+        assertEquals(List.of(3L), sequences(buffer.last(10)));
+    }
+
+    @Test
+    void fieldsSurviveTheRoundTrip() {
+        ConsoleHistoryBuffer buffer = new ConsoleHistoryBuffer(4);
+        LocalDateTime timestamp = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        buffer.append(ConsoleMessage.builder().type("command").source("some-plugin").message("§aGrün ✓").timestamp(timestamp).build());
+        buffer.append(ConsoleMessage.builder().message(null).build());
+
+        List<ConsoleMessage> messages = buffer.all();
+        assertEquals("command", messages.get(0).getType());
+        assertEquals("some-plugin", messages.get(0).getSource());
+        assertEquals("§aGrün ✓", messages.get(0).getMessage());
+        assertEquals(timestamp, messages.get(0).getTimestamp());
+        assertNull(messages.get(1).getType());
+        assertNull(messages.get(1).getTimestamp());
+        assertEquals("", messages.get(1).getMessage());
+    }
+
+    @Test
+    void longTextIsCutOnACharacterBoundary() {
+        // 4 slots of 16 bytes, so a single message keeps at most 16 bytes
+        ConsoleHistoryBuffer buffer = new ConsoleHistoryBuffer(4, 16);
+        buffer.append(message("aaaaaaaaaaaaaaa€€€"));
+        for (int i = 0; i < 10; i++) {
+            buffer.append(message("0123456789abcdef".repeat(2)));
+        }
+
+        List<ConsoleMessage> messages = buffer.all();
+        assertEquals(4, messages.size());
+        for (ConsoleMessage kept : messages) {
+            assertEquals("0123456789abcdef", kept.getMessage());
+        }
+
+        ConsoleHistoryBuffer fresh = new ConsoleHistoryBuffer(4, 16);
+        fresh.append(message("aaaaaaaaaaaaaaa€€€"));
+        String cut = fresh.all().get(0).getMessage();
+        assertEquals("aaaaaaaaaaaaaaa", cut);
+        assertTrue(cut.getBytes(StandardCharsets.UTF_8).length <= 16);
+    }
+
+    private static ConsoleMessage message(String text) {
+        return ConsoleMessage.builder().type("info").source("server").message(text).timestamp(LocalDateTime.now()).build();
+    }
+
+    private static List<Long> sequences(List<ConsoleMessage> messages) {
+        return messages.stream().map(ConsoleMessage::getSequence).toList();
+    }
+}
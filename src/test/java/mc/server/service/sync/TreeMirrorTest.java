@@ -0,0 +1,82 @@
+package mc.server.service.sync;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreeMirrorTest {
+    private static final FileTime OLD = FileTime.fromMillis(1_600_000_000_000L);
+    private static final FileTime NEW = FileTime.fromMillis(1_600_000_100_000L);
+
+    @TempDir
+    Path dir;
+
+    private final TreeMirror mirror = new TreeMirror();
+    private Path source;
+    private Path target;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        source = dir.resolve("source");
+        target = dir.resolve("target");
+        write(source.resolve("world/level.dat"), "level", OLD);
+        write(source.resolve("world/region/r.0.0.mca"), "region", OLD);
+        write(source.resolve("world/session.lock"), "lock", OLD);
+    }
+
+    @Test
+    void firstPassCopiesEverythingWithItsMtime() throws IOException {
+        TreeMirror.MirrorResult result = mirror.mirror(source, target, List.of("world"), Set.of("session.lock"), progress -> {});
+
+        assertEquals(2, result.files());
+        assertEquals(0, result.unchanged());
+        assertEquals("level".length() + "region".length(), result.stats().copiedBytes());
+        assertEquals("region", Files.readString(target.resolve("world/region/r.0.0.mca")));
+        assertEquals(OLD, Files.getLastModifiedTime(target.resolve("world/level.dat")));
+        assertFalse(Files.exists(target.resolve("world/session.lock")));
+    }
+
+    @Test
+    void laterPassesCopyOnlyFilesWhoseSizeOrMtimeChanged() throws IOException {
+        mirror.mirror(source, target, List.of("world"), Set.of("session.lock"), progress -> {});
+        write(source.resolve("world/region/r.0.0.mca"), "REGION", NEW);
+
+        TreeMirror.MirrorResult result = mirror.mirror(source, target, List.of("world"), Set.of("session.lock"), progress -> {});
+
+        assertEquals(1, result.unchanged());
+        assertEquals("REGION".length(), result.stats().copiedBytes());
+        assertEquals("level".length(), result.stats().skippedBytes());
+        assertEquals("REGION", Files.readString(target.resolve("world/region/r.0.0.mca")));
+        assertEquals(NEW, Files.getLastModifiedTime(target.resolve("world/region/r.0.0.mca")));
+    }
+
+    @Test
+    void filesGoneFromTheSourceAreRemovedButExcludedNamesAreKept() throws IOException {
+        mirror.mirror(source, target, List.of("world"), Set.of("session.lock"), progress -> {});
+        write(target.resolve("world/session.lock"), "target lock", OLD);
+        Files.delete(source.resolve("world/level.dat"));
+
+        TreeMirror.MirrorResult result = mirror.mirror(source, target, List.of("world"), Set.of("session.lock"), progress -> {});
+
+        assertEquals(1, result.removed());
+        assertFalse(Files.exists(target.resolve("world/level.dat")));
+        assertTrue(Files.exists(target.resolve("world/session.lock")));
+    }
+
+    private static void write(Path file, String content, FileTime lastModified) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, lastModified);
+    }
+}